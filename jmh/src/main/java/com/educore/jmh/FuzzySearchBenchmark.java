@@ -0,0 +1,84 @@
+package com.educore.jmh;
+
+import com.educore.enums.UserRole;
+import com.educore.model.Student;
+import com.educore.model.User;
+import com.educore.service.FuzzyUserIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency distribution of the typo-tolerant user search ({@link FuzzyUserIndex#search}), to check the
+ * p99 target of under 1 ms at 1M users ({@code jmh/fuzzy-search-p99.txt} holds the committed run).
+ * The users get a first, a middle and a last name from small pools (so names are shared by many users, like real
+ * ones) and an email built from them. Every query mistypes one word of a random user (a letter left out), with
+ * {@code words} words: the first name, then the last name, then the middle name.
+ * Sample time mode records every call, so the results show the percentiles, not only the mean.
+ * Usage: {@code mvn -B package && java -jar jmh/target/benchmarks.jar FuzzySearchBenchmark}
+ * ({@code -p users=1000000} picks the size).
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class FuzzySearchBenchmark {
+    private static final String[] FIRST_NAMES = {"Mazen", "Meshal", "Rayan", "Osama", "Sara", "Noura", "Fahad", "Lama",
+            "Omar", "Huda", "Khalid", "Reem", "Yousef", "Dana", "Ali", "Maha", "Saad", "Joud", "Nasser", "Layan"};
+    private static final String[] LAST_NAMES = {"Alharbi", "Alqahtani", "Alotaibi", "Alghamdi", "Alzahrani", "Alshehri",
+            "Aldosari", "Almutairi", "Alanazi", "Alshammari", "Alsubaie", "Alyami", "Alamri", "Alsulami", "Alrashidi"};
+    /** The number of prepared queries, a power of two so the call number is masked into it. */
+    private static final int QUERIES = 4096;
+    private static final int MASK = QUERIES - 1;
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    @Param({"1", "2", "3"})
+    public int words;
+
+    private FuzzyUserIndex index;
+    private String[] queries;
+    /** The call number, picks the query of the next call. */
+    private int call;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Random random = new Random(42);
+        index = new FuzzyUserIndex();
+        String[][] names = new String[users][];
+        for (int i = 0; i < users; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String middle = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            names[i] = new String[]{first, last, middle};
+            String email = first.toLowerCase() + random.nextInt(50) + "." + last.toLowerCase() + i + "@mail.com";
+            index.add(new Student(i, first + " " + middle + " " + last, email, UserRole.STUDENT));
+        }
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String[] name = names[random.nextInt(users)];
+            int mistyped = random.nextInt(words);
+            StringBuilder query = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                if(w > 0) query.append(' ');
+                query.append(w == mistyped ? dropLetter(name[w], random) : name[w]);
+            }
+            queries[i] = query.toString();
+        }
+    }
+
+    @Benchmark
+    public List<User> search(){ return index.search(queries[call++ & MASK], 10); }
+
+    //Leaves one letter out, never the first one
+    private static String dropLetter(String word, Random random){
+        int at = 1 + random.nextInt(word.length() - 1);
+        return word.substring(0, at) + word.substring(at + 1);
+    }
+}
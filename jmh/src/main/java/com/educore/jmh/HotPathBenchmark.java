@@ -0,0 +1,164 @@
+package com.educore.jmh;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.OverflowPolicy;
+import com.educore.enums.UserRole;
+import com.educore.exception.AlreadyEnrolledException;
+import com.educore.exception.CourseFullException;
+import com.educore.exception.UserNotFoundException;
+import com.educore.model.*;
+import com.educore.service.Platform;
+import com.educore.service.UserSearchEngine;
+import com.educore.util.ReceiptWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot paths of the platform as JMH benchmarks, so a change can be compared against the committed baseline
+ * ({@code jmh/hotpaths-baseline.txt}).
+ * Every size runs in its own fork (the platform state is static), with {@code users} students each enrolled in
+ * 3 of {@code users / 100} courses (at least 10) with a grade. Receipts and console messages are thrown away
+ * while the trial runs, the console is given back when it ends.
+ * The operations: Platform.findUserById, findUserByEmail, getStudentsSortedByGPA, getCoursesSortedByDifficulty,
+ * Course.enroll followed by drop, Course.addRating, Student.calculateGPA, Student.modifyGrade, and the name
+ * matching behind SystemHelper.Search (the {@link UserSearchEngine} prefix and fuzzy queries).
+ * Usage: {@code mvn -B package && java -jar jmh/target/benchmarks.jar -prof gc} (the gc profiler adds the
+ * allocated bytes per operation), {@code -p users=1000,10000} picks the sizes, {@code -rf text -rff file} saves the results.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class HotPathBenchmark {
+    private static final int ENROLLMENTS_PER_STUDENT = 3;
+    /** The number of prepared inputs per operation, a power of two so the call number is masked into it. */
+    private static final int INPUTS = 4096;
+    private static final int MASK = INPUTS - 1;
+    /** Leaves room for the ids of the demo data. */
+    private static final int FIRST_ID = 1000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int users;
+
+    /** The console of the fork, put back by {@link #tearDown}. */
+    private PrintStream console;
+    private Platform platform;
+    private UserSearchEngine engine;
+    private Course launch;
+    private int[] ids;
+    private String[] emails;
+    private String[] prefixes;
+    private String[] typos;
+    private Student[] picked;
+    private Course[] pickedCourses;
+    /** The call number, picks the input of the next call. */
+    private int call;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        console = System.out;
+        System.setOut(discard);
+        ReceiptWriter.setDefault(new ReceiptWriter(discard, 1024, 64, OverflowPolicy.DROP_NEWEST));
+
+        platform = Platform.create();
+        Random random = new Random(42);
+        int courseCount = Math.max(10, users / 100);
+        CourseLevel[] levels = CourseLevel.values();
+        Course[] courses = new Course[courseCount];
+        for (int i = 0; i < courseCount; i++) {
+            courses[i] = new Course(FIRST_ID + i, Integer.MAX_VALUE, "Course " + i, 10 + random.nextInt(90), levels[i % levels.length]);
+            platform.addCourse(courses[i]);
+        }
+        Student[] students = new Student[users];
+        for (int i = 0; i < users; i++) {
+            Student student = new Student(FIRST_ID + i, "Student " + i, "student" + i + "@bench.com", UserRole.STUDENT);
+            for (int j = 0; j < ENROLLMENTS_PER_STUDENT; j++) {
+                Course course = courses[random.nextInt(courseCount)];
+                if(course.restoreEnrollment(student)){
+                    student.addCourseEnrollment(course);
+                    //Kept away from 0 and 100 so the +1/-1 of modifyGrade never fails
+                    student.restoreGrade(course.getCourseID(), 10 + random.nextInt(81));
+                }
+            }
+            platform.addUser(student);
+            students[i] = student;
+        }
+
+        ids = new int[INPUTS];
+        emails = new String[INPUTS];
+        prefixes = new String[INPUTS];
+        typos = new String[INPUTS];
+        picked = new Student[INPUTS];
+        pickedCourses = new Course[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            int n = random.nextInt(users);
+            ids[i] = FIRST_ID + n;
+            emails[i] = "student" + n + "@bench.com";
+            String name = "student " + n;
+            prefixes[i] = name.substring(0, Math.min(name.length(), 8 + random.nextInt(3)));
+            typos[i] = "stduent " + n;
+            picked[i] = students[n];
+            pickedCourses[i] = picked[i].getEnrolledCourses().getFirst();
+        }
+        launch = new Course(FIRST_ID + courseCount, Integer.MAX_VALUE, "Launch", 10, CourseLevel.BEGINNER);
+        platform.addCourse(launch);
+        engine = platform.getSearchEngine();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public User findUserById(){ return platform.findUserById(ids[call++ & MASK]); }
+
+    @Benchmark
+    public User findUserByEmail(){ return platform.findUserByEmail(emails[call++ & MASK]); }
+
+    @Benchmark
+    public List<Student> getStudentsSortedByGPA(){ return platform.getStudentsSortedByGPA(); }
+
+    @Benchmark
+    public List<Course> getCoursesSortedByDifficulty(){ return platform.getCoursesSortedByDifficulty(); }
+
+    @Benchmark
+    public boolean enrollAndDrop() throws AlreadyEnrolledException, CourseFullException, UserNotFoundException {
+        Student student = picked[call++ & MASK];
+        return launch.enroll(student) && launch.drop(student);
+    }
+
+    @Benchmark
+    public long addRating(){
+        launch.addRating(1.0 + call++ % 5);
+        return launch.getRatingAggregate().getCount();
+    }
+
+    @Benchmark
+    public double calculateGPA(){ return picked[call++ & MASK].calculateGPA(); }
+
+    @Benchmark
+    public boolean modifyGrade(){
+        //Every student gets +1 then -1, so the grades never drift
+        int i = call++;
+        int k = (i >>> 1) & MASK;
+        return picked[k].modifyGrade(pickedCourses[k], (i & 1) == 0 ? 1.0 : -1.0);
+    }
+
+    @Benchmark
+    public List<UserSearchEngine.Result> searchByNamePrefix(){
+        return engine.search(prefixes[call++ & MASK], UserRole.STUDENT, 10, 0);
+    }
+
+    @Benchmark
+    public List<UserSearchEngine.Result> searchFuzzy(){
+        return engine.search(typos[call++ & MASK], UserRole.STUDENT, 10, 0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.educore.jmh;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link FuzzySearchBenchmark} queries on a small index, so the benchmark keeps timing searches that
+ * find users rather than empty answers.
+ */
+
+class FuzzySearchBenchmarkTest {
+    private static final int CALLS = 1000;
+
+    @Test
+    void mistypedQueriesFindUsers(){
+        for (int words = 1; words <= 3; words++) {
+            FuzzySearchBenchmark benchmark = new FuzzySearchBenchmark();
+            benchmark.users = 1000;
+            benchmark.words = words;
+            benchmark.setUp();
+            int found = 0;
+            for (int i = 0; i < CALLS; i++) {
+                if(!benchmark.search().isEmpty()) found++;
+            }
+            //A two letter word left with one letter can match nothing, the rest must
+            assertTrue(found >= CALLS * 9 / 10, words + " word queries found users for " + found + " of " + CALLS);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.educore.jmh;
+
+import com.educore.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every benchmark of {@link HotPathBenchmark} a few times on the smallest size, so a benchmark that no longer
+ * answers what it measures (a lookup missing, a search finding nothing, an enroll failing) breaks the build
+ * instead of being timed.
+ */
+
+class HotPathBenchmarkTest {
+    private static final int CALLS = 100;
+
+    @Test
+    void everyBenchmarkAnswers(){
+        PrintStream console = System.out;
+        HotPathBenchmark benchmark = new HotPathBenchmark();
+        benchmark.users = 1000;
+        benchmark.setUp();
+        try {
+            for (int i = 0; i < CALLS; i++) {
+                User byId = benchmark.findUserById();
+                assertNotNull(byId, "findUserById");
+                assertNotNull(benchmark.findUserByEmail(), "findUserByEmail");
+                assertTrue(benchmark.enrollAndDrop(), "enrollAndDrop");
+                assertTrue(benchmark.modifyGrade(), "modifyGrade");
+                assertTrue(benchmark.addRating() > 0, "addRating");
+                assertTrue(benchmark.calculateGPA() > 0, "calculateGPA");
+                assertFalse(benchmark.searchByNamePrefix().isEmpty(), "searchByNamePrefix");
+                assertFalse(benchmark.searchFuzzy().isEmpty(), "searchFuzzy");
+            }
+            //The demo data is in the platform too
+            assertTrue(benchmark.getStudentsSortedByGPA().size() >= benchmark.users, "getStudentsSortedByGPA");
+            assertTrue(benchmark.getCoursesSortedByDifficulty().size() >= 10, "getCoursesSortedByDifficulty");
+        } catch (Exception e){
+            fail(e);
+        } finally {
+            benchmark.tearDown();
+        }
+        assertSame(console, System.out, "the console is given back");
+    }
+}
@@ -0,0 +1,206 @@
+package com.educore.bench;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.EnrollmentStatus;
+import com.educore.enums.OverflowPolicy;
+import com.educore.enums.UserRole;
+import com.educore.exception.AlreadyEnrolledException;
+import com.educore.exception.CourseFullException;
+import com.educore.exception.UserNotFoundException;
+import com.educore.model.*;
+import com.educore.util.ReceiptWriter;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks that the seats of a course are never oversold, lost or given twice when many threads enroll and drop
+ * the same students at once, the launch-day pattern the {@link com.educore.service.EnrollmentEngine} is built for.
+ * Every round creates a few small courses and lets the threads hammer them with {@link Course#enroll},
+ * {@link Course#drop} and {@link Course#enrollAll} on a shared pool of students. Each successful enroll adds 1 to
+ * the (course, student) cell of a counter table and each successful drop takes 1 away, so after the round a cell
+ * is exactly 1 for every seat that must be taken.
+ * A watcher thread checks {@code enrolledCount <= capacity} the whole time, and at the end of a round:
+ * every cell is 0 or 1 (no student got two seats), a cell is 1 exactly when the student is enrolled (no seat lost),
+ * and the enrolled count, the seats left and the student list all agree.
+ * A student's grades are not thread safe, so {@link Course#enrollAll} (which adds grades) is only called by the
+ * thread owning the students of the batch, the other threads still enroll and drop them one by one.
+ * Usage: {@code java com.educore.bench.CapacityStressHarness [rounds] [threads] [operations per thread]}
+ * (defaults: 50 rounds, 16 threads, 20,000 operations). The exit code is 1 if a round broke a rule.
+ * {@code mvn verify} runs a smaller load of it as a test (CapacityStressTest).
+ */
+
+public class CapacityStressHarness {
+    private static final int COURSES = 4;
+    private static final int STUDENTS = 200;
+    private static final int MIN_CAPACITY = 5;
+    private static final int MAX_CAPACITY = 60;
+    private static final int BATCH_SIZE = 8;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        long started = System.nanoTime();
+        List<String> failures = run(rounds, threads, operations);
+        long millis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        long totalOperations = (long) rounds * threads * operations;
+        System.out.printf("%d rounds, %,d operations in %,d ms (%,d ops/s)%n", rounds, totalOperations, millis,
+                totalOperations * 1000 / millis);
+        for (int i = 0; i < Math.min(20, failures.size()); i++) {
+            System.out.println("  " + failures.get(i));
+        }
+        System.out.println(failures.isEmpty() ? "PASSED: no seat was oversold, lost or given twice."
+                : "FAILED: " + failures.size() + " broken rules.");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Runs the rounds with the receipts thrown away, also used by the platform tests with a smaller load.
+     *
+     * @param rounds     The number of rounds, each on fresh courses and students.
+     * @param threads    The number of threads enrolling and dropping at once.
+     * @param operations The number of enrolls and drops per thread and round.
+     * @return The broken rules, empty if no seat was oversold, lost or given twice.
+     * @throws InterruptedException if the thread is interrupted while waiting for a round.
+     */
+    public static List<String> run(int rounds, int threads, int operations) throws InterruptedException {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        ReceiptWriter.setDefault(new ReceiptWriter(discard, 1024, 64, OverflowPolicy.DROP_NEWEST));
+
+        List<String> failures = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            runRound(round, threads, operations, failures);
+        }
+        return failures;
+    }
+
+    //One round on fresh courses and students
+    private static void runRound(int round, int threads, int operations, List<String> failures) throws InterruptedException {
+        Random random = new Random(round);
+        Course[] courses = new Course[COURSES];
+        for (int c = 0; c < COURSES; c++) {
+            int capacity = MIN_CAPACITY + random.nextInt(MAX_CAPACITY - MIN_CAPACITY + 1);
+            courses[c] = new Course(round * COURSES + c, capacity, "Stress " + round + "." + c, 10, CourseLevel.BEGINNER);
+        }
+        Student[] students = new Student[STUDENTS];
+        for (int s = 0; s < STUDENTS; s++) {
+            students[s] = new Student(s, "Student " + s, "student" + s + "@bench.com", UserRole.STUDENT);
+        }
+        AtomicIntegerArray held = new AtomicIntegerArray(COURSES * STUDENTS);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread watcher = new Thread(() -> {
+            while (running.get()){
+                for(Course course : courses){
+                    int enrolled = course.getEnrolledCount();
+                    if(enrolled > course.getCapacity()){
+                        fail(failures, "round " + round + ": " + course.getTitle() + " had " + enrolled
+                                + " students for " + course.getCapacity() + " seats");
+                    }
+                }
+            }
+        }, "capacity-watcher");
+        watcher.start();
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int owner = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e){
+                    return;
+                }
+                ThreadLocalRandom local = ThreadLocalRandom.current();
+                for (int i = 0; i < operations; i++) {
+                    int c = local.nextInt(COURSES);
+                    Course course = courses[c];
+                    int roll = local.nextInt(100);
+                    if(roll < 5){
+                        enrollBatch(course, c, students, owner, threads, held, local);
+                        continue;
+                    }
+                    int s = local.nextInt(STUDENTS);
+                    if(roll < 60){
+                        try {
+                            course.enroll(students[s]);
+                            held.incrementAndGet(c * STUDENTS + s);
+                        } catch (AlreadyEnrolledException | CourseFullException e){
+                            //A normal answer, nothing changed
+                        }
+                    }
+                    else{
+                        try {
+                            course.drop(students[s]);
+                            held.decrementAndGet(c * STUDENTS + s);
+                        } catch (UserNotFoundException e){
+                            //A normal answer, nothing changed
+                        }
+                    }
+                }
+            }, "stress-" + t);
+            workers[t].start();
+        }
+        start.countDown();
+        for(Thread worker : workers){
+            worker.join();
+        }
+        running.set(false);
+        watcher.join();
+
+        for (int c = 0; c < COURSES; c++) {
+            Course course = courses[c];
+            int seats = 0;
+            for (int s = 0; s < STUDENTS; s++) {
+                int cell = held.get(c * STUDENTS + s);
+                boolean enrolled = course.isEnrolled(students[s]);
+                if(cell < 0 || cell > 1){
+                    fail(failures, "round " + round + ": student " + s + " holds " + cell + " seats in " + course.getTitle());
+                }
+                else if((cell == 1) != enrolled){
+                    fail(failures, "round " + round + ": student " + s + (enrolled ? " is enrolled without a seat in "
+                            : " lost the seat in ") + course.getTitle());
+                }
+                seats += Math.max(0, cell);
+            }
+            List<Student> listed = course.getEnrolledStudents();
+            if(course.getEnrolledCount() != seats || listed.size() != seats
+                    || new HashSet<>(listed).size() != listed.size()
+                    || course.getEnrolledCount() > course.getCapacity()
+                    || course.getSeatsLeft() != course.getCapacity() - course.getEnrolledCount()){
+                fail(failures, "round " + round + ": " + course.getTitle() + " counts " + course.getEnrolledCount()
+                        + " students, lists " + listed.size() + ", has " + course.getSeatsLeft() + " seats left of "
+                        + course.getCapacity() + ", but " + seats + " seats were taken");
+            }
+        }
+    }
+
+    //Enrolls a few students this thread owns with one seat reservation
+    private static void enrollBatch(Course course, int c, Student[] students, int owner, int threads,
+                                    AtomicIntegerArray held, ThreadLocalRandom local){
+        List<Student> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int s = owner + threads * local.nextInt(Math.max(1, STUDENTS / threads));
+            if(s < STUDENTS) batch.add(students[s]);
+        }
+        EnrollmentStatus[] statuses = course.enrollAll(batch);
+        for (int i = 0; i < statuses.length; i++) {
+            if(statuses[i] == EnrollmentStatus.ENROLLED){
+                held.incrementAndGet(c * STUDENTS + batch.get(i).getUserId());
+            }
+        }
+    }
+
+    private static void fail(List<String> failures, String failure){
+        synchronized (failures){
+            failures.add(failure);
+        }
+    }
+}
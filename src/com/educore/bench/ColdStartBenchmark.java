@@ -0,0 +1,140 @@
+package com.educore.bench;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.UserRole;
+import com.educore.model.*;
+import com.educore.model.Module;
+import com.educore.persistence.MappedSnapshot;
+import com.educore.service.Platform;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Measures how long the platform takes to start from a saved columnar snapshot.
+ * It generates a data folder with {@code users} students (1 in 100 is an instructor) and {@code courses} courses,
+ * each student enrolled in 3 courses with a grade and a rating, then starts a fresh JVM for every measurement
+ * so nothing is warm or cached in the heap:
+ * lazy:  map the snapshot and look up a few random users, what an interactive session does first.
+ * eager: map the snapshot and build every user and course, what deserializing everything up front costs.
+ * Usage: {@code java -Xmx3g com.educore.bench.ColdStartBenchmark [users] [courses] [folder]}
+ * (defaults: 1,000,000 users, 50,000 courses, a temporary folder).
+ */
+
+public class ColdStartBenchmark {
+    private static final int ENROLLMENTS_PER_STUDENT = 3;
+    private static final int LOOKUPS = 100;
+    /** Leaves room for the ids of the demo data. */
+    private static final int FIRST_ID = 1000;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && (args[0].equals("lazy") || args[0].equals("eager"))){
+            measure(args[0], Path.of(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int courses = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        Path folder = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("educore-coldstart");
+
+        long started = System.nanoTime();
+        generate(folder, users, courses);
+        System.out.printf("generated %,d users / %,d courses in %d ms, snapshot %,d bytes%n", users, courses,
+                (System.nanoTime() - started) / 1_000_000, Files.size(folder.resolve("snapshot.col")));
+
+        for(String mode : new String[]{"lazy", "eager"}){
+            runChild(mode, folder, users);
+        }
+    }
+
+    //Builds the data in memory and saves it as the snapshot of an empty data folder
+    private static void generate(Path folder, int userCount, int courseCount) throws IOException {
+        Platform platform = Platform.create();
+        Random random = new Random(42);
+        CourseLevel[] levels = CourseLevel.values();
+        Course[] courses = new Course[courseCount];
+        for (int i = 0; i < courseCount; i++) {
+            Course course = new Course(FIRST_ID + i, Integer.MAX_VALUE, "Course " + i,
+                    10 + random.nextInt(90), levels[i % levels.length]);
+            ArrayList<Module> modules = new ArrayList<>();
+            Module module = new Module("Module of course " + i);
+            module.addLesson(new Lesson("Introduction", 10 + random.nextInt(50)));
+            modules.add(module);
+            course.setModules(modules);
+            platform.addCourse(course);
+            courses[i] = course;
+        }
+        for (int i = 0; i < userCount; i++) {
+            int id = FIRST_ID + i;
+            if(i % 100 == 0){
+                Instructor instructor = new Instructor(id, "Instructor " + i, "instructor" + i + "@bench.com", UserRole.INSTRUCTOR);
+                instructor.restoreTeachingCourse(courses[random.nextInt(courseCount)]);
+                platform.addUser(instructor);
+                continue;
+            }
+            Student student = new Student(id, "Student " + i, "student" + i + "@bench.com", UserRole.STUDENT);
+            for (int j = 0; j < ENROLLMENTS_PER_STUDENT; j++) {
+                Course course = courses[random.nextInt(courseCount)];
+                if(course.restoreEnrollment(student)){
+                    student.addCourseEnrollment(course);
+                    student.restoreGrade(course.getCourseID(), random.nextInt(101));
+                    double rating = 1 + random.nextInt(5);
+                    student.restoreRating(course, rating);
+                    course.getRatingAggregate().add(rating);
+                }
+            }
+            platform.addUser(student);
+        }
+        Files.createDirectories(folder);
+        MappedSnapshot.write(folder.resolve("snapshot.col"), 0, platform);
+    }
+
+    //Starts the platform from the folder in this (fresh) JVM and prints the timings
+    private static void measure(String mode, Path folder, int users) throws IOException {
+        long started = System.nanoTime();
+        Platform platform = Platform.open(folder);
+        long opened = System.nanoTime();
+
+        Random random = new Random(7);
+        int found = 0;
+        if(mode.equals("lazy")){
+            for (int i = 0; i < LOOKUPS; i++) {
+                User user = platform.findUserById(FIRST_ID + random.nextInt(users));
+                if(user instanceof Student){
+                    found += ((Student) user).getEnrolledCourses().size();
+                }
+            }
+        }
+        else{
+            found = platform.getUsers().size();
+        }
+        long done = System.nanoTime();
+
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long heapMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        String work = mode.equals("lazy") ? LOOKUPS + " lookups" : "full build";
+        System.out.printf("%-5s open %6d ms, %-12s %6d ms, total %6d ms, heap %5d MB (%d)%n", mode,
+                (opened - started) / 1_000_000, work, (done - opened) / 1_000_000,
+                (done - started) / 1_000_000, heapMb, found);
+        //Exit without a checkpoint so every run starts from the same snapshot
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static void runChild(String mode, Path folder, int users) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        long maxHeapMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        Process process = new ProcessBuilder(java, "-Xmx" + maxHeapMb + "m",
+                "-cp", System.getProperty("java.class.path"),
+                ColdStartBenchmark.class.getName(), mode, folder.toString(), String.valueOf(users))
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+            String line;
+            while ((line = out.readLine()) != null){
+                System.out.println(line);
+            }
+        }
+        process.waitFor();
+    }
+}
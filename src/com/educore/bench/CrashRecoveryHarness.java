@@ -0,0 +1,268 @@
+package com.educore.bench;
+
+import com.educore.command.*;
+import com.educore.enums.CourseLevel;
+import com.educore.enums.UserRole;
+import com.educore.model.*;
+import com.educore.service.CommandService;
+import com.educore.service.Platform;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Checks that the {@link com.educore.persistence.PlatformStore} keeps every change it acknowledged when the JVM is
+ * killed in the middle of writing. Each round starts a writer JVM on the data folder that creates a course and then
+ * registers, enrolls, grades and rates new students from several threads through the {@link CommandService}.
+ * A change is acknowledged (printed) only after its command returned OK, which is after the log record was fsynced.
+ * The writer is killed ({@link Process#destroyForcibly()}) a random delay after it acknowledged its first writes,
+ * so every round tests new writes, the log usually ends with a torn record and a checkpoint may be running.
+ * A round where the writer acknowledged no new student fails. A verifier JVM then reopens the folder and checks:
+ * every acknowledged user, enrollment, grade and rating is there, and every course counts exactly the ratings
+ * its students remember (a replayed rating is never counted twice).
+ * Odd rounds close the verifier without a checkpoint, so the next writer also replays the older log.
+ * Usage: {@code java com.educore.bench.CrashRecoveryHarness [rounds] [threads] [folder]}
+ * (defaults: 10 rounds, 4 threads, a temporary folder). The exit code is 1 if a round lost anything.
+ * {@code mvn verify} runs a few rounds of it as a test (CrashRecoveryTest).
+ */
+
+public class CrashRecoveryHarness {
+    /** The instructor of the demo data, teaches the course of every round. */
+    private static final int INSTRUCTOR_ID = 3;
+    private static final int FIRST_COURSE_ID = 1000;
+    private static final int FIRST_STUDENT_ID = 1_000_000;
+    private static final int STUDENTS_PER_THREAD = 100_000;
+    /** Small, so checkpoints run while the writer is killed. */
+    private static final int CHECKPOINT_INTERVAL = 500;
+    /** The writer is only killed once it acknowledged this many changes. */
+    private static final int FIRST_ACKS = 20;
+    /** How long the writer may take to acknowledge its first changes (JVM start included). */
+    private static final int START_TIMEOUT_MS = 60_000;
+    /** The writer runs up to this long after its first acknowledged changes. */
+    private static final int MAX_RUN_MS = 1200;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && args[0].equals("write")){
+            write(Path.of(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        if(args.length > 0 && args[0].equals("verify")){
+            verify(Path.of(args[1]), Path.of(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Path folder = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("educore-crash");
+        List<String> failures = run(rounds, threads, folder);
+        for(String failure : failures){
+            System.out.println("  " + failure);
+        }
+        System.out.println(failures.isEmpty() ? "PASSED: nothing acknowledged was lost in " + rounds + " crashes."
+                : "FAILED: " + failures.size() + " rounds, see above.");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Runs the crash rounds on a data folder, also used by the platform tests with fewer rounds.
+     *
+     * @param rounds  The number of writer crashes.
+     * @param threads The number of threads writing in the writer JVM.
+     * @param folder  The data folder, it keeps the data of every round.
+     * @return The failed rounds, empty if nothing acknowledged was lost.
+     * @throws IOException if a JVM can't be started or the acknowledged changes can't be kept.
+     * @throws InterruptedException if the thread is interrupted while waiting for a JVM.
+     */
+    public static List<String> run(int rounds, int threads, Path folder) throws IOException, InterruptedException {
+        Path acks = Files.createTempFile("educore-crash", ".acks");
+        Random random = new Random();
+        List<String> failures = new ArrayList<>();
+        try {
+            for (int round = 0; round < rounds; round++) {
+                Process writer = startChild("write", folder.toString(), String.valueOf(round), String.valueOf(threads));
+                List<String> acknowledged = Collections.synchronizedList(new ArrayList<>());
+                Thread reader = new Thread(() -> readAcks(writer, acknowledged), "ack-reader");
+                reader.start();
+                //Killed only once it wrote something new, so the round never just re-checks the older rounds
+                long deadline = System.nanoTime() + START_TIMEOUT_MS * 1_000_000L;
+                while (acknowledged.size() < FIRST_ACKS && writer.isAlive() && System.nanoTime() < deadline){
+                    Thread.sleep(5);
+                }
+                Thread.sleep(random.nextInt(MAX_RUN_MS));
+                writer.destroyForcibly().waitFor();
+                reader.join();
+                int students;
+                synchronized (acknowledged){
+                    Files.write(acks, acknowledged, StandardOpenOption.APPEND);
+                    students = (int) acknowledged.stream().filter(line -> line.startsWith("USER ")).count();
+                }
+                if(students == 0){
+                    failures.add("round " + round + ": the writer acknowledged no new student before it was killed");
+                    continue;
+                }
+
+                Process verifier = startChild("verify", folder.toString(), acks.toString(), String.valueOf(round));
+                try (BufferedReader out = new BufferedReader(new InputStreamReader(verifier.getInputStream()))){
+                    String line;
+                    while ((line = out.readLine()) != null){
+                        System.out.println(line);
+                    }
+                }
+                if(verifier.waitFor() != 0){
+                    failures.add("round " + round + ": the verifier found lost or miscounted changes");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(acks);
+        }
+        return failures;
+    }
+
+    //Writer JVM: runs commands until it is killed, printing one line per acknowledged change
+    private static void write(Path folder, int round, int threads) throws Exception {
+        Platform platform = Platform.open(folder);
+        CommandService commands = platform.getCommandService();
+        int courseId = FIRST_COURSE_ID + round;
+        if(!commands.execute(new CreateCourseCommand(INSTRUCTOR_ID, courseId, "Crash round " + round,
+                Integer.MAX_VALUE, 0, CourseLevel.BEGINNER)).isOk()){
+            throw new IllegalStateException("The course of round " + round + " could not be created.");
+        }
+        ack("COURSE " + courseId);
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int firstId = FIRST_STUDENT_ID + (round * threads + t) * STUDENTS_PER_THREAD;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < STUDENTS_PER_THREAD; i++) {
+                    int id = firstId + i;
+                    if(!commands.execute(new CreateUserCommand(id, "Crash " + id, "crash" + id + "@bench.com",
+                            UserRole.STUDENT)).isOk()) continue;
+                    ack("USER " + id);
+                    if(!commands.execute(new EnrollCommand(id, courseId)).isOk()) continue;
+                    ack("ENROLL " + id + " " + courseId);
+                    double grade = 1 + i % 99;
+                    if(!commands.execute(new GradeCommand(INSTRUCTOR_ID, courseId, id, grade)).isOk()) continue;
+                    ack("GRADE " + id + " " + courseId + " " + grade);
+                    double rating = 1 + i % 5;
+                    if(!commands.execute(new RateCommand(id, courseId, rating)).isOk()) continue;
+                    ack("RATE " + id + " " + courseId + " " + rating);
+                }
+            }, "crash-writer-" + t);
+            workers[t].start();
+        }
+        for(Thread worker : workers){
+            worker.join();
+        }
+        Runtime.getRuntime().halt(0);
+    }
+
+    //Verifier JVM: reopens the folder and checks every acknowledged change
+    private static void verify(Path folder, Path acks, int round) throws IOException {
+        long started = System.nanoTime();
+        Platform platform = Platform.open(folder);
+        long opened = System.nanoTime();
+
+        int checked = 0;
+        List<String> missing = new ArrayList<>();
+        for(String line : Files.readAllLines(acks)){
+            String[] parts = line.split(" ");
+            checked++;
+            switch (parts[0]){
+                case "COURSE":
+                    if(platform.findCourseById(Integer.parseInt(parts[1])) == null) missing.add(line);
+                    break;
+                case "USER":
+                    if(!(platform.findUserById(Integer.parseInt(parts[1])) instanceof Student)) missing.add(line);
+                    break;
+                case "ENROLL": {
+                    Student student = (Student) platform.findUserById(Integer.parseInt(parts[1]));
+                    Course course = platform.findCourseById(Integer.parseInt(parts[2]));
+                    if(student == null || course == null || !course.isEnrolled(student)) missing.add(line);
+                    break;
+                }
+                case "GRADE": {
+                    Student student = (Student) platform.findUserById(Integer.parseInt(parts[1]));
+                    Course course = platform.findCourseById(Integer.parseInt(parts[2]));
+                    if(student == null || course == null || student.getGrade(course) != Double.parseDouble(parts[3])){
+                        missing.add(line);
+                    }
+                    break;
+                }
+                case "RATE": {
+                    Student student = (Student) platform.findUserById(Integer.parseInt(parts[1]));
+                    Course course = platform.findCourseById(Integer.parseInt(parts[2]));
+                    Double rating = student == null || course == null ? null : student.getRatedCourses().get(course);
+                    if(rating == null || rating != Double.parseDouble(parts[3])) missing.add(line);
+                    break;
+                }
+                default:
+                    missing.add(line);
+            }
+        }
+
+        //Every rating a course counts must be remembered by exactly one student
+        Map<Course, Integer> raters = new HashMap<>();
+        for(User user : platform.getUsers()){
+            if(user instanceof Student){
+                for(Course course : ((Student) user).getRatedCourses().keySet()){
+                    raters.merge(course, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> miscounted = new ArrayList<>();
+        for(Course course : platform.getCourses()){
+            long counted = course.getRatingAggregate().getCount();
+            int remembered = raters.getOrDefault(course, 0);
+            if(course.getCourseID() >= FIRST_COURSE_ID && counted != remembered){
+                miscounted.add(course.getCourseID() + " counts " + counted + " ratings, its students gave " + remembered);
+            }
+        }
+
+        System.out.printf("round %d: recovered in %d ms, %,d acknowledged changes checked, %d missing, %d miscounted courses%n",
+                round, (opened - started) / 1_000_000, checked, missing.size(), miscounted.size());
+        for (int i = 0; i < Math.min(5, missing.size()); i++) {
+            System.out.println("  missing: " + missing.get(i));
+        }
+        for(String course : miscounted){
+            System.out.println("  miscounted: " + course);
+        }
+        int status = missing.isEmpty() && miscounted.isEmpty() ? 0 : 1;
+        if(round % 2 == 0){
+            platform.close();
+        }
+        //An odd round leaves without a checkpoint, the next writer replays this log too
+        Runtime.getRuntime().halt(status);
+    }
+
+    private static void ack(String change){
+        synchronized (System.out){
+            System.out.println(change);
+            System.out.flush();
+        }
+    }
+
+    private static void readAcks(Process writer, List<String> acknowledged){
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream()))){
+            String line;
+            while ((line = out.readLine()) != null){
+                if(line.startsWith("COURSE ") || line.startsWith("USER ") || line.startsWith("ENROLL ")
+                        || line.startsWith("GRADE ") || line.startsWith("RATE ")){
+                    acknowledged.add(line);
+                }
+                else if(line.startsWith("CRITICAL") || line.contains("Exception")){
+                    System.out.println("  writer: " + line);
+                }
+            }
+        } catch (IOException e){
+            //The writer was killed, the lines read so far are kept
+        }
+    }
+
+    private static Process startChild(String... args) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> command = new ArrayList<>(List.of(java, "-Deducore.store.checkpointInterval=" + CHECKPOINT_INTERVAL,
+                "-cp", System.getProperty("java.class.path"), CrashRecoveryHarness.class.getName()));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+}
@@ -0,0 +1,393 @@
+package com.educore.bench;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.LoadOperation;
+import com.educore.enums.OverflowPolicy;
+import com.educore.enums.UserRole;
+import com.educore.exception.AlreadyEnrolledException;
+import com.educore.exception.CourseFullException;
+import com.educore.exception.UserNotFoundException;
+import com.educore.model.*;
+import com.educore.model.Module;
+import com.educore.service.CourseSearchIndex;
+import com.educore.service.Platform;
+import com.educore.service.StudentStore;
+import com.educore.service.UserSearchEngine;
+import com.educore.util.LatencyHistogram;
+import com.educore.util.ReceiptWriter;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drives the {@link Platform} API with synthetic traffic from many threads, without the interactive dashboards,
+ * to reproduce what production sees: registration bursts, enrollment storms when a course launches, grading days.
+ * It first generates a platform with realistic shapes: course popularity follows a Zipf curve (a few courses get
+ * most of the sign-ups), modules per course are geometric, lesson lengths are log-normal, students are enrolled in
+ * 0 to 5 courses with normally spread grades, and names come from a small pool so name searches find many users.
+ * Then it replays a scenario: a list of phases, each running for some seconds with its own mix of {@link LoadOperation}s.
+ * A scenario is a built-in name ({@code mixed}, {@code day}) or a file with one phase per line:
+ * {@code <phase name> <seconds> <OPERATION>=<weight> ...}, e.g. {@code launch 10 ENROLL=75 DROP=5 SEARCH_COURSES=20}.
+ * Every thread works on its own slice of the students (a student object is not thread safe), the courses and
+ * the platform are shared. After each phase it prints the throughput and the latency percentiles per operation,
+ * recorded in lock-free {@link LatencyHistogram}s (HdrHistogram-style, under 1.6% error). Rejected requests (course full, already enrolled,
+ * grade out of range) are counted apart, they are normal answers, not failures.
+ * With {@code --store offheap} the students are generated into a {@link StudentStore} that is the platform's
+ * {@link com.educore.interfaces.LazyLoader}: they start without enrollments, and a student becomes an object only
+ * when a thread first works with them. A search needs every user, so the first one builds all the rest.
+ * Usage: {@code java -Xmx3g com.educore.bench.LoadGenerator [--scenario mixed|day|file] [--threads 4]
+ * [--users 100000] [--courses 2000] [--seconds n (overrides every phase)] [--store heap|offheap]}.
+ */
+
+public class LoadGenerator {
+    /** Leaves room for the ids of the demo data. */
+    private static final int FIRST_ID = 1000;
+    private static final int MAX_RESULTS = 10;
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    private static final Map<String, String> SCENARIOS = Map.of(
+            "mixed", "mixed 30 ENROLL=25 DROP=5 RATE=10 GRADE=20 SEARCH_USERS=20 SEARCH_COURSES=15 REGISTER=5",
+            "day", "registration 10 REGISTER=70 SEARCH_COURSES=30\n"
+                    + "launch 10 ENROLL=75 DROP=5 SEARCH_COURSES=20\n"
+                    + "grading 10 GRADE=80 RATE=15 SEARCH_USERS=5");
+
+    private static final String[] FIRST_NAMES = {"Mazen", "Meshal", "Rayan", "Osama", "Sara", "Noura", "Fahad", "Lama",
+            "Omar", "Huda", "Khalid", "Reem", "Yousef", "Dana", "Ali", "Maha", "Saad", "Joud", "Nasser", "Layan"};
+    private static final String[] LAST_NAMES = {"Alharbi", "Alqahtani", "Alotaibi", "Alghamdi", "Alzahrani", "Alshehri",
+            "Aldosari", "Almutairi", "Alanazi", "Alshammari", "Alsubaie", "Alyami", "Alamri", "Alsulami", "Alrashidi"};
+    private static final String[] TOPICS = {"Java", "Python", "Data", "Design", "Networks", "Security", "Algorithms",
+            "Databases", "Cloud", "Statistics", "Marketing", "Finance", "Writing", "Physics", "Chemistry", "Arabic"};
+    private static final String[] KINDS = {"Fundamentals", "Bootcamp", "Masterclass", "Workshop", "Essentials", "Projects"};
+
+    //One phase of a scenario: a name, how long it runs and the weights of the operations
+    private static class Phase {
+        final String name;
+        final int seconds;
+        /** cumulative[i] is the sum of the weights of the operations 0..i. */
+        final int[] cumulative = new int[LoadOperation.values().length];
+
+        Phase(String line){
+            String[] parts = line.trim().split("\\s+");
+            if(parts.length < 3){
+                throw new IllegalArgumentException("A phase needs a name, seconds and weights: " + line);
+            }
+            name = parts[0];
+            seconds = Integer.parseInt(parts[1]);
+            int[] weights = new int[cumulative.length];
+            for (int i = 2; i < parts.length; i++) {
+                String[] weight = parts[i].split("=");
+                weights[LoadOperation.valueOf(weight[0]).ordinal()] = Integer.parseInt(weight[1]);
+            }
+            int total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+            if(total <= 0){
+                throw new IllegalArgumentException("A phase needs at least one positive weight: " + line);
+            }
+        }
+
+        LoadOperation pick(SplittableRandom random){
+            int ticket = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if(ticket < cumulative[i]) return LoadOperation.values()[i];
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    private final Platform platform;
+    private final Course[] courses;
+    /** popularity[i] is the chance of picking one of the courses 0..i, a Zipf curve. */
+    private final double[] popularity;
+    private final Student[] students;
+    private final AtomicInteger nextUserId;
+
+    private LoadGenerator(Platform platform, Course[] courses, Student[] students){
+        this.platform = platform;
+        this.courses = courses;
+        this.students = students;
+        this.nextUserId = new AtomicInteger(FIRST_ID + courses.length + students.length);
+        this.popularity = new double[courses.length];
+        double total = 0;
+        for (int i = 0; i < courses.length; i++) {
+            total += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            popularity[i] = total;
+        }
+        for (int i = 0; i < courses.length; i++) {
+            popularity[i] /= total;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String scenario = "mixed";
+        int threads = 4;
+        int users = 100_000;
+        int courseCount = 2_000;
+        int seconds = 0;
+        boolean offHeap = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]){
+                case "--scenario": scenario = args[i + 1]; break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--users": users = Integer.parseInt(args[i + 1]); break;
+                case "--courses": courseCount = Integer.parseInt(args[i + 1]); break;
+                case "--seconds": seconds = Integer.parseInt(args[i + 1]); break;
+                case "--store": offHeap = args[i + 1].equals("offheap"); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        List<Phase> phases = readScenario(scenario);
+
+        PrintStream report = System.out;
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(discard);
+        ReceiptWriter.setDefault(new ReceiptWriter(discard, 1024, 64, OverflowPolicy.DROP_NEWEST));
+
+        long started = System.nanoTime();
+        LoadGenerator generator = generate(users, courseCount, offHeap, new SplittableRandom(42));
+        report.printf("generated %,d students / %,d courses in %d ms, scenario %s, %d threads, %s store%n", users,
+                courseCount, (System.nanoTime() - started) / 1_000_000, scenario, threads, offHeap ? "off-heap" : "heap");
+
+        for(Phase phase : phases){
+            generator.runPhase(phase, threads, seconds > 0 ? seconds : phase.seconds, report);
+        }
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static List<Phase> readScenario(String scenario) throws IOException {
+        String text = SCENARIOS.get(scenario);
+        if(text == null){
+            text = Files.readString(Path.of(scenario));
+        }
+        ArrayList<Phase> phases = new ArrayList<>();
+        for(String line : text.split("\n")){
+            if(line.isBlank() || line.trim().startsWith("#")) continue;
+            phases.add(new Phase(line));
+        }
+        return phases;
+    }
+
+    //Builds the courses, the students and their first enrollments and grades (off-heap students only get a row)
+    private static LoadGenerator generate(int users, int courseCount, boolean offHeap, SplittableRandom random){
+        Platform platform = Platform.create();
+        CourseLevel[] levels = CourseLevel.values();
+        Course[] courses = new Course[courseCount];
+        for (int i = 0; i < courseCount; i++) {
+            String title = TOPICS[random.nextInt(TOPICS.length)] + " " + KINDS[random.nextInt(KINDS.length)] + " " + i;
+            //Capacities spread log-uniformly from 20 to 1000 seats
+            int capacity = (int) Math.round(20 * Math.exp(random.nextDouble() * Math.log(50)));
+            Course course = new Course(FIRST_ID + i, capacity, title, Math.round(random.nextDouble() * 20000) / 100.0,
+                    levels[random.nextInt(levels.length)]);
+            ArrayList<Module> modules = new ArrayList<>();
+            int moduleCount = 1 + geometric(random, 0.25, 11);
+            for (int m = 0; m < moduleCount; m++) {
+                Module module = new Module(TOPICS[random.nextInt(TOPICS.length)] + " part " + (m + 1));
+                int lessonCount = 2 + random.nextInt(9);
+                for (int l = 0; l < lessonCount; l++) {
+                    //Log-normal lesson lengths around 15 minutes
+                    int minutes = (int) Math.max(1, Math.round(Math.exp(Math.log(15) + 0.5 * random.nextGaussian())));
+                    module.addLesson(new Lesson("Lesson " + (l + 1), minutes));
+                }
+                modules.add(module);
+            }
+            course.setModules(modules);
+            platform.addCourse(course);
+            courses[i] = course;
+        }
+
+        LoadGenerator generator = new LoadGenerator(platform, courses, new Student[users]);
+        if(offHeap){
+            StudentStore store = new StudentStore(users);
+            for (int i = 0; i < users; i++) {
+                int id = FIRST_ID + courseCount + i;
+                store.add(id, randomName(random), "user" + id + "@load.com");
+            }
+            platform.setLazyLoader(store.loaderFor(platform));
+            return generator;
+        }
+        for (int i = 0; i < users; i++) {
+            int id = FIRST_ID + courseCount + i;
+            Student student = new Student(id, randomName(random), "user" + id + "@load.com", UserRole.STUDENT);
+            int enrollments = random.nextInt(6);
+            for (int j = 0; j < enrollments; j++) {
+                Course course = generator.popularCourse(random);
+                if(course.getEnrolledCount() < course.getCapacity() && course.restoreEnrollment(student)){
+                    student.addCourseEnrollment(course);
+                    double grade = Math.min(100, Math.max(0, 70 + 12 * random.nextGaussian()));
+                    student.restoreGrade(course.getCourseID(), Math.round(grade));
+                }
+            }
+            platform.addUser(student);
+            generator.students[i] = student;
+        }
+        return generator;
+    }
+
+    //Runs one phase from every thread until its time is up, then prints its report
+    private void runPhase(Phase phase, int threads, int seconds, PrintStream report) throws InterruptedException {
+        LoadOperation[] operations = LoadOperation.values();
+        LatencyHistogram[] latencies = new LatencyHistogram[operations.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        AtomicLongArray rejected = new AtomicLongArray(operations.length);
+        CountDownLatch start = new CountDownLatch(1);
+        long durationNanos = seconds * 1_000_000_000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int slice = t;
+            workers[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(31L * slice + phase.name.hashCode());
+                int[] mine = new int[(students.length - slice + threads - 1) / threads];
+                for (int i = 0; i < mine.length; i++) {
+                    mine[i] = slice + i * threads;
+                }
+                try {
+                    start.await();
+                } catch (InterruptedException e){
+                    return;
+                }
+                long deadline = System.nanoTime() + durationNanos;
+                long now;
+                while ((now = System.nanoTime()) < deadline){
+                    LoadOperation operation = phase.pick(random);
+                    boolean accepted = execute(operation, mine, random);
+                    latencies[operation.ordinal()].record(System.nanoTime() - now);
+                    if(!accepted){
+                        rejected.incrementAndGet(operation.ordinal());
+                    }
+                }
+            }, "load-" + t);
+            workers[t].start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for(Thread worker : workers){
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        long total = 0;
+        for(LatencyHistogram latency : latencies){
+            total += latency.getCount();
+        }
+        report.printf("%nphase %s: %.1f s, %,d ops, %,.0f ops/s%n", phase.name, elapsed, total, total / elapsed);
+        report.printf("%-15s %10s %10s %9s %9s %9s %9s %9s %9s%n", "operation", "ops", "ops/s", "rejected",
+                "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for(LoadOperation operation : operations){
+            LatencyHistogram latency = latencies[operation.ordinal()];
+            if(latency.getCount() == 0) continue;
+            report.printf("%-15s %,10d %,10.0f %,9d %9.1f %9.1f %9.1f %9.1f %9.1f%n", operation, latency.getCount(),
+                    latency.getCount() / elapsed, rejected.get(operation.ordinal()),
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(90) / 1e3,
+                    latency.getValueAtPercentile(99) / 1e3, latency.getValueAtPercentile(99.9) / 1e3,
+                    latency.getMax() / 1e3);
+        }
+    }
+
+    //Sends one request, returns false if the platform turned it down
+    private boolean execute(LoadOperation operation, int[] mine, SplittableRandom random){
+        Student student = student(mine[random.nextInt(mine.length)]);
+        switch (operation){
+            case REGISTER: {
+                int id = nextUserId.getAndIncrement();
+                platform.addUser(new Student(id, randomName(random), "user" + id + "@load.com", UserRole.STUDENT));
+                return true;
+            }
+            case ENROLL: {
+                Course course = popularCourse(random);
+                try {
+                    course.enroll(student);
+                    student.addCourseEnrollment(course);
+                    return true;
+                } catch (AlreadyEnrolledException | CourseFullException e){
+                    return false;
+                }
+            }
+            case DROP: {
+                Course course = anyCourseOf(student, random);
+                if(course == null) return false;
+                try {
+                    course.drop(student);
+                    student.removeCourseEnrollment(course);
+                    return true;
+                } catch (UserNotFoundException e){
+                    return false;
+                }
+            }
+            case RATE: {
+                Course course = anyCourseOf(student, random);
+                return course != null && student.rateCourse(course, 1 + random.nextInt(5));
+            }
+            case GRADE: {
+                Course course = anyCourseOf(student, random);
+                return course != null && student.modifyGrade(course, (double) (random.nextInt(11) - 5));
+            }
+            case SEARCH_USERS: {
+                String query = random.nextInt(4) == 0 ? typo(randomName(random), random)
+                        : FIRST_NAMES[random.nextInt(FIRST_NAMES.length)].substring(0, 3);
+                List<UserSearchEngine.Result> found = platform.getSearchEngine().search(query, null, MAX_RESULTS, 0);
+                return !found.isEmpty();
+            }
+            case SEARCH_COURSES: {
+                String topic = TOPICS[random.nextInt(TOPICS.length)].toLowerCase();
+                String query = random.nextBoolean() ? topic : topic.substring(0, Math.min(topic.length(), 4));
+                List<CourseSearchIndex.Result> found = platform.searchCourses(query, CourseSearchIndex.Filter.ANY, MAX_RESULTS);
+                return !found.isEmpty();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    //An off-heap student is looked up (and so built) the first time, only the thread owning the slice writes the slot
+    private Student student(int index){
+        Student student = students[index];
+        if(student == null){
+            student = (Student) platform.findUserById(FIRST_ID + courses.length + index);
+            students[index] = student;
+        }
+        return student;
+    }
+
+    private Course popularCourse(SplittableRandom random){
+        int index = Arrays.binarySearch(popularity, random.nextDouble());
+        if(index < 0) index = -index - 1;
+        return courses[Math.min(index, courses.length - 1)];
+    }
+
+    private static Course anyCourseOf(Student student, SplittableRandom random){
+        List<Course> enrolled = student.getEnrolledCourses();
+        return enrolled.isEmpty() ? null : enrolled.get(random.nextInt(enrolled.size()));
+    }
+
+    private static String randomName(SplittableRandom random){
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    //Swaps two neighbouring letters, the most common typo
+    private static String typo(String name, SplittableRandom random){
+        char[] letters = name.toLowerCase().toCharArray();
+        int at = random.nextInt(letters.length - 1);
+        char swapped = letters[at];
+        letters[at] = letters[at + 1];
+        letters[at + 1] = swapped;
+        return new String(letters);
+    }
+
+    //The number of failures before the first success, capped
+    private static int geometric(SplittableRandom random, double successChance, int max){
+        int failures = 0;
+        while (failures < max && random.nextDouble() >= successChance){
+            failures++;
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,116 @@
+package com.educore.bench;
+
+import com.educore.enums.UserRole;
+import com.educore.model.Student;
+import com.educore.service.StudentStore;
+
+import java.io.*;
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compares the memory a million students cost as {@link Student} objects on the heap
+ * and as rows of an off-heap {@link StudentStore}.
+ * Each student has a name, an email and {@code GRADES_PER_STUDENT} grades. Every mode runs in a fresh JVM,
+ * so neither sees the garbage of the other:
+ * heap:    a list of Student objects, the footprint is the heap in use after a full GC.
+ * offheap: a StudentStore, the footprint is the heap in use after a full GC plus the direct memory of the store.
+ * Both modes then compute the average GPA of every student, to show what a full scan costs.
+ * Usage: {@code java -Xmx3g com.educore.bench.StudentMemoryBenchmark [students]} (default: 1,000,000 students).
+ */
+
+public class StudentMemoryBenchmark {
+    private static final int GRADES_PER_STUDENT = 3;
+    private static final int COURSES = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && (args[0].equals("heap") || args[0].equals("offheap"))){
+            measure(args[0], Integer.parseInt(args[1]));
+            return;
+        }
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for(String mode : new String[]{"heap", "offheap"}){
+            runChild(mode, students);
+        }
+    }
+
+    //Builds the students in this (fresh) JVM and prints the footprint and the scan time
+    private static void measure(String mode, int students){
+        long heapBefore = usedHeap();
+        long started = System.nanoTime();
+        Random random = new Random(42);
+
+        List<Student> onHeap = null;
+        StudentStore store = null;
+        if(mode.equals("heap")){
+            onHeap = new ArrayList<>(students);
+            for (int i = 0; i < students; i++) {
+                Student student = new Student(i, "Student " + i, "student" + i + "@bench.com", UserRole.STUDENT);
+                for (int j = 0; j < GRADES_PER_STUDENT; j++) {
+                    student.restoreGrade(random.nextInt(COURSES), random.nextInt(101));
+                }
+                onHeap.add(student);
+            }
+        }
+        else{
+            store = new StudentStore(students);
+            StudentStore.View view = store.newView();
+            for (int i = 0; i < students; i++) {
+                store.add(i, "Student " + i, "student" + i + "@bench.com");
+                view.moveTo(i);
+                for (int j = 0; j < GRADES_PER_STUDENT; j++) {
+                    view.putGrade(random.nextInt(COURSES), random.nextInt(101));
+                }
+            }
+        }
+        long built = System.nanoTime();
+
+        double[] gpaSum = new double[1];
+        if(onHeap != null){
+            for(Student student : onHeap){
+                gpaSum[0] += student.calculateGPA();
+            }
+        }
+        else{
+            store.forEach(view -> gpaSum[0] += view.calculateGPA());
+        }
+        long scanned = System.nanoTime();
+
+        long heapBytes = usedHeap() - heapBefore;
+        long offHeapBytes = store == null ? 0 : store.offHeapBytes();
+        System.out.printf("%-7s build %6d ms, GPA scan %5d ms, heap %6d MB + off-heap %5d MB = %5d bytes/student (avg GPA %.2f)%n",
+                mode, (built - started) / 1_000_000, (scanned - built) / 1_000_000,
+                heapBytes / (1024 * 1024), offHeapBytes / (1024 * 1024),
+                (heapBytes + offHeapBytes) / students, gpaSum[0] / students);
+        //Keeps the data reachable until it is measured
+        Reference.reachabilityFence(onHeap);
+        Reference.reachabilityFence(store);
+    }
+
+    //The heap in use after a full GC
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void runChild(String mode, int students) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        long maxHeapMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        Process process = new ProcessBuilder(java, "-Xmx" + maxHeapMb + "m",
+                "-cp", System.getProperty("java.class.path"),
+                StudentMemoryBenchmark.class.getName(), mode, String.valueOf(students))
+                .redirectErrorStream(true)
+                .start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))){
+            String line;
+            while ((line = out.readLine()) != null){
+                System.out.println(line);
+            }
+        }
+        process.waitFor();
+    }
+}
@@ -0,0 +1,60 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+
+/**
+ * The typed result of a {@link com.educore.interfaces.Command}.
+ * Key Features:
+ * A {@link CommandStatus} to branch on, and a message ready to show to the user.
+ * The value (like the new grade or the created course) is only set when the status is OK.
+ *
+ * @param <T> The type of the value.
+ */
+
+public final class CommandResult<T> {
+    private final CommandStatus status;
+    private final T value;
+    private final String message;
+
+    private CommandResult(CommandStatus status, T value, String message){
+        this.status = status;
+        this.value = value;
+        this.message = message;
+    }
+
+    /**
+     * @param value   The value of the command.
+     * @param message The message to show to the user.
+     * @return A successful result.
+     */
+    public static <T> CommandResult<T> ok(T value, String message){
+        return new CommandResult<>(CommandStatus.OK, value, message);
+    }
+
+    /**
+     * @param status  Why the command failed, anything but OK.
+     * @param message The message to show to the user.
+     * @return A failed result, without a value.
+     */
+    public static <T> CommandResult<T> failed(CommandStatus status, String message){
+        if(status == CommandStatus.OK) throw new IllegalArgumentException("A failed result needs a failure status.");
+        return new CommandResult<>(status, null, message);
+    }
+
+    /** @return true if the command did what it was asked. */
+    public boolean isOk(){ return status == CommandStatus.OK; }
+
+    /** @return The outcome of the command. */
+    public CommandStatus getStatus(){ return status; }
+
+    /** @return The value of a successful command, null if it failed. */
+    public T getValue(){ return value; }
+
+    /** @return The message to show to the user. */
+    public String getMessage(){ return message; }
+
+    @Override
+    public String toString(){
+        return status + ": " + message;
+    }
+}
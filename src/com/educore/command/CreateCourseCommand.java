@@ -0,0 +1,74 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.enums.CourseLevel;
+import com.educore.interfaces.Command;
+import com.educore.model.Course;
+import com.educore.model.Instructor;
+import com.educore.service.Platform;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Creates a course, adds it to the platform and makes the instructor its teacher.
+ * The id is claimed atomically ({@link Platform#addCourseIfAbsent(Course)}), so two clients can't create the same course.
+ * Fails with NOT_FOUND, INVALID (negative id, capacity or price, no title or level) or ALREADY_EXISTS.
+ */
+
+public final class CreateCourseCommand implements Command<Course> {
+    private final int instructorId;
+    private final int courseId;
+    private final String title;
+    private final int capacity;
+    private final double price;
+    private final CourseLevel level;
+
+    /**
+     * @param instructorId The id of the instructor that will teach the course.
+     * @param courseId     The UNIQUE id of the new course.
+     * @param title        The title.
+     * @param capacity     The max number of students.
+     * @param price        The cost of enrollment, 0 for a free course.
+     * @param level        The difficulty level.
+     */
+    public CreateCourseCommand(int instructorId, int courseId, String title, int capacity, double price, CourseLevel level){
+        this.instructorId = instructorId;
+        this.courseId = courseId;
+        this.title = title;
+        this.capacity = capacity;
+        this.price = price;
+        this.level = level;
+    }
+
+    @Override
+    public CommandResult<Course> execute(Platform platform){
+        Instructor instructor = Lookup.instructor(platform, instructorId);
+        if(instructor == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no instructor with the id " + instructorId + ".");
+
+        if(title == null || title.isBlank()) return CommandResult.failed(CommandStatus.INVALID, "Error: The course must have a title.");
+        if(level == null) return CommandResult.failed(CommandStatus.INVALID, "Error: The course must have a level.");
+        if(courseId < 0) return CommandResult.failed(CommandStatus.INVALID, "Error: The id number must be positive.");
+        if(capacity < 0) return CommandResult.failed(CommandStatus.INVALID, "Error: The capacity must be positive.");
+        if(!(price >= 0)) return CommandResult.failed(CommandStatus.INVALID, "Error: The price must be positive.");
+
+        Course course = new Course(courseId, capacity, title, price, level);
+        boolean added;
+        try {
+            added = platform.addCourseIfAbsent(course);
+        } catch (UncheckedIOException e){
+            //The course is on the platform even though it was not saved, it still gets its instructor
+            instructor.addTeachingCourse(course);
+            throw e;
+        }
+        if(!added){
+            return CommandResult.failed(CommandStatus.ALREADY_EXISTS, "Error: The id " + courseId + " is already used.");
+        }
+        instructor.addTeachingCourse(course);
+        return CommandResult.ok(course, "Created (" + course + ").");
+    }
+
+    @Override
+    public String toString(){
+        return "CreateCourseCommand(instructor " + instructorId + ", course " + courseId + ", " + title + ")";
+    }
+}
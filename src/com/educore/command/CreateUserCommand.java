@@ -0,0 +1,68 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.enums.UserRole;
+import com.educore.interfaces.Command;
+import com.educore.model.Admin;
+import com.educore.model.Instructor;
+import com.educore.model.Student;
+import com.educore.model.User;
+import com.educore.service.Platform;
+
+/**
+ * Creates a user of any role and registers it with the platform.
+ * The id and email are claimed atomically ({@link Platform#addUserIfAbsent(User)}), the email "none" may be shared.
+ * Fails with INVALID (negative id, no name or role) or ALREADY_EXISTS.
+ */
+
+public final class CreateUserCommand implements Command<User> {
+    /** The email given to users that didn't provide one, it may be used by several users. */
+    public static final String NO_EMAIL = "none";
+
+    private final int userId;
+    private final String name;
+    private final String email;
+    private final UserRole role;
+
+    /**
+     * @param userId The UNIQUE id of the new user.
+     * @param name   The full name.
+     * @param email  The email address, null or {@link #NO_EMAIL} for none.
+     * @param role   The role, which decides the kind of user created.
+     */
+    public CreateUserCommand(int userId, String name, String email, UserRole role){
+        this.userId = userId;
+        this.name = name;
+        this.email = email == null ? NO_EMAIL : email;
+        this.role = role;
+    }
+
+    @Override
+    public CommandResult<User> execute(Platform platform){
+        if(name == null || name.isBlank()) return CommandResult.failed(CommandStatus.INVALID, "Error: The user must have a name.");
+        if(role == null) return CommandResult.failed(CommandStatus.INVALID, "Error: The user must have a role.");
+        if(userId < 0) return CommandResult.failed(CommandStatus.INVALID, "Error: The id number must be positive.");
+
+        User user;
+        switch (role){
+            case STUDENT:
+                user = new Student(userId, name, email, role);
+                break;
+            case INSTRUCTOR:
+                user = new Instructor(userId, name, email, role);
+                break;
+            default:
+                user = new Admin(userId, name, email, role, platform);
+                break;
+        }
+        if(!platform.addUserIfAbsent(user)){
+            return CommandResult.failed(CommandStatus.ALREADY_EXISTS, "Error: The id " + userId + " or the email " + email + " is already used.");
+        }
+        return CommandResult.ok(user, user + " is added successfully.");
+    }
+
+    @Override
+    public String toString(){
+        return "CreateUserCommand(" + userId + ", " + role + ")";
+    }
+}
@@ -0,0 +1,50 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.interfaces.Command;
+import com.educore.model.Course;
+import com.educore.model.Instructor;
+import com.educore.service.CascadeReport;
+import com.educore.service.Platform;
+
+/**
+ * Removes a course taught by an instructor, together with its enrollments, grades and ratings
+ * ({@link Platform#deleteCourse(Course)}). The value of the result says what else was removed.
+ * Fails with NOT_FOUND or NOT_ALLOWED (the instructor doesn't teach the course).
+ */
+
+public final class DeleteCourseCommand implements Command<CascadeReport> {
+    private final int instructorId;
+    private final int courseId;
+
+    /**
+     * @param instructorId The id of the instructor removing the course.
+     * @param courseId     The id of the course.
+     */
+    public DeleteCourseCommand(int instructorId, int courseId){
+        this.instructorId = instructorId;
+        this.courseId = courseId;
+    }
+
+    @Override
+    public CommandResult<CascadeReport> execute(Platform platform){
+        Instructor instructor = Lookup.instructor(platform, instructorId);
+        if(instructor == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no instructor with the id " + instructorId + ".");
+        Course course = platform.findCourseById(courseId);
+        if(course == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+        if(!instructor.getTeachingCourses().contains(course)){
+            return CommandResult.failed(CommandStatus.NOT_ALLOWED, instructor.getName() + " does not teach " + course.getTitle() + ".");
+        }
+
+        CascadeReport report = platform.deleteCourse(course);
+        if(!report.isRemoved()){
+            return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+        }
+        return CommandResult.ok(report, "Removed (" + course + ") Successfully.");
+    }
+
+    @Override
+    public String toString(){
+        return "DeleteCourseCommand(instructor " + instructorId + ", course " + courseId + ")";
+    }
+}
@@ -0,0 +1,39 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.interfaces.Command;
+import com.educore.model.User;
+import com.educore.service.CascadeReport;
+import com.educore.service.Platform;
+
+/**
+ * Removes a user together with their enrollments, grades, ratings and teaching assignments ({@link Platform#deleteUser(User)}).
+ * The value of the result says what else was removed. Fails with NOT_FOUND.
+ */
+
+public final class DeleteUserCommand implements Command<CascadeReport> {
+    private final int userId;
+
+    /** @param userId The id of the user to remove. */
+    public DeleteUserCommand(int userId){
+        this.userId = userId;
+    }
+
+    @Override
+    public CommandResult<CascadeReport> execute(Platform platform){
+        User user = platform.findUserById(userId);
+        if(user == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no user with the id " + userId + ".");
+
+        CascadeReport report = platform.deleteUser(user);
+        if(!report.isRemoved()){
+            //Removed by someone else between the lookup and the delete
+            return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no user with the id " + userId + ".");
+        }
+        return CommandResult.ok(report, user + " is removed successfully.");
+    }
+
+    @Override
+    public String toString(){
+        return "DeleteUserCommand(" + userId + ")";
+    }
+}
@@ -0,0 +1,59 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.exception.UserNotFoundException;
+import com.educore.interfaces.Command;
+import com.educore.model.Course;
+import com.educore.model.Student;
+import com.educore.service.Platform;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Drops a student from a course: frees the seat with {@link Course#drop(Student)} and deletes the student's grade in it.
+ * Fails with NOT_FOUND or NOT_ENROLLED.
+ */
+
+public final class DropCommand implements Command<Course> {
+    private final int studentId;
+    private final int courseId;
+
+    /**
+     * @param studentId The id of the student dropping the course.
+     * @param courseId  The id of the course.
+     */
+    public DropCommand(int studentId, int courseId){
+        this.studentId = studentId;
+        this.courseId = courseId;
+    }
+
+    @Override
+    public CommandResult<Course> execute(Platform platform){
+        Student student = Lookup.student(platform, studentId);
+        if(student == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+        Course course = platform.findCourseById(courseId);
+        if(course == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+
+        synchronized (student){
+            if(platform.findUserById(studentId) != student){
+                return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+            }
+            try {
+                course.drop(student);
+            } catch (UserNotFoundException e){
+                return CommandResult.failed(CommandStatus.NOT_ENROLLED, "The student is not enrolled in " + course.getTitle() + ".");
+            } catch (UncheckedIOException e){
+                //The seat is freed in memory even though it was not saved, the grade still goes with it
+                student.removeCourseEnrollment(course);
+                throw e;
+            }
+            student.removeCourseEnrollment(course);
+        }
+        return CommandResult.ok(course, "Successfully dropped " + course.getTitle());
+    }
+
+    @Override
+    public String toString(){
+        return "DropCommand(student " + studentId + ", course " + courseId + ")";
+    }
+}
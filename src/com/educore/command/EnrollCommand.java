@@ -0,0 +1,72 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.exception.AlreadyEnrolledException;
+import com.educore.exception.CourseFullException;
+import com.educore.interfaces.Command;
+import com.educore.model.Course;
+import com.educore.model.Student;
+import com.educore.service.Platform;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Enrolls a student in a course: takes a seat with {@link Course#enroll(Student)} and starts the student's grade at 0.
+ * Fails with NOT_FOUND, ALREADY_ENROLLED or COURSE_FULL.
+ */
+
+public final class EnrollCommand implements Command<Course> {
+    private final int studentId;
+    private final int courseId;
+
+    /**
+     * @param studentId The id of the student enrolling.
+     * @param courseId  The id of the course.
+     */
+    public EnrollCommand(int studentId, int courseId){
+        this.studentId = studentId;
+        this.courseId = courseId;
+    }
+
+    @Override
+    public CommandResult<Course> execute(Platform platform){
+        Student student = Lookup.student(platform, studentId);
+        if(student == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+        Course course = platform.findCourseById(courseId);
+        if(course == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+
+        //The student's grades are only changed while holding the student, see CommandService
+        synchronized (student){
+            if(platform.findUserById(studentId) != student){
+                return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+            }
+            //Shared with other enrollments, Platform.deleteCourse waits for it
+            course.getDeleteLock().readLock().lock();
+            try {
+                if(platform.findCourseById(courseId) != course){
+                    return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+                }
+                try {
+                    course.enroll(student);
+                } catch (UncheckedIOException e){
+                    //The seat is taken in memory even though it was not saved, the grade still follows it
+                    student.addCourseEnrollment(course);
+                    throw e;
+                }
+                student.addCourseEnrollment(course);
+            } catch (AlreadyEnrolledException e){
+                return CommandResult.failed(CommandStatus.ALREADY_ENROLLED, e.getMessage());
+            } catch (CourseFullException e){
+                return CommandResult.failed(CommandStatus.COURSE_FULL, e.getMessage());
+            } finally {
+                course.getDeleteLock().readLock().unlock();
+            }
+        }
+        return CommandResult.ok(course, "Successfully enrolled in: " + course);
+    }
+
+    @Override
+    public String toString(){
+        return "EnrollCommand(student " + studentId + ", course " + courseId + ")";
+    }
+}
@@ -0,0 +1,73 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.interfaces.Command;
+import com.educore.model.Course;
+import com.educore.model.Instructor;
+import com.educore.model.Student;
+import com.educore.service.Platform;
+
+/**
+ * Changes a student's grade in a course, on behalf of an instructor teaching it ({@link Student#modifyGrade(Course, Double)}).
+ * The value of the result is the new grade.
+ * Fails with NOT_FOUND, NOT_ALLOWED (the instructor doesn't teach the course), NOT_ENROLLED,
+ * or INVALID (a change of 0, or a grade that would leave 0 to 100).
+ */
+
+public final class GradeCommand implements Command<Double> {
+    private final int instructorId;
+    private final int courseId;
+    private final int studentId;
+    private final double change;
+
+    /**
+     * @param instructorId The id of the instructor giving the grade.
+     * @param courseId     The id of the course.
+     * @param studentId    The id of the student graded.
+     * @param change       The amount added to (or, if negative, subtracted from) the grade.
+     */
+    public GradeCommand(int instructorId, int courseId, int studentId, double change){
+        this.instructorId = instructorId;
+        this.courseId = courseId;
+        this.studentId = studentId;
+        this.change = change;
+    }
+
+    @Override
+    public CommandResult<Double> execute(Platform platform){
+        Instructor instructor = Lookup.instructor(platform, instructorId);
+        if(instructor == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no instructor with the id " + instructorId + ".");
+        Course course = platform.findCourseById(courseId);
+        if(course == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+        Student student = Lookup.student(platform, studentId);
+        if(student == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+
+        if(!instructor.getTeachingCourses().contains(course)){
+            return CommandResult.failed(CommandStatus.NOT_ALLOWED, instructor.getName() + " does not teach " + course.getTitle() + ".");
+        }
+        if(change == 0 || Double.isNaN(change)){
+            return CommandResult.failed(CommandStatus.INVALID, "Error: You must enter a grade change other than 0.");
+        }
+
+        double grade;
+        synchronized (student){
+            //Checked while holding the student, so a delete of the student or course can't remove the grade in between
+            if(platform.findUserById(studentId) != student){
+                return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+            }
+            if(!course.isEnrolled(student)){
+                return CommandResult.failed(CommandStatus.NOT_ENROLLED, student.getName() + " is not enrolled in " + course.getTitle() + ".");
+            }
+            if(!student.modifyGrade(course, change)){
+                return CommandResult.failed(CommandStatus.INVALID, "Error: The student's grade must stay between 0 and 100.");
+            }
+            grade = student.getGrade(course);
+        }
+        return CommandResult.ok(grade, String.format("%s's grade in %s is now %.1f.", student.getName(), course.getTitle(), grade));
+    }
+
+    @Override
+    public String toString(){
+        return "GradeCommand(instructor " + instructorId + ", course " + courseId + ", student " + studentId + ", " + change + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package com.educore.command;
+
+import com.educore.model.Instructor;
+import com.educore.model.Student;
+import com.educore.model.User;
+import com.educore.service.Platform;
+
+//The id lookups shared by the commands, null when the id is unknown or has another role
+final class Lookup {
+    private Lookup(){}
+
+    static Student student(Platform platform, int userId){
+        User user = platform.findUserById(userId);
+        return user instanceof Student ? (Student) user : null;
+    }
+
+    static Instructor instructor(Platform platform, int userId){
+        User user = platform.findUserById(userId);
+        return user instanceof Instructor ? (Instructor) user : null;
+    }
+}
@@ -0,0 +1,64 @@
+package com.educore.command;
+
+import com.educore.enums.CommandStatus;
+import com.educore.interfaces.Command;
+import com.educore.model.Course;
+import com.educore.model.Student;
+import com.educore.service.Platform;
+import com.educore.util.RatingAggregate;
+
+/**
+ * Adds a student's rating to one of their courses ({@link Student#rateCourse(Course, double)}), once per course.
+ * The value of the result is the new average rating of the course.
+ * Fails with NOT_FOUND, NOT_ENROLLED, INVALID (outside 1 to 5) or ALREADY_RATED.
+ */
+
+public final class RateCommand implements Command<Double> {
+    private final int studentId;
+    private final int courseId;
+    private final double rating;
+
+    /**
+     * @param studentId The id of the student rating.
+     * @param courseId  The id of the course.
+     * @param rating    The rating, from 1 to 5.
+     */
+    public RateCommand(int studentId, int courseId, double rating){
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.rating = rating;
+    }
+
+    @Override
+    public CommandResult<Double> execute(Platform platform){
+        Student student = Lookup.student(platform, studentId);
+        if(student == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+        Course course = platform.findCourseById(courseId);
+        if(course == null) return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no course with the id " + courseId + ".");
+
+        if(!(rating >= RatingAggregate.MIN_STARS && rating <= RatingAggregate.MAX_STARS)){
+            return CommandResult.failed(CommandStatus.INVALID, "Error: Rating must be 1-5.");
+        }
+        synchronized (student){
+            //Checked while holding the student, so a delete of the student or course can't forget the rating in between
+            if(platform.findUserById(studentId) != student){
+                return CommandResult.failed(CommandStatus.NOT_FOUND, "There is no student with the id " + studentId + ".");
+            }
+            if(!course.isEnrolled(student)){
+                return CommandResult.failed(CommandStatus.NOT_ENROLLED, "Error: Only enrolled students can rate " + course.getTitle() + ".");
+            }
+            Double given = student.getRatedCourses().get(course);
+            if(given != null){
+                return CommandResult.failed(CommandStatus.ALREADY_RATED, "You already gave this course a rating(" + given + ").");
+            }
+            student.rateCourse(course, rating);
+        }
+        double average = course.getAverageRating();
+        return CommandResult.ok(average, String.format("Rated %.1f | New course average rating: %.1f", rating, average));
+    }
+
+    @Override
+    public String toString(){
+        return "RateCommand(student " + studentId + ", course " + courseId + ", " + rating + ")";
+    }
+}
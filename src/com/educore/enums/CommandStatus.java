@@ -0,0 +1,29 @@
+package com.educore.enums;
+
+/**
+ * The outcome of a command run by the {@code CommandService}, so callers can react without parsing messages.
+ * OK: the command did what it was asked.
+ * NOT_FOUND: a user or course id given to the command is not registered (or has the wrong role).
+ * INVALID: a value given to the command is out of range (e.g. a rating of 7, a negative capacity).
+ * ALREADY_EXISTS: the id (or email) of a new user or course is already used.
+ * ALREADY_ENROLLED: the student is already enrolled in the course.
+ * COURSE_FULL: there are no seats left in the course.
+ * NOT_ENROLLED: the student is not enrolled in the course.
+ * ALREADY_RATED: the student already rated the course.
+ * NOT_ALLOWED: the user may not do this (e.g. grading in a course they don't teach).
+ * NOT_SAVED: the change was made in memory but the platform's store could not save it to disk.
+ */
+
+public enum CommandStatus {
+    OK,
+    NOT_FOUND,
+    INVALID,
+    ALREADY_EXISTS,
+    ALREADY_ENROLLED,
+    COURSE_FULL,
+    NOT_ENROLLED,
+    ALREADY_RATED,
+    NOT_ALLOWED,
+    NOT_SAVED
+    // how to use example: if(result.getStatus() == CommandStatus.COURSE_FULL) ...
+}
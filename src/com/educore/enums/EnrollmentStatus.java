@@ -0,0 +1,15 @@
+package com.educore.enums;
+
+/**
+ * The outcome of enrolling one student, used by batch enrollment instead of throwing per student.
+ * ENROLLED: the student took a seat.
+ * ALREADY_ENROLLED: the student was already in the course (or listed twice in the same batch).
+ * FULL: there were no seats left for the student.
+ */
+
+public enum EnrollmentStatus {
+    ENROLLED,
+    ALREADY_ENROLLED,
+    FULL
+    // how to use example: if(results[i] == EnrollmentStatus.FULL) ...
+}
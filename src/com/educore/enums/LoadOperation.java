@@ -0,0 +1,23 @@
+package com.educore.enums;
+
+/**
+ * The kinds of requests the load generator sends to the platform.
+ * REGISTER: a new student signs up.
+ * ENROLL: a student enrolls in a course (popular courses are picked more often).
+ * DROP: a student drops one of their courses.
+ * RATE: a student rates one of their courses.
+ * GRADE: a student's grade in one of their courses changes.
+ * SEARCH_USERS: a user search by name, sometimes with a typo.
+ * SEARCH_COURSES: a course search by a word of the titles.
+ */
+
+public enum LoadOperation {
+    REGISTER,
+    ENROLL,
+    DROP,
+    RATE,
+    GRADE,
+    SEARCH_USERS,
+    SEARCH_COURSES
+    // how to use example: histograms[LoadOperation.ENROLL.ordinal()].record(System.nanoTime() - started);
+}
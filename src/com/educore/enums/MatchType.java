@@ -0,0 +1,15 @@
+package com.educore.enums;
+
+/**
+ * How a user search result matched the query.
+ * ID: the query was the user's id.
+ * PREFIX: the user's name starts with the query.
+ * FUZZY: the user's name or email is close to the query, allowing for typos.
+ */
+
+public enum MatchType {
+    ID,
+    PREFIX,
+    FUZZY
+    // how to use example: if(result.getMatchType() == MatchType.FUZZY) System.out.println("Did you mean " + result.getUser().getName() + "?");
+}
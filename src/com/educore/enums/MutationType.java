@@ -0,0 +1,51 @@
+package com.educore.enums;
+
+/**
+ * The kinds of changes saved in the write-ahead log, one per {@link com.educore.interfaces.MutationListener} method.
+ * Each type has a fixed code, the code (not the position in the enum) is written to the log file,
+ * so the types can be reordered freely. A new type takes a code that was never used, a code is never reused.
+ */
+
+public enum MutationType {
+    USER_ADDED(0),
+    USER_REMOVED(1),
+    COURSE_ADDED(2),
+    COURSE_REMOVED(3),
+    TEACHING_COURSE_ADDED(4),
+    ENROLLED(5),
+    DROPPED(6),
+    GRADE_CHANGED(7),
+    RATED(8),
+    COURSE_CONTENT_CHANGED(9),
+    COURSE_LEVEL_CHANGED(10);
+    // how to use example: MutationType type = MutationType.fromCode(in.readUnsignedByte());
+
+    /** The types by code, null where no type has the code. */
+    private static final MutationType[] BY_CODE = new MutationType[256];
+
+    static {
+        for(MutationType type : values()){
+            if(BY_CODE[type.code] != null){
+                throw new ExceptionInInitializerError("The code " + type.code + " is used twice.");
+            }
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final int code;
+
+    MutationType(int code){
+        this.code = code;
+    }
+
+    /** @return The code written to the log for this type, from 0 to 255. */
+    public int getCode(){ return code; }
+
+    /**
+     * @param code A code read from the log.
+     * @return The type with this code, or null if no type has it.
+     */
+    public static MutationType fromCode(int code){
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
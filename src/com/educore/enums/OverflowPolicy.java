@@ -0,0 +1,15 @@
+package com.educore.enums;
+
+/**
+ * What a bounded queue does when it is full and a new item arrives.
+ * BLOCK: the caller waits until there is room (nothing is lost, the caller slows down).
+ * DROP_NEWEST: the new item is thrown away and the caller goes on.
+ * DROP_OLDEST: the oldest waiting item is thrown away to make room for the new one.
+ */
+
+public enum OverflowPolicy {
+    BLOCK,
+    DROP_NEWEST,
+    DROP_OLDEST
+    // how to use example: new ReceiptWriter(System.out, 1024, 64, OverflowPolicy.DROP_NEWEST);
+}
@@ -7,6 +7,8 @@ package com.educore.exception;
  */
 
 public class AlreadyEnrolledException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     //default message
     public AlreadyEnrolledException(){
         super("Already enrolled");
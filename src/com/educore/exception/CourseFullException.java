@@ -7,6 +7,8 @@ package com.educore.exception;
  */
 
 public class CourseFullException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     // default message
     public CourseFullException() {
         super("Course is full");
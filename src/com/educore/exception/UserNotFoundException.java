@@ -7,6 +7,8 @@ package com.educore.exception;
  */
 
 public class UserNotFoundException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     // default message
     public UserNotFoundException(){
         super("The user was not found.");
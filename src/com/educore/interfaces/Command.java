@@ -0,0 +1,23 @@
+package com.educore.interfaces;
+
+import com.educore.command.CommandResult;
+import com.educore.service.Platform;
+
+/**
+ * One request to change the platform, run by the {@link com.educore.service.CommandService}.
+ * Commands name users and courses by id and never read from or print to the console,
+ * so the same command can come from a dashboard, a test or many concurrent clients.
+ * Examples: EnrollCommand, GradeCommand, CreateCourseCommand, etc.
+ *
+ * @param <T> The type of the value returned when the command succeeds.
+ */
+
+public interface Command<T> {
+    /**
+     * Runs the command against a platform.
+     *
+     * @param platform The platform to change.
+     * @return The result, with the value on success or the reason of the failure otherwise.
+     */
+    CommandResult<T> execute(Platform platform);
+}
@@ -1,10 +1,13 @@
 package com.educore.interfaces;
 
 import com.educore.model.Student;
+import com.educore.enums.EnrollmentStatus;
 import com.educore.exception.AlreadyEnrolledException;
 import com.educore.exception.CourseFullException;
 import com.educore.exception.UserNotFoundException;
 
+import java.util.Collection;
+
 /**
  * An interface that represents any entity that a student can enroll in or drop from.
  * Examples: Course, Activity, Program, etc.
@@ -20,6 +23,15 @@ public interface Enrollable {
      */
     boolean enroll(Student s) throws AlreadyEnrolledException, CourseFullException;
 
+    /**
+     * Enrolls a whole group of students in one step (like a cohort import).
+     * Instead of throwing for each student that can't be enrolled, the outcome of every student is returned.
+     *
+     * @param students The students to be enrolled, in the order their results are returned.
+     * @return An array with one result per student, in the same order as the collection.
+     */
+    EnrollmentStatus[] enrollAll(Collection<Student> students);
+
     /**
      * Attempts to remove (drop) a student from this entity.
      *
@@ -0,0 +1,42 @@
+package com.educore.interfaces;
+
+import com.educore.model.Course;
+import com.educore.model.User;
+
+/**
+ * An interface for a source of saved users and courses that are only built into objects when first needed.
+ * Example: a memory-mapped snapshot file.
+ * The {@link com.educore.service.Platform} asks the loader when a lookup misses its own indexes,
+ * and asks it to load everything before handing out a whole list.
+ * Each saved user and course is built at most once, after that the platform owns it.
+ */
+
+public interface LazyLoader {
+    /**
+     * Builds the saved user with this id and adds it to the platform.
+     *
+     * @param id The id of the user.
+     * @return The user, or null if there is no such saved user. A user that was already built (e.g. by another
+     * thread since the platform's own lookup missed) is returned as the platform holds it, null if it was deleted.
+     */
+    User loadUser(int id);
+
+    /**
+     * Builds the saved user with this email (case ignored) and adds it to the platform.
+     *
+     * @param email The email of the user.
+     * @return The user, or null if there is no such saved user. An already built user is returned like in {@link #loadUser(int)}.
+     */
+    User loadUserByEmail(String email);
+
+    /**
+     * Builds the saved course with this id and adds it to the platform.
+     *
+     * @param id The id of the course.
+     * @return The course, or null if there is no such saved course. An already built course is returned like in {@link #loadUser(int)}.
+     */
+    Course loadCourse(int id);
+
+    /** Builds every saved user and course that was not built yet. */
+    void loadAll();
+}
@@ -0,0 +1,26 @@
+package com.educore.interfaces;
+
+import java.util.Map;
+
+/**
+ * The management view of the platform metrics, registered with JMX by
+ * {@link com.educore.service.MetricsRegistry#registerMBean()} under {@code com.educore:type=Metrics}.
+ * Example: open the running program in JConsole or VisualVM and read the attributes of com.educore / Metrics.
+ */
+
+public interface MetricsMXBean {
+    /** @return Every counter. Key: name, Value: count. */
+    Map<String, Long> getCounters();
+
+    /** @return The number of events recorded by every timer. Key: name, Value: count. */
+    Map<String, Long> getTimerCounts();
+
+    /** @return The 99th percentile of every timer in nanoseconds. Key: name, Value: p99. */
+    Map<String, Long> getTimerP99Nanos();
+
+    /** @return Every metric as text, one line per metric, the same text as the periodic dump. */
+    String dump();
+
+    /** Sets every counter and timer back to zero. */
+    void reset();
+}
@@ -0,0 +1,65 @@
+package com.educore.interfaces;
+
+import com.educore.model.*;
+
+/**
+ * An interface for anything that wants to be told about changes to the platform data.
+ * Examples: a write-ahead log that saves every change, an audit trail, a cache.
+ * Every method is called after the change happened and does nothing by default,
+ * so a listener only overrides the changes it cares about.
+ * Listeners are registered with {@link com.educore.service.PlatformEvents#addListener(MutationListener)}.
+ */
+
+public interface MutationListener {
+    /** @param user The user that was registered in the platform. */
+    default void userAdded(User user){}
+
+    /** @param user The user that was removed from the platform. */
+    default void userRemoved(User user){}
+
+    /** @param course The course that was added to the platform. */
+    default void courseAdded(Course course){}
+
+    /** @param course The course that was removed from the platform. */
+    default void courseRemoved(Course course){}
+
+    /** @param course The course whose title, modules or lessons changed. */
+    default void courseContentChanged(Course course){}
+
+    /** @param course The course whose difficulty level changed, it already holds the new level. */
+    default void courseLevelChanged(Course course){}
+
+    /**
+     * @param instructor The instructor.
+     * @param course     The course the instructor now teaches.
+     */
+    default void teachingCourseAdded(Instructor instructor, Course course){}
+
+    /**
+     * @param course  The course.
+     * @param student The student that took a seat in the course.
+     */
+    default void enrolled(Course course, Student student){}
+
+    /**
+     * @param course  The course.
+     * @param student The student that was dropped from the course.
+     */
+    default void dropped(Course course, Student student){}
+
+    /**
+     * @param student The student.
+     * @param course  The course the grade belongs to.
+     * @param grade   The new value of the grade (not the amount it changed by).
+     */
+    default void gradeChanged(Student student, Course course, double grade){}
+
+    /**
+     * @param course   The course that was rated.
+     * @param rater    The student that gave the rating, or null if it is not known.
+     * @param rating   The rating value.
+     * @param sequence The number the course's rating aggregate gave the rating, see
+     *                 {@link com.educore.util.RatingAggregate#add(double)}.
+     */
+    default void rated(Course course, Student rater, double rating, long sequence){}
+}
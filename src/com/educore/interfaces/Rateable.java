@@ -1,5 +1,7 @@
 package com.educore.interfaces;
 
+import com.educore.util.RatingAggregate;
+
 /**
  * An interface representing any entity that can receive ratings from users.
  * Examples: Course, Instructor, System Feature, etc.
@@ -20,4 +22,13 @@ public interface Rateable {
      * @return The average rating value as a double.
      */
     double getAverageRating();
+
+    /**
+     * Returns the running summary of all ratings submitted.
+     * It gives the count, mean, variance and the distribution over the stars
+     * without keeping every rating in memory.
+     *
+     * @return The rating aggregate of this entity.
+     */
+    RatingAggregate getRatingAggregate();
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.educore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A Java Flight Recorder event for one {@link com.educore.model.Course#drop} call.
+ * Disabled unless a recording turns it on, see {@link EnrollEvent}.
+ */
+
+@Name("com.educore.Drop")
+@Label("Course Drop")
+@Category({"EduCore", "Enrollment"})
+@Description("A student dropping a course")
+@Enabled(false)
+public class DropEvent extends Event {
+    @Label("Course Id")
+    public int courseId;
+
+    @Label("Student Id")
+    public int studentId;
+
+    @Label("Result")
+    @Description("DROPPED, NOT_ENROLLED or FAILED")
+    public String result;
+
+    @Label("Enrolled Count")
+    @Description("The number of students in the course after the call")
+    public int enrolledCount;
+}
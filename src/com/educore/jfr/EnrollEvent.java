@@ -0,0 +1,33 @@
+package com.educore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A Java Flight Recorder event for one {@link com.educore.model.Course#enroll} call, from the seat check to the receipt hand-off.
+ * Disabled unless a recording turns it on (e.g. with the {@code educore.jfc} profile, see {@link FlightRecording}),
+ * the fields are only filled in when {@link #shouldCommit()} says the event is kept.
+ */
+
+@Name("com.educore.Enroll")
+@Label("Course Enroll")
+@Category({"EduCore", "Enrollment"})
+@Description("A student enrolling in a course")
+@Enabled(false)
+public class EnrollEvent extends Event {
+    @Label("Course Id")
+    public int courseId;
+
+    @Label("Student Id")
+    public int studentId;
+
+    @Label("Result")
+    @Description("ENROLLED, ALREADY_ENROLLED, FULL or FAILED")
+    public String result;
+
+    @Label("Enrolled Count")
+    @Description("The number of students in the course after the call")
+    public int enrolledCount;
+
+    @Label("Capacity")
+    public int capacity;
+}
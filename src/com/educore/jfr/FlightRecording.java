@@ -0,0 +1,59 @@
+package com.educore.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Starts a Java Flight Recorder recording of the platform's events from the system properties.
+ * The events ({@link EnrollEvent}, {@link DropEvent}, {@link GradeEvent}, {@link RatingEvent},
+ * {@link UserLookupEvent}, {@link UserSearchEvent}) are disabled by default and cost nothing until a recording turns them on.
+ * Key Features:
+ * {@code -Deducore.jfr.file=run.jfr} records with the bundled {@code educore.jfc} profile (the platform's events
+ * plus GC pauses, lock contention and CPU samples) and writes the file when the program exits.
+ * {@code -Deducore.jfr.settings=my.jfc} uses another profile instead.
+ * Without the properties nothing is started, the profile can then be used directly:
+ * {@code java -XX:StartFlightRecording:settings=src/com/educore/jfr/educore.jfc,filename=run.jfr ...}
+ */
+
+public final class FlightRecording {
+    /** The bundled profile, next to this class. */
+    public static final String PROFILE = "educore.jfc";
+
+    private static Recording recording;
+
+    private FlightRecording(){}
+
+    /** Starts the recording if {@code educore.jfr.file} is set, does nothing if it is already started. */
+    public static synchronized void configure(){
+        String file = System.getProperty("educore.jfr.file");
+        if(file == null || recording != null) return;
+        try {
+            Recording started = new Recording(loadProfile(System.getProperty("educore.jfr.settings")));
+            started.setName("educore");
+            started.setDestination(Path.of(file));
+            started.setDumpOnExit(true);
+            started.start();
+            recording = started;
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e){
+            System.out.println("CRITICAL: The flight recording could not be started: " + e.getMessage());
+        }
+    }
+
+    /** @return The recording started by {@link #configure()}, or null. */
+    public static synchronized Recording getRecording(){ return recording; }
+
+    //The profile from a file, or the bundled one
+    private static Configuration loadProfile(String settings) throws IOException, ParseException {
+        if(settings != null) return Configuration.create(Path.of(settings));
+        InputStream in = FlightRecording.class.getResourceAsStream(PROFILE);
+        if(in == null) throw new FileNotFoundException(PROFILE + " is not on the class path");
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)){
+            return Configuration.create(reader);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.educore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A Java Flight Recorder event for one {@link com.educore.model.Student#modifyGrade} call.
+ * Disabled unless a recording turns it on, see {@link EnrollEvent}.
+ */
+
+@Name("com.educore.Grade")
+@Label("Grade Change")
+@Category({"EduCore", "Grading"})
+@Description("A change to a student's grade in a course")
+@Enabled(false)
+public class GradeEvent extends Event {
+    @Label("Student Id")
+    public int studentId;
+
+    @Label("Course Id")
+    public int courseId;
+
+    @Label("Change")
+    @Description("The amount added to (or subtracted from) the grade")
+    public double change;
+
+    @Label("Grade")
+    @Description("The grade after the call")
+    public double grade;
+
+    @Label("Result")
+    @Description("UPDATED, BELOW_ZERO or ABOVE_100")
+    public String result;
+
+    @Label("Graded Courses")
+    @Description("The number of courses the student has a grade in")
+    public int gradedCourses;
+}
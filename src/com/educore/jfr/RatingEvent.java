@@ -0,0 +1,29 @@
+package com.educore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A Java Flight Recorder event for one {@link com.educore.model.Course#addRating} call.
+ * Disabled unless a recording turns it on, see {@link EnrollEvent}.
+ */
+
+@Name("com.educore.Rating")
+@Label("Course Rating")
+@Category({"EduCore", "Grading"})
+@Description("A rating added to a course")
+@Enabled(false)
+public class RatingEvent extends Event {
+    @Label("Course Id")
+    public int courseId;
+
+    @Label("Student Id")
+    @Description("The student that rated, -1 if unknown")
+    public int studentId;
+
+    @Label("Rating")
+    public double rating;
+
+    @Label("Rating Count")
+    @Description("The number of ratings of the course after the call")
+    public long ratingCount;
+}
@@ -0,0 +1,32 @@
+package com.educore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A Java Flight Recorder event for one {@link com.educore.service.Platform#findUserById} or
+ * {@link com.educore.service.Platform#findUserByEmail} call.
+ * Disabled unless a recording turns it on, see {@link EnrollEvent}. Lookups are very frequent,
+ * so the {@code educore.jfc} profile only keeps the ones slower than its threshold.
+ */
+
+@Name("com.educore.UserLookup")
+@Label("User Lookup")
+@Category({"EduCore", "Lookup"})
+@Description("A user looked up by id or email")
+@Enabled(false)
+public class UserLookupEvent extends Event {
+    @Label("Key")
+    @Description("ID or EMAIL")
+    public String key;
+
+    @Label("User Id")
+    @Description("The user found (or the id asked for), -1 if no user was found by email")
+    public int userId;
+
+    @Label("Found")
+    public boolean found;
+
+    @Label("Lazy Loaded")
+    @Description("True if the user was built from the saved data by this call")
+    public boolean lazyLoaded;
+}
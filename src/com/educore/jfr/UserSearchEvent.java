@@ -0,0 +1,33 @@
+package com.educore.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A Java Flight Recorder event for one {@link com.educore.service.UserSearchEngine#search} call.
+ * Disabled unless a recording turns it on, see {@link EnrollEvent}.
+ * Only the length of the query is kept, names and emails typed by users don't end up in recordings.
+ */
+
+@Name("com.educore.UserSearch")
+@Label("User Search")
+@Category({"EduCore", "Lookup"})
+@Description("A user search by id, name or email")
+@Enabled(false)
+public class UserSearchEvent extends Event {
+    @Label("Query Length")
+    public int queryLength;
+
+    @Label("Role")
+    @Description("The role searched for, null for every role")
+    public String role;
+
+    @Label("Limit")
+    public int limit;
+
+    @Label("Offset")
+    public int offset;
+
+    @Label("Results")
+    @Description("The number of results returned")
+    public int results;
+}
@@ -1,9 +1,14 @@
 package com.educore.main;
 
 import com.educore.model.*;
+import com.educore.enums.UserRole;
+import com.educore.jfr.FlightRecording;
+import com.educore.service.MetricsRegistry;
 import com.educore.service.Platform;
 import com.educore.util.SystemHelper;
 import com.educore.exception.UserNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -13,6 +18,9 @@ import java.util.*;
  * Main application loop.
  * Polymorphism (treating different user roles).
  * Use of {@code try-catch-finally} blocks for session management.
+ * Setting the system property {@code educore.data.dir} to a folder saves the platform there between runs.
+ * The metrics are published with JMX, and dumped to a file with {@code -Deducore.metrics.dump=<seconds>} (see {@link MetricsRegistry}).
+ * A flight recording of the platform's events is written with {@code -Deducore.jfr.file=<file>} (see {@link FlightRecording}).
  */
 
 public class Main {
@@ -23,9 +31,21 @@ public class Main {
      */
     public static void main(String[] args) {
         User currentUser;
-        Platform platform = new Platform();
-        List<User> userList = platform.getUsers();
-
+        Platform platform;
+        MetricsRegistry.shared().configure();
+        FlightRecording.configure();
+        String dataDirectory = System.getProperty("educore.data.dir");
+        if(dataDirectory == null){
+            platform = Platform.create();
+        }
+        else{
+            try {
+                platform = Platform.open(Path.of(dataDirectory));
+            } catch (IOException e){
+                System.out.println("CRITICAL: The saved data could not be loaded: " + e.getMessage());
+                return;
+            }
+        }
         while (true){
             System.out.println("\n------ Welcome to the E-Learning Platform Program! ------");
             System.out.println("1. Login as Admin \n2. Login as Instructor \n3. Login as Student");
@@ -37,16 +57,18 @@ public class Main {
             choice = new SystemHelper.Choice("Choose an option (Enter 0 to go back): ");
             switch (option){
                 case 0:
+                    try {
+                        platform.close();
+                    } catch (IOException e){
+                        System.out.println("CRITICAL: The data could not be saved: " + e.getMessage());
+                    }
                     System.out.println("Thank you for using the E-Learning Platform Program!");
                     return;
                 case 1:
-                    List<Admin> admins = new ArrayList<>();
-                    for (User user : userList) {
-                        if (user instanceof Admin) {
-                            userCounter++;
-                            System.out.println((userCounter) + ". " + user);
-                            admins.add((Admin) user);
-                        }
+                    List<User> admins = new ArrayList<>(platform.usersByRole(UserRole.ADMIN));
+                    for (User user : admins) {
+                        userCounter++;
+                        System.out.println((userCounter) + ". " + user);
                     }
                     option = choice.ChoiceByInt(admins.size());
                     if(option == 0) continue;
@@ -63,13 +85,10 @@ public class Main {
                     }
                     break;
                 case 2:
-                    List<Instructor> instructors = new ArrayList<>();
-                    for (User user : userList) {
-                        if (user instanceof Instructor) {
-                            userCounter++;
-                            System.out.println((userCounter) + ". " + user);
-                            instructors.add((Instructor) user);
-                        }
+                    List<User> instructors = new ArrayList<>(platform.usersByRole(UserRole.INSTRUCTOR));
+                    for (User user : instructors) {
+                        userCounter++;
+                        System.out.println((userCounter) + ". " + user);
                     }
                     option = choice.ChoiceByInt(instructors.size());
                     if(option == 0) continue;
@@ -86,13 +105,10 @@ public class Main {
                     }
                     break;
                 case 3:
-                    List<Student> students = new ArrayList<>();
-                    for (User user : userList) {
-                        if (user instanceof Student) {
-                            userCounter++;
-                            System.out.println((userCounter) + ". " + user);
-                            students.add((Student) user);
-                        }
+                    List<User> students = new ArrayList<>(platform.usersByRole(UserRole.STUDENT));
+                    for (User user : students) {
+                        userCounter++;
+                        System.out.println((userCounter) + ". " + user);
                     }
                     option = choice.ChoiceByInt(students.size());
                     if(option == 0) continue;
@@ -1,9 +1,14 @@
 package com.educore.model;
 
 import com.educore.enums.UserRole;
+import com.educore.command.CommandResult;
+import com.educore.command.CreateUserCommand;
+import com.educore.command.DeleteUserCommand;
+import com.educore.service.CascadeReport;
 import com.educore.service.Platform;
 import com.educore.util.SystemHelper;
 import com.educore.util.Catalogue;
+import com.educore.util.Page;
 import com.educore.exception.UserNotFoundException;
 
 import java.util.*;
@@ -17,6 +22,9 @@ import java.util.*;
  */
 
 public class Admin extends User implements Cloneable{
+    /** The number of rows printed at a time by the user and course listings. */
+    private static final int PAGE_SIZE = 20;
+
     /** A reference to the central platform instance to perform system operations. */
     private final Platform platform;
 
@@ -92,7 +100,7 @@ public class Admin extends User implements Cloneable{
      * Provides options to:
      * View all users and courses.
      * Add or remove users.
-     * View students sorted by GPA (demonstrating {@code TreeSet}).
+     * View students sorted by GPA (from the live {@code GpaLeaderboard}).
      * View courses sorted by difficulty.
      * Demo the generic {@code Catalogue} class.
      *
@@ -117,26 +125,36 @@ public class Admin extends User implements Cloneable{
             switch (option){
                 case 0: return;
                 case 1:
-                    List<User> users = platform.getUsers();
-                    if(users.isEmpty()){
+                    int userCount = platform.getUsers().size();
+                    if(userCount == 0){
                         System.out.println("Error: No users found.");
                         break;
                     }
-                    System.out.println("Currently there's " + platform.getUsers().size() + " users in the system: ");
-                    for(User user : users){
-                        System.out.println(user);
-                    }
+                    System.out.println("Currently there's " + userCount + " users in the system: ");
+                    Integer userCursor = null;
+                    do {
+                        Page<User> page = platform.pageUsers(userCursor, PAGE_SIZE);
+                        for(User user : page.getItems()){
+                            System.out.println(user);
+                        }
+                        userCursor = page.getNextCursor();
+                    } while (userCursor != null && askNextPage());
                     break;
                 case 2:
-                    List<Course> courses = platform.getCourses();
-                    if(courses.isEmpty()){
+                    int courseCount = platform.getCourses().size();
+                    if(courseCount == 0){
                         System.out.println("No courses found.");
                         break;
                     }
-                    System.out.println("Currently there's " + platform.getCourses().size() + " courses in the system: ");
-                    for(Course course : courses){
-                        System.out.println(course);
-                    }
+                    System.out.println("Currently there's " + courseCount + " courses in the system: ");
+                    Integer courseCursor = null;
+                    do {
+                        Page<Course> page = platform.pageCourses(courseCursor, PAGE_SIZE);
+                        for(Course course : page.getItems()){
+                            System.out.println(course);
+                        }
+                        courseCursor = page.getNextCursor();
+                    } while (courseCursor != null && askNextPage());
                     break;
                 case 3:
                     createUser();
@@ -146,11 +164,15 @@ public class Admin extends User implements Cloneable{
                         User user = platform.searchForUser();
                         if(user == null) break;
 
-                        if(platform.removeUser(user)){
-                            System.out.println(user + " is removed successfully.");
+                        CommandResult<CascadeReport> result = platform.getCommandService()
+                                .execute(new DeleteUserCommand(user.getUserId()));
+                        if(result.isOk()){
+                            System.out.println(result.getMessage());
+                            System.out.println("Also removed: " + result.getValue());
                         }
                         else{
-                            System.out.println("CRITICAL: An Unexpected error happened while removing: " + user.name);
+                            System.out.println("CRITICAL: An Unexpected error happened while removing: " + user.name
+                                    + " (" + result.getMessage() + ")");
                         }
 
                     } catch (UserNotFoundException e){
@@ -159,14 +181,14 @@ public class Admin extends User implements Cloneable{
                     break;
                 case 5:
                     System.out.println("Students sorted by GPA:");
-                    TreeSet<Student> sortedUsers = platform.getStudentsSortedByGPA();
+                    List<Student> sortedUsers = platform.getStudentsSortedByGPA();
                     for(Student student : sortedUsers){
                         System.out.println(student + " GPA: " + student.calculateGPA());
                     }
                     break;
                 case 6:
                     System.out.println("Courses sorted by difficulty:");
-                    TreeSet<Course> sortedCourses = platform.getCoursesSortedByDifficulty();
+                    List<Course> sortedCourses = platform.getCoursesSortedByDifficulty();
                     for(Course course : sortedCourses){
                         System.out.println(course + " Difficulty: " + course.getCourseLevel());
                     }
@@ -184,10 +206,17 @@ public class Admin extends User implements Cloneable{
         }
     }
 
+    //Asks whether to print the next page of a listing
+    private static boolean askNextPage(){
+        System.out.print("Press enter for the next page (Enter 0 to stop): ");
+        Scanner sc = new Scanner(System.in);
+        return !sc.nextLine().trim().equals("0");
+    }
+
     /**
      * An internal helper method to handle the creation of a new user.
      * Collects name, ID, and email from the admin, validates inputs, and
-     * adds the new user to the Platform.
+     * adds the new user to the Platform with a {@link CreateUserCommand}.
      */
     private void createUser(){
         int userId = 9999;
@@ -282,7 +311,7 @@ public class Admin extends User implements Cloneable{
                 email = sc.nextLine().trim();
 
                 if(email.isEmpty()){
-                    email = "none";
+                    email = CreateUserCommand.NO_EMAIL;
                     System.out.println("Skipped email input: No email provided.");
                     break;
                 }
@@ -302,22 +331,8 @@ public class Admin extends User implements Cloneable{
             }
         }
 
-        User user = null;
-        switch (userRole){
-            case UserRole.STUDENT:
-                user = new Student(userId, userName, email, userRole);
-                break;
-            case UserRole.INSTRUCTOR:
-                user = new Instructor(userId, userName, email, userRole);
-                break;
-            case UserRole.ADMIN:
-                user = new Admin(userId, userName, email, userRole, this.platform);
-                break;
-            case null, default:
-                System.out.println("CRITICAL: An unexpected error happened while creating a new user.");
-                break;
-        }
-
-        platform.addUser(user);
+        CommandResult<User> result = platform.getCommandService()
+                .execute(new CreateUserCommand(userId, userName, email, userRole));
+        System.out.println(result.getMessage());
     }
 }
@@ -3,14 +3,25 @@ package com.educore.model;
 import com.educore.interfaces.Enrollable;
 import com.educore.interfaces.Rateable;
 import com.educore.enums.CourseLevel;
+import com.educore.enums.EnrollmentStatus;
 import com.educore.exception.AlreadyEnrolledException;
 import com.educore.exception.CourseFullException;
 import com.educore.exception.UserNotFoundException;
+import com.educore.jfr.DropEvent;
+import com.educore.jfr.EnrollEvent;
+import com.educore.jfr.RatingEvent;
+import com.educore.util.Page;
+import com.educore.util.RatingAggregate;
+import com.educore.util.ReceiptWriter;
+import com.educore.service.EnrollmentEngine;
+import com.educore.service.MetricsRegistry;
+import com.educore.service.PlatformEvents;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Course class represents a specific course in the E-Learning Platform.
@@ -21,6 +32,14 @@ import java.util.*;
  */
 
 public class Course implements Enrollable, Rateable, Cloneable, Comparable<Course>{
+    /** The number of raw ratings each course keeps as an audit sample. */
+    public static final int RATING_SAMPLE_SIZE = 100;
+
+    //Looked up once, recording is then a histogram or counter update
+    private static final MetricsRegistry.Timer ENROLL_TIMER = MetricsRegistry.shared().timer("course.enroll");
+    private static final MetricsRegistry.Counter ENROLL_FULL = MetricsRegistry.shared().counter("course.enroll.full");
+    private static final MetricsRegistry.Counter ENROLL_DUPLICATE = MetricsRegistry.shared().counter("course.enroll.duplicate");
+    private static final MetricsRegistry.Timer DROP_TIMER = MetricsRegistry.shared().timer("course.drop");
 
     /**
      * Constructs a new Course with the specified details.
@@ -36,12 +55,16 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
     private int capacity;
     private String title;
     private double price;
-    private double averageRating; //new
     private CourseLevel courseLevel;
 
     private ArrayList<Module> modules;
-    private ArrayList<Double> ratings;
-    private ArrayList<Student> enrolledStudents;
+    private RatingAggregate ratings = new RatingAggregate(RATING_SAMPLE_SIZE);
+    /** The seats and the enrolled students, created by {@link #engine()} on first use so no constructor hands out {@code this}. */
+    private volatile EnrollmentEngine enrolledStudents;
+    /** Read: enrolling through a command, Write: deleting the course. A clone shares it, like it shares the enrollments. */
+    private final ReentrantReadWriteLock deleteLock = new ReentrantReadWriteLock();
+    /** Builds the enrolled students that are still only on disk, null once they are all built (lazy loading). */
+    private Runnable pendingStudentsLoader;
 
     public Course() {}
     public Course(int courseID, int capacity, String title, double price, CourseLevel courseLevel) {
@@ -52,8 +75,6 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
         this.price = price;
         this.courseLevel = courseLevel; //new
         this.modules = new ArrayList<>();
-        this.ratings = new ArrayList<>();
-        this.enrolledStudents = new ArrayList<>();
     }
     public int getCourseID() {
         return courseID;
@@ -67,6 +88,7 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
     }
     public void setCapacity(int capacity) {
         this.capacity = capacity;
+        engine().setCapacity(capacity);
     }
 
     public String getTitle() {
@@ -74,6 +96,7 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
     }
     public void setTitle(String title) {
         this.title = title;
+        PlatformEvents.courseContentChanged(this);
     }
 
     public double getPrice() {
@@ -88,33 +111,117 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
     } //new
     public void setCourseLevel(CourseLevel courseLevel){
         this.courseLevel = courseLevel;
-    } //new
+        PlatformEvents.courseLevelChanged(this);
+    } //Reported so the course catalog moves the course to the bucket of its new level
 
 
     public List<Module> getModules() {
         return Collections.unmodifiableList(modules);
     } //Made it return an unmodifiablelist
     public void setModules(ArrayList<Module> modules) {
+        restoreModules(modules);
+        PlatformEvents.courseContentChanged(this);
+    }
+    public void restoreModules(ArrayList<Module> modules) {
         this.modules = modules;
+        for(Module module : modules){
+            module.attachTo(this);
+        }
+    } //Sets the modules without reporting a change (used when loading saved data)
+    /**
+     * Adds a module at the end of the course, the course search sees its title and lessons right away.
+     *
+     * @param module The module to add.
+     */
+    public void addModule(Module module) {
+        modules.add(module);
+        module.attachTo(this);
+        PlatformEvents.courseContentChanged(this);
     }
 
     public List<Double> getRatings() {
-        return Collections.unmodifiableList(ratings);
-    } //New and made it return an unmodifiablelist
+        return ratings.getSample();
+    } //Returns the audit sample, every rating is counted in getRatingAggregate() (deleted ratings can stay in the sample)
     public void setRatings(ArrayList<Double> ratings) {
-        this.ratings = ratings;
+        RatingAggregate aggregate = new RatingAggregate(RATING_SAMPLE_SIZE);
+        for(Double rating : ratings){
+            aggregate.add(rating);
+        }
+        this.ratings = aggregate;
     }
 
     public List<Student> getEnrolledStudents() {
-        return Collections.unmodifiableList(enrolledStudents);
-    } //Made it return an unmodifiableList
+        loadPendingStudents();
+        return Collections.unmodifiableList(engine().getStudents());
+    } //Returns a snapshot ordered by id, the live state is in the EnrollmentEngine
+
+    public Page<Student> pageEnrolledStudents(Integer afterId, int limit) {
+        loadPendingStudents();
+        return engine().pageStudents(afterId, limit);
+    } //Keyset paging by userId, afterId is the cursor of the previous page (null for the first one)
+
+    public void setPendingStudents(int count, Runnable loader) {
+        engine().preload(count);
+        this.pendingStudentsLoader = loader;
+    } //Used by lazy loading: count students are enrolled but only built when the list is first needed
+
+    public void attachLoadedStudent(Student s) {
+        engine().attach(s);
+    } //A lazily built student takes the seat reserved for it by setPendingStudents
+
+    private EnrollmentEngine engine() {
+        EnrollmentEngine engine = enrolledStudents;
+        if (engine != null) return engine;
+        synchronized (this) {
+            if (enrolledStudents == null) {
+                enrolledStudents = new EnrollmentEngine(this, capacity);
+            }
+            return enrolledStudents;
+        }
+    } //Created on first use, after the constructor has finished, with the capacity set by then
+
+    private synchronized void loadPendingStudents() {
+        if (pendingStudentsLoader != null) {
+            pendingStudentsLoader.run();
+            pendingStudentsLoader = null;
+            engine().releasePending();
+        }
+    }
     public void setEnrolledStudents(ArrayList<Student> enrolledStudents) {
-        this.enrolledStudents = enrolledStudents;
+        engine().reset(enrolledStudents);
+    }
+
+    public boolean isEnrolled(Student s) {
+        return engine().isEnrolled(s);
+    } //O(1) membership check
+
+    public int getEnrolledCount() {
+        return engine().getEnrolledCount();
     }
+    public int getSeatsLeft() {
+        return engine().getSeatsLeft();
+    } //The seats the EnrollmentEngine can still give out
+
+    public boolean restoreEnrollment(Student s) {
+        return engine().restore(s);
+    } //Used when loading saved data, ignores the capacity and prints no receipt
+
+    public ReentrantReadWriteLock getDeleteLock() {
+        return deleteLock;
+    } //Commands enroll under the read lock, Platform.deleteCourse deletes under the write lock, so no one joins a course being deleted
+
+    public boolean removeEnrollment(Student s) {
+        return engine().remove(s);
+    } //Silent version of drop, returns false instead of throwing
+
+    public List<Student> removeAllEnrollments() {
+        loadPendingStudents();
+        return engine().removeAll();
+    } //One bulk unlink in the EnrollmentGraph, returns the students that were enrolled (their course lists are already updated)
 
     public String courseInfo(){
         return String.format("%s (%d) \n%d Students \nProviding %d Modules \nRatings: %.1f \nPrice: %.2f",
-                title, courseID, enrolledStudents.size(), modules.size(), averageRating, price);
+                title, courseID, engine().getEnrolledCount(), modules.size(), getAverageRating(), price);
 
                  /**
                  * This returns a formatted string summary of the course statistics.
@@ -133,18 +240,19 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
     @Override
     public Course clone() throws CloneNotSupportedException {
         Course cloned = (Course) super.clone();
-        cloned.enrolledStudents = new ArrayList<>(this.enrolledStudents);
+        cloned.enrolledStudents = new EnrollmentEngine(cloned, engine());
         cloned.modules = new ArrayList<>(this.modules);
-        cloned.ratings = new ArrayList<>(this.ratings);
+        cloned.ratings = new RatingAggregate(this.ratings);
         return cloned;
 
         /**
-         * Creates a deep copy of the Course object.
+         * Creates a copy of the Course object.
          *
-         * This method ensures that changeable fields like enrolledStudents, modules,
-         * and ratings are duplicated so that the clone is independent of the original.
+         * The list of modules (not the modules themselves), the rating aggregate and the seat counter are copied.
+         * It is not independent: the enrolled students are stored by course id in the {@link EnrollmentGraph},
+         * so the clone shares them with the original, and it shares the delete lock too.
          *
-         * @return A new independent Course object.
+         * @return A new Course object sharing the enrollments of this one.
          * @throws CloneNotSupportedException if the object cannot be cloned.
          */
     }
@@ -178,20 +286,42 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
 
     @Override
     public boolean enroll(Student s) throws AlreadyEnrolledException, CourseFullException {//new
-        if (enrolledStudents.contains(s)) {
-            throw new AlreadyEnrolledException("Student is already in this course!");
-        }
-        if (enrolledStudents.size() >= capacity) {
-            throw new CourseFullException("Sorry, this course is full!");
+        long started = System.nanoTime();
+        EnrollEvent event = new EnrollEvent();
+        event.begin();
+        String result = "FAILED";
+        try {
+            engine().enroll(s);
+            result = EnrollmentStatus.ENROLLED.name();
+            PlatformEvents.enrolled(this, s);
+            ReceiptWriter.getDefault().submit(new Enrollment(s, LocalDate.now()));
+            return true;
+        } catch (CourseFullException e){
+            result = EnrollmentStatus.FULL.name();
+            ENROLL_FULL.increment();
+            throw e;
+        } catch (AlreadyEnrolledException e){
+            result = EnrollmentStatus.ALREADY_ENROLLED.name();
+            ENROLL_DUPLICATE.increment();
+            throw e;
+        } finally {
+            ENROLL_TIMER.recordSince(started);
+            if(event.shouldCommit()){
+                event.courseId = courseID;
+                event.studentId = s.getUserId();
+                event.result = result;
+                event.enrolledCount = getEnrolledCount();
+                event.capacity = capacity;
+                event.commit();
+            }
         }
-        enrolledStudents.add(s);
-        Enrollment enrollmentReceipt = new Enrollment(s, LocalDate.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
-        enrollmentReceipt.printReceipt();
-        System.out.println("Student: " + s.getName() + " was Successfully added!");
-        return true;
 
         /**
          * Enrolls a student in this course if and only if capacity allows + they are not already registered.
+         * The check and the seat are taken atomically by the {@link EnrollmentEngine}, so it is safe under concurrent sign-ups.
+         * The receipt is handed to the background {@link ReceiptWriter}, so enrolling doesn't wait for the console.
+         * The time taken is recorded by the {@code course.enroll} timer, the rejections by {@code course.enroll.full}
+         * and {@code course.enroll.duplicate}, and a {@link EnrollEvent} is given to the flight recorder if it wants one.
          *
          * @param s is the Student object attempting to enroll.
          * @return true if the enrollment was successful.
@@ -200,19 +330,56 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
          */
     }
 
+    @Override
+    public EnrollmentStatus[] enrollAll(Collection<Student> students) {
+        EnrollmentStatus[] results = engine().enrollAll(students);
+        int i = 0;
+        for(Student s : students){
+            if(results[i++] == EnrollmentStatus.ENROLLED){
+                s.addCourseEnrollment(this);
+                PlatformEvents.enrolled(this, s);
+            }
+        }
+        return results;
+
+        /**
+         * Enrolls a group of students (like a cohort import) with one seat reservation.
+         * No receipt is printed per student, and each enrolled student's course list (read from the same graph)
+         * and grades are updated in the same call, so there is no need to call {@link Student#addCourseEnrollment(Course)}.
+         *
+         * @param students The students to enroll.
+         * @return One {@link EnrollmentStatus} per student, in the same order as the collection.
+         */
+    }
+
     @Override
     public boolean drop(Student s) throws UserNotFoundException { //new
-        if (enrolledStudents.contains(s)) {
-            enrolledStudents.remove(s);
-            System.out.println("Student: " + s.getName() + " was successfully removed.");
-            return true;
-        } else if (!enrolledStudents.contains(s)) {
-            throw new UserNotFoundException("Error: The student is not on the registered list.");
+        long started = System.nanoTime();
+        DropEvent event = new DropEvent();
+        event.begin();
+        String result = "FAILED";
+        try {
+            engine().drop(s);
+            result = "DROPPED";
+            PlatformEvents.dropped(this, s);
+        } catch (UserNotFoundException e){
+            result = "NOT_ENROLLED";
+            throw e;
+        } finally {
+            DROP_TIMER.recordSince(started);
+            if(event.shouldCommit()){
+                event.courseId = courseID;
+                event.studentId = s.getUserId();
+                event.result = result;
+                event.enrolledCount = getEnrolledCount();
+                event.commit();
+            }
         }
-        return false;
+        return true;
 
         /**
          * Removes (drops) a student from the course.
+         * The time taken is recorded by the {@code course.drop} timer and a {@link DropEvent}.
          *
          * @param s The student to be removed.
          * @return true if the student was successfully removed.
@@ -222,57 +389,94 @@ public class Course implements Enrollable, Rateable, Cloneable, Comparable<Cours
 
     @Override
     public void addRating(Double rating) {
-        ratings.add(rating);
-        calculateAverageRating();
+        addRating(rating, null);
 
         /**
-         * Adds a rating to the course and recalculates the average.
+         * Adds a rating to the course aggregate in O(1), the average is updated as part of it.
          *
          * @param rating is the rating score (typically 1.0 to 5.0).
          */
     }
 
-    @Override
-    public double getAverageRating() {
-        return averageRating;
-    }
-
-    public void calculateAverageRating(){
-        if(ratings.isEmpty()){
-            averageRating = 0;
-            return;
+    public void addRating(Double rating, Student rater) {
+        RatingEvent event = new RatingEvent();
+        event.begin();
+        long sequence = ratings.add(rating);
+        PlatformEvents.rated(this, rater, rating, sequence);
+        if(event.shouldCommit()){
+            event.courseId = courseID;
+            event.studentId = rater == null ? -1 : rater.getUserId();
+            event.rating = rating;
+            event.ratingCount = ratings.getCount();
+            event.commit();
         }
-        double avg = 0.0;
-        for(Double rating : ratings){
-            avg += rating;
-        }
-        averageRating = avg/ratings.size();
 
         /**
-         * Recalculates the average rating based on the current list of ratings.
-         * Updates the internal averageRating field.
+         * Adds a rating given by a known student, so listeners (like the write-ahead log) know who rated.
+         * A {@link RatingEvent} is given to the flight recorder if it wants one.
+         *
+         * @param rating is the rating score (typically 1.0 to 5.0).
+         * @param rater is the student that gave the rating, or null.
          */
     }
 
+    public boolean removeRating(double rating) {
+        return ratings.remove(rating);
+    } //Takes back a rating given before (when the student who gave it is deleted), no event is fired
+
+    @Override
+    public double getAverageRating() {
+        return ratings.getMean();
+    }
+
+    @Override
+    public RatingAggregate getRatingAggregate() {
+        return ratings;
+    }
+
     /**
      * The class below is an inner class representing a receipt for a successful enrollment.
      * This encapsulates the details of a specific registration event.
+     * The date is only formatted when the receipt is printed, with a formatter that is created once.
      */
     public class Enrollment {
+        private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
         private Student student;
-        private String enrollmentDate;
+        private LocalDate enrollmentDate;
 
-        public Enrollment(Student student, String enrollmentDate) {
+        public Enrollment(Student student, LocalDate enrollmentDate) {
             this.student = student;
             this.enrollmentDate = enrollmentDate;
         }
 
+        public Student getStudent() {
+            return student;
+        }
+
+        public LocalDate getEnrollmentDate() {
+            return enrollmentDate;
+        }
+
+        /**
+         * Appends the receipt text to a builder, used by the {@link ReceiptWriter} to print a whole batch at once.
+         *
+         * @param text The builder to append to.
+         */
+        public void formatReceipt(StringBuilder text) {
+            String newLine = System.lineSeparator();
+            text.append("--- Receipt Printing ---").append(newLine)
+                    .append("Course: ").append(title).append(newLine)
+                    .append("Student name: ").append(student.getName()).append(newLine)
+                    .append("Registering date:  ").append(DATE_FORMAT.format(enrollmentDate)).append(newLine)
+                    .append("-------------------").append(newLine)
+                    .append("Student: ").append(student.getName()).append(" was Successfully added!").append(newLine);
+        }
+
         public void printReceipt() {
-            System.out.println("--- Receipt Printing ---");
-            System.out.println("Course: " + title);
-            System.out.println("Student name: " + student.getName());
-            System.out.println("Registering date:  " + enrollmentDate);
-            System.out.println("-------------------");
+            StringBuilder text = new StringBuilder();
+            formatReceipt(text);
+            System.out.print(text);
         }
     }
 }
\ No newline at end of file
@@ -2,11 +2,18 @@ package com.educore.model;
 
 import com.educore.enums.UserRole;
 import com.educore.enums.CourseLevel;
+import com.educore.command.CommandResult;
+import com.educore.command.CreateCourseCommand;
+import com.educore.command.DeleteCourseCommand;
+import com.educore.command.GradeCommand;
+import com.educore.service.CascadeReport;
 import com.educore.service.Platform;
+import com.educore.service.PlatformEvents;
 import com.educore.util.SystemHelper;
 import com.educore.exception.UserNotFoundException;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents an Instructor user in the E-Learning Platform.
@@ -19,8 +26,11 @@ import java.util.*;
  */
 
 public class Instructor extends User implements Cloneable{
-    /** A list of courses this instructor is currently teaching. */
-    private ArrayList<Course> teachingCourses;
+    /**
+     * A list of courses this instructor is currently teaching.
+     * Copy on write: it is rarely changed, and read by concurrent commands (like {@link GradeCommand}) without a lock.
+     */
+    private CopyOnWriteArrayList<Course> teachingCourses;
 
     /**
      * Constructs a new Instructor with the specified details.
@@ -32,7 +42,7 @@ public class Instructor extends User implements Cloneable{
      */
     public Instructor(int userId, String name, String email, UserRole userRole) {
         super(userId, name, email, userRole);
-        teachingCourses = new ArrayList<>();
+        teachingCourses = new CopyOnWriteArrayList<>();
     }
 
     /**
@@ -54,7 +64,7 @@ public class Instructor extends User implements Cloneable{
     @Override
     public Instructor clone() throws CloneNotSupportedException {
         Instructor cloned = (Instructor) super.clone();
-        cloned.teachingCourses = new ArrayList<>(this.teachingCourses);
+        cloned.teachingCourses = new CopyOnWriteArrayList<>(this.teachingCourses);
         return cloned;
     }
 
@@ -112,7 +122,7 @@ public class Instructor extends User implements Cloneable{
             switch (option){
                 case 0: return;
                 case 1:
-                    showTeachingCourses();
+                    showTeachingCourses(platform);
                     break;
                 case 2:
                     createCourse(platform);
@@ -134,8 +144,42 @@ public class Instructor extends User implements Cloneable{
      */
     public void addTeachingCourse(Course course){
         teachingCourses.add(course);
+        PlatformEvents.teachingCourseAdded(this, course);
+    }
+
+    /**
+     * Assigns a course without firing an event, used when loading saved data.
+     *
+     * @param course The course the instructor was already teaching.
+     */
+    public void restoreTeachingCourse(Course course){
+        teachingCourses.addIfAbsent(course);
+    }
+
+    /**
+     * Removes a course from the teaching list without asking for input.
+     *
+     * @param course The course to remove.
+     * @return true if the instructor was teaching the course.
+     */
+    public boolean removeTeachingCourse(Course course){
+        return teachingCourses.remove(course);
     }
 
+    /**
+     * Empties the teaching list (used when the instructor is deleted), the courses themselves stay on the platform.
+     *
+     * @return The number of courses the instructor was teaching.
+     */
+    public int removeAllTeachingCourses(){
+        int count = teachingCourses.size();
+        teachingCourses.clear();
+        return count;
+    }
+
+    /** @return An unmodifiable view of the courses this instructor teaches. */
+    public List<Course> getTeachingCourses(){ return Collections.unmodifiableList(teachingCourses); }
+
     /**
      * Displays a list of students enrolled in a specific course and allows selection.
      *
@@ -192,11 +236,13 @@ public class Instructor extends User implements Cloneable{
 
     /**
      * Handles the logic for removing a course taught by this instructor.
-     * Ensures that if a course is removed, all enrolled students are unenrolled from it as well.
+     * Ensures that if a course is removed, all enrolled students are unenrolled from it as well,
+     * in one all or nothing cascade delete ({@link DeleteCourseCommand}, run by the platform's command service).
      *
      * @param platform The platform instance where the course is saved.
      */
     public void removeCourse(Platform platform){
+        List<Course> teachingCourses = new ArrayList<>(this.teachingCourses);
         if(teachingCourses.isEmpty()){
             System.out.println("There are no courses for you to remove.");
             return;
@@ -216,27 +262,25 @@ public class Instructor extends User implements Cloneable{
         if(option == 0) return;
 
         Course course = teachingCourses.get(option - 1);
-        if(platform.removeCourse(course)){
-            for(Student student : course.getEnrolledStudents()){
-                if(!student.removeCourseEnrollment(course)){
-                    System.out.println("CRITICAL: An unexpected error occurred while removing enrolled students from: " +
-                            course);
-                    break;
-                }
-            }
-            teachingCourses.remove(course);
-            System.out.println("Removed (" + course + ") Successfully.");
+        CommandResult<CascadeReport> result = platform.getCommandService()
+                .execute(new DeleteCourseCommand(getUserId(), course.getCourseID()));
+        if(result.isOk()){
+            System.out.println(result.getMessage());
+            System.out.println("Also removed: " + result.getValue());
         }
         else{
-            System.out.println("Error: An unexpected error occurred while trying to remove a course.");
+            System.out.println("Error: " + result.getMessage());
         }
     }
 
     /**
      * Displays all courses taught by the instructor and provides management options.
      * Options include viewing enrolled students or searching for a specific student.
+     *
+     * @param platform The platform whose command service runs the grade changes.
      */
-    public void showTeachingCourses(){
+    public void showTeachingCourses(Platform platform){
+        List<Course> teachingCourses = new ArrayList<>(this.teachingCourses);
         if(teachingCourses.isEmpty()){
             System.out.println("You are not teaching any course.");
             return;
@@ -286,19 +330,20 @@ public class Instructor extends User implements Cloneable{
 
         if(option == 0) return;
         else if(option == 1){
-            gradeStudent(course, student);
+            gradeStudent(platform, course, student);
         }
     }
 
     /**
      * Assigns or modifies a grade for a student in a specific course.
      * This method takes user input to determine the grade value and updates
-     * the student's record using {@link Student#modifyGrade(Course, Double)}.
+     * the student's record with a {@link GradeCommand}.
      *
-     * @param course  The course context.
-     * @param student The student to be graded.
+     * @param platform The platform whose command service runs the change.
+     * @param course   The course context.
+     * @param student  The student to be graded.
      */
-    public void gradeStudent(Course course, Student student){
+    public void gradeStudent(Platform platform, Course course, Student student){
         Scanner sc = new Scanner(System.in);
         String userInput = "";
         while (true){
@@ -317,9 +362,11 @@ public class Instructor extends User implements Cloneable{
                     break;
                 }
 
-                boolean success = student.modifyGrade(course, Double.valueOf(grade));
+                CommandResult<Double> result = platform.getCommandService()
+                        .execute(new GradeCommand(getUserId(), course.getCourseID(), student.getUserId(), grade));
+                System.out.println(result.getMessage());
 
-                if(success){
+                if(result.isOk()){
                     break;
                 }
             } catch (NumberFormatException e){
@@ -401,7 +448,7 @@ public class Instructor extends User implements Cloneable{
                 if(id == 0){
                     break;
                 }
-                else if(platform.findUserById(id) != null){
+                else if(platform.findCourseById(id) != null){
                     System.out.println("Error: The id you entered is already used.");
                     continue;
                 }
@@ -465,8 +512,8 @@ public class Instructor extends User implements Cloneable{
             }
         }
 
-        Course createdCourse = new Course(courseId, courseCapacity, courseTitle, coursePrice, courseLevel);
-        platform.addCourse(createdCourse);
-        addTeachingCourse(createdCourse);
+        CommandResult<Course> result = platform.getCommandService()
+                .execute(new CreateCourseCommand(getUserId(), courseId, courseTitle, courseCapacity, coursePrice, courseLevel));
+        System.out.println(result.getMessage());
     }
 }
\ No newline at end of file
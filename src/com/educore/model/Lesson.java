@@ -8,6 +8,8 @@ package com.educore.model;
 public class Lesson {
     private String title;
     private int durationMinutes;
+    /** The module holding this lesson, told when the title changes. */
+    private Module module;
 
     public Lesson(){}
     public Lesson(String title, int durationMinutes) {
@@ -21,6 +23,9 @@ public class Lesson {
     }
     public void setTitle(String title) {
         this.title = title;
+        if(module != null){
+            module.contentChanged();
+        }
     }
     public int getDurationMinutes() {
         return durationMinutes;
@@ -30,6 +35,11 @@ public class Lesson {
     }
 
 
+    //Called by the module that holds this lesson
+    void attachTo(Module module){
+        this.module = module;
+    }
+
     /**
      * this returns a string representation of the Lesson object.
      * Output example: "Lesson title: Java, Duration in minutes: (120)"
@@ -1,5 +1,7 @@
 package com.educore.model;
 
+import com.educore.service.PlatformEvents;
+
 import java.util.*;
 
 /**
@@ -11,6 +13,8 @@ import java.util.*;
 public class Module {
     private String title;
     private ArrayList<Lesson> lessons;
+    /** The course holding this module, told when the titles change so the course search stays current. */
+    private Course course;
 
     public Module(){}
     public Module(String title) {
@@ -25,6 +29,7 @@ public class Module {
 
     public void setTitle(String title){ //new
         this.title = title;
+        contentChanged();
     }
     public String getTitle(){ //new
         return title;
@@ -32,7 +37,8 @@ public class Module {
 
     public void addLesson(Lesson lesson){ //made it public
         this.lessons.add(lesson);
-
+        lesson.attachTo(this);
+        contentChanged();
         /**
          * Adds a new lesson to this module.
          * @param lesson is The Lesson object to be added.
@@ -55,6 +61,22 @@ public class Module {
     }
     public void setLessonsList(ArrayList<Lesson> lessons){ //new
         this.lessons = lessons;
+        for(Lesson lesson : lessons){
+            lesson.attachTo(this);
+        }
+        contentChanged();
+    }
+
+    //Called by the course that holds this module
+    void attachTo(Course course){
+        this.course = course;
+    }
+
+    //Reports a change of a title inside the module as a change of its course
+    void contentChanged(){
+        if(course != null){
+            PlatformEvents.courseContentChanged(course);
+        }
     }
 
     @Override
@@ -2,25 +2,36 @@ package com.educore.model;
 
 import com.educore.enums.UserRole;
 import com.educore.service.Platform;
+import com.educore.service.CourseSearchIndex;
+import com.educore.service.EnrollmentGraph;
+import com.educore.service.GpaLeaderboard;
+import com.educore.service.PlatformEvents;
 import com.educore.util.SystemHelper;
-import com.educore.exception.AlreadyEnrolledException;
-import com.educore.exception.CourseFullException;
-import com.educore.exception.UserNotFoundException;
+import com.educore.util.IntDoubleMap;
+import com.educore.util.Page;
+import com.educore.command.CommandResult;
+import com.educore.command.DropCommand;
+import com.educore.command.EnrollCommand;
+import com.educore.command.RateCommand;
+import com.educore.jfr.GradeEvent;
 import java.util.*;
 
 /**
  * Represents a Student user in the E-Learning Platform.
  * This class manages the student's academic progress, including:
  * Enrolling in and dropping courses.
- * Tracking grades using a {@link HashMap}.
+ * Tracking grades using a primitive {@link IntDoubleMap} and a running total, so the GPA is an O(1) read.
  * Rating courses.
  * Calculating GPA.
  * It implements {@link Comparable} to allow sorting students by their GPA.
  */
 
 public class Student extends User implements Cloneable, Comparable<Student>{
-    /** A list of courses the student is currently active in. */
-    private ArrayList<Course> enrolledCourses;
+    /** The max number of courses listed for a course search. */
+    private static final int MAX_COURSE_RESULTS = 10;
+
+    /** Where the courses the student is currently active in are stored, shared with the courses. */
+    private static final EnrollmentGraph enrollments = EnrollmentGraph.shared();
     /**
      * Stores the ratings this student has given to courses.
      * Key: Course, Value: Rating (Double).
@@ -28,9 +39,16 @@ public class Student extends User implements Cloneable, Comparable<Student>{
     private HashMap<Course, Double> ratedCourses;
     /**
      * Stores the grades the student has received.
-     * Key: Course, Value: Grade (Double).
+     * Key: courseID, Value: Grade (primitive double, no boxing).
+     */
+    private IntDoubleMap grades;
+    /** The running sum of every value in {@link #grades}, kept in sync on every change so the GPA is O(1). */
+    private double gradeTotal;
+    /**
+     * The leaderboard ranking this student, notified whenever the grades change.
+     * It is null if the student is not ranked.
      */
-    private HashMap<Course, Double> grades;
+    private GpaLeaderboard leaderboard;
 
     /**
      * Constructs a new Student with the specified details.
@@ -42,8 +60,7 @@ public class Student extends User implements Cloneable, Comparable<Student>{
      */
     public Student(int userId, String name, String email, UserRole userRole) {
         super(userId, name, email, userRole);
-        enrolledCourses = new ArrayList<>();
-        grades = new HashMap<>();
+        grades = new IntDoubleMap();
         ratedCourses = new HashMap<>();
     }
 
@@ -57,18 +74,19 @@ public class Student extends User implements Cloneable, Comparable<Student>{
     }
 
     /**
-     * Creates a deep copy of the Student object.
-     * Ensures that the list of enrolled courses and the map of grades
-     * is duplicated so changes to the clone do not affect the original.
+     * Creates a copy of the Student object.
+     * The map of grades is duplicated, so grading the clone does not change the original's grades.
+     * It is not independent: the enrolled courses are stored by userId in the {@link EnrollmentGraph},
+     * and the map of rated courses is not copied, so the clone shares both with the original.
      *
-     * @return A new independent Student object.
+     * @return A new Student object sharing the enrollments and ratings of this one.
      * @throws CloneNotSupportedException if cloning is not supported.
      */
     @Override
     public Student clone() throws CloneNotSupportedException {
         Student cloned = (Student) super.clone();
-        cloned.enrolledCourses = new ArrayList<>(this.enrolledCourses);
-        cloned.grades = new HashMap<>(this.grades);
+        cloned.grades = new IntDoubleMap(this.grades);
+        cloned.leaderboard = null;
         return cloned;
     }
 
@@ -105,7 +123,8 @@ public class Student extends User implements Cloneable, Comparable<Student>{
 
     /**
      * Compares this student to another student based on their GPA.
-     * Used by {@link Platform#getStudentsSortedByGPA()} to organize students.
+     * Students with the same GPA are compared by their {@code userId} so the order is consistent with {@link #equals}
+     * and sorted sets don't drop students that share a GPA.
      *
      * @param student The other student to compare against.
      * @return A negative integer(less than), zero(equal to), or a positive integer(greater than)
@@ -113,7 +132,9 @@ public class Student extends User implements Cloneable, Comparable<Student>{
      */
     @Override
     public int compareTo(Student student) {
-        return Double.compare(this.calculateGPA(), student.calculateGPA());
+        int cmp = Double.compare(this.calculateGPA(), student.calculateGPA());
+        if(cmp != 0) return cmp;
+        return Integer.compare(this.userId, student.userId);
     }
 
     /**
@@ -137,13 +158,13 @@ public class Student extends User implements Cloneable, Comparable<Student>{
             switch (option){
                 case 0: return;
                 case 1:
-                    viewEnrolledCourses(sc);
+                    viewEnrolledCourses(platform, sc);
                     break;
                 case 2:
-                    enrollInNewCourse(platform);
+                    enrollInNewCourse(platform, sc);
                     break;
                 case 3:
-                    dropCourse();
+                    dropCourse(platform);
                     break;
                 case 4:
                     viewGrades();
@@ -156,22 +177,26 @@ public class Student extends User implements Cloneable, Comparable<Student>{
     }
 
     /**
-     * Bulk updates the enrolled courses list.
+     * Bulk updates the enrolled courses list, without checking the capacity (used when loading saved data).
      *
      * @param courses The list of courses to set.
      */
     public void setEnrolledCourses(ArrayList<Course> courses){
-        enrolledCourses.addAll(courses);
+        for(Course course : courses){
+            course.restoreEnrollment(this);
+        }
     }
 
     /**
-     * Adds a specific course to the student's enrollment list and initializes their grade to 0.0.
+     * Initializes the grade of a course the student was just given a seat in to 0.0.
+     * The course and the student share one enrollment, so the seat itself comes from {@link Course#enroll(Student)}
+     * (which checks the capacity) or from a restore of saved data, this method never takes one.
      *
-     * @param course The course to enroll in.
+     * @param course The course the student is enrolled in.
      */
     public void addCourseEnrollment(Course course){
-        enrolledCourses.add(course);
-        grades.put(course, 0.0);
+        putGrade(course.getCourseID(), 0.0);
+        gradesChanged();
     }
 
     /**
@@ -181,79 +206,249 @@ public class Student extends User implements Cloneable, Comparable<Student>{
      * @return true if the course or grade was found and removed.
      */
     public boolean removeCourseEnrollment(Course course) {
-        boolean coursesRemoved = enrolledCourses.remove(course);
-        boolean gradesRemoved = grades.remove(course) != null;
+        boolean coursesRemoved = course.removeEnrollment(this);
+        boolean gradesRemoved = removeGrade(course.getCourseID());
+        if(gradesRemoved){
+            gradesChanged();
+        }
         return coursesRemoved || gradesRemoved;
     }
 
-    /** @return An unmodifiable view of the enrolled courses list containing all enrolled courses. */
-    public List<Course> getEnrolledCourses(){ return Collections.unmodifiableList(enrolledCourses); }
+    /**
+     * Unenrolls the student from every course, freeing their seats, and takes the student out of the
+     * {@link EnrollmentGraph} (used when the student is deleted). The grades are kept, see {@link #removeAllGrades()}.
+     * The cost is one unlink per enrolled course.
+     *
+     * @return The courses the student was enrolled in, ordered by courseID.
+     */
+    public List<Course> removeAllEnrollments(){
+        ArrayList<Course> removed = new ArrayList<>();
+        for(Course course : enrollments.coursesOf(this)){
+            if(course.removeEnrollment(this)){
+                removed.add(course);
+            }
+        }
+        enrollments.removeStudent(this);
+        return removed;
+    }
+
+    /**
+     * Deletes every grade record, including the ones of courses the student is no longer enrolled in.
+     *
+     * @return The number of grades deleted.
+     */
+    public int removeAllGrades(){
+        int count = grades.size();
+        if(count == 0) return 0;
+        grades.clear();
+        gradeTotal = 0.0;
+        gradesChanged();
+        return count;
+    }
+
+    /** @return An unmodifiable snapshot of all enrolled courses, ordered by courseID. */
+    public List<Course> getEnrolledCourses(){ return Collections.unmodifiableList(enrollments.coursesOf(this)); }
+
+    /**
+     * Reads one page of the enrolled courses in course id order, picked from the graph without copying the other courses.
+     *
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of courses on the page.
+     * @return The page.
+     */
+    public Page<Course> pageEnrolledCourses(Integer afterId, int limit){
+        return enrollments.pageCourses(this, afterId, limit);
+    }
 
     /**
      * Returns the grade for a specific course.
      *
      * @param course The course to check.
-     * @return The grade as a double, or null if no grade exists.
+     * @return The grade as a double, or 0.0 if no grade exists.
      */
-    public double getGrade(Course course){ return grades.get(course); }
+    public double getGrade(Course course){ return grades.get(course.getCourseID(), 0.0); }
+
+    /**
+     * @param course The course to check.
+     * @return true if the student has a grade record for the course.
+     */
+    public boolean hasGrade(Course course){ return grades.containsKey(course.getCourseID()); }
 
     /**
      * Updates the student's grade for a specific course.
-     * Validates that the final grade is between 0 and 100.
+     * Validates that the final grade is between 0 and 100, nothing is printed (see {@link com.educore.command.GradeCommand} for the messages).
+     * A {@link GradeEvent} with the result is given to the flight recorder if it wants one.
      *
      * @param course The course for which the grade is being modified.
      * @param grade  The amount to add (or subtract) from the current grade.
      * @return true if the grade was successfully updated, false if validation failed.
      */
     public boolean modifyGrade(Course course, Double grade){
+        GradeEvent event = new GradeEvent();
+        event.begin();
+        String result = applyGrade(course, grade);
+        if(event.shouldCommit()){
+            event.studentId = getUserId();
+            event.courseId = course.getCourseID();
+            event.change = grade;
+            event.grade = grades.get(course.getCourseID(), 0.0);
+            event.result = result;
+            event.gradedCourses = grades.size();
+            event.commit();
+        }
+        return result.equals("UPDATED");
+    }
+
+    //The change itself, the result code is kept by the GradeEvent of modifyGrade()
+    private String applyGrade(Course course, Double grade){
+        int courseId = course.getCourseID();
         double finalGrade;
-        Double gradeObj = grades.get(course);
-        if(gradeObj == null){
-            grades.put(course, Double.valueOf(0.0));
+        if(!grades.containsKey(courseId)){
+            putGrade(courseId, 0.0);
+            gradesChanged();
+            PlatformEvents.gradeChanged(this, course, 0.0);
             finalGrade = 0;
         }
         else{
-            finalGrade = gradeObj;
+            finalGrade = grades.get(courseId, 0.0);
         }
 
         finalGrade += grade;
         if(finalGrade < 0){
-            System.out.println("Error: The student's grade must not be negative.");
-            return false;
+            return "BELOW_ZERO";
         }
         else if(finalGrade > 100){
-            System.out.println("Error: The student's grade must not exceed 100.");
-            return false;
+            return "ABOVE_100";
         }
         else{
-            grades.put(course, finalGrade);
-            return true;
+            putGrade(courseId, finalGrade);
+            gradesChanged();
+            PlatformEvents.gradeChanged(this, course, finalGrade);
+            return "UPDATED";
+        }
+    }
+
+    /**
+     * Sets a grade directly, without validation (used when loading saved data).
+     *
+     * @param courseId The id of the course the grade belongs to.
+     * @param grade    The grade value.
+     */
+    public void restoreGrade(int courseId, double grade){
+        putGrade(courseId, grade);
+        gradesChanged();
+    }
+
+    /**
+     * Calls the visitor once for every grade record, even for courses the student is no longer enrolled in.
+     *
+     * @param visitor The callback receiving (courseID, grade).
+     */
+    public void forEachGrade(IntDoubleMap.Visitor visitor){ grades.forEach(visitor); }
+
+    /**
+     * Rates a course once, the rating is added to the course and remembered so the student can't rate it again.
+     *
+     * @param course The course to rate.
+     * @param rating The rating value (1 to 5).
+     * @return false if the student already rated the course.
+     */
+    public boolean rateCourse(Course course, double rating){
+        if(ratedCourses.putIfAbsent(course, rating) != null) return false;
+        //Remembered before the course counts it, a snapshot that covers the logged rating then covers the rater too
+        course.addRating(rating, this);
+        return true;
+    }
+
+    /**
+     * Remembers a rating without adding it to the course (used when loading saved data).
+     *
+     * @param course The rated course.
+     * @param rating The rating the student gave.
+     */
+    public void restoreRating(Course course, double rating){ ratedCourses.put(course, rating); }
+
+    /**
+     * Takes every rating the student gave back out of the rated courses (used when the student is deleted).
+     *
+     * @return The number of ratings removed.
+     */
+    public int removeAllRatings(){
+        int count = ratedCourses.size();
+        for(Map.Entry<Course, Double> rated : ratedCourses.entrySet()){
+            rated.getKey().removeRating(rated.getValue());
+        }
+        ratedCourses.clear();
+        return count;
+    }
+
+    /**
+     * Forgets the rating given to a course without touching the course (used when the course is deleted).
+     *
+     * @param course The rated course.
+     * @return true if the student had rated the course.
+     */
+    public boolean forgetRating(Course course){ return ratedCourses.remove(course) != null; }
+
+    /** @return An unmodifiable view of the ratings this student gave. Key: Course, Value: Rating. */
+    public Map<Course, Double> getRatedCourses(){ return Collections.unmodifiableMap(ratedCourses); }
+
+    //Sets a grade and moves the running total by the difference
+    private void putGrade(int courseId, double grade){
+        gradeTotal += grade - grades.get(courseId, 0.0);
+        grades.put(courseId, grade);
+    }
+
+    //Removes a grade and takes it out of the running total
+    private boolean removeGrade(int courseId){
+        if(!grades.containsKey(courseId)) return false;
+        gradeTotal -= grades.get(courseId, 0.0);
+        grades.remove(courseId);
+        if(grades.isEmpty()){
+            //No grades left, drop any rounding error the running total collected
+            gradeTotal = 0.0;
+        }
+        return true;
+    }
+
+    /** @return The leaderboard ranking this student, or null if the student is not ranked. */
+    public GpaLeaderboard getLeaderboard(){ return leaderboard; }
+
+    /**
+     * Sets the leaderboard to notify when the grades change.
+     * Called by {@link GpaLeaderboard#track(Student)} and {@link GpaLeaderboard#untrack(Student)}.
+     *
+     * @param leaderboard The leaderboard ranking this student, or null.
+     */
+    public void setLeaderboard(GpaLeaderboard leaderboard){ this.leaderboard = leaderboard; }
+
+    //Lets the leaderboard move the student to the rank of the new GPA
+    private void gradesChanged(){
+        GpaLeaderboard current = leaderboard;
+        if(current != null){
+            current.update(this);
         }
     }
 
     /**
      * Calculates the student's GPA.
+     * The sum of the grades is kept up to date by every grade change, so this is O(1).
      *
      * @return The mean of all course grades. Returns 0.0 if the student has no grades.
      */
     public double calculateGPA(){
         if(grades.isEmpty()) return 0.0;
-        double totalGrades = 0.0;
-        for(Double grade : grades.values()){
-            totalGrades += grade;
-        }
-        return totalGrades / grades.size();
+        return gradeTotal / grades.size();
     }
 
     //Prints all courses with the corresponding grade assigned to it and the total GPA
     private void viewGrades(){
-        for(Course course : grades.keySet()){
-            Double gradeObj = grades.get(course);
-            if(gradeObj == null){
+        for(Course course : getEnrolledCourses()){
+            if(!hasGrade(course)){
                 System.out.printf("%s: No grades available for this course.\n", course.getTitle());
             }
             else{
-                double grade = gradeObj;
+                double grade = getGrade(course);
                 System.out.printf("%s: %.1f\n", course.getTitle(), grade);
             }
         }
@@ -261,7 +456,8 @@ public class Student extends User implements Cloneable, Comparable<Student>{
     }
 
     //Prints all enrolled courses if found then asks the user to choose a course to drop
-    private void dropCourse() {
+    private void dropCourse(Platform platform) {
+        List<Course> enrolledCourses = getEnrolledCourses();
         if (enrolledCourses.isEmpty()) {
             System.out.println("No courses to drop.");
             return;
@@ -281,31 +477,46 @@ public class Student extends User implements Cloneable, Comparable<Student>{
 
             Course selected = enrolledCourses.get(option - 1);
 
-            try {
-                boolean dropped = selected.drop(this);
-                if (dropped) {
-                    removeCourseEnrollment(selected);
-                    System.out.println("Successfully dropped " + selected.getTitle());
-                }
+            CommandResult<Course> result = platform.getCommandService()
+                    .execute(new DropCommand(getUserId(), selected.getCourseID()));
+            if (result.isOk()) {
+                System.out.println(result.getMessage());
                 break;
-            } catch (UserNotFoundException e) {
-                System.out.println("Error: " + e.getMessage());
             }
+            System.out.println("Error: " + result.getMessage());
         }
     }
 
-    //Prints all available courses from platform if found then asks the user to choose a course to enroll in
-    private void enrollInNewCourse(Platform platform){
-        List<Course> availableCourses = platform.getCourses();
-
-        if(availableCourses.isEmpty()){
+    //Searches the courses by their title, modules and lessons (or lists them all) then asks the user to choose a course to enroll in
+    private void enrollInNewCourse(Platform platform, Scanner sc){
+        if(platform.getCourses().isEmpty()){
             System.out.println("No Courses available for enrollment at the moment.");
             return;
         }
 
-        SystemHelper.Choice choice = new SystemHelper.Choice("Choose a course to enroll in (Press 0 to go back): ");
+        SystemHelper.Choice choice = new SystemHelper.Choice("Choose a course to enroll in (Press 0 to search again): ");
 
         while (true){
+            System.out.print("Search courses by title, module or lesson (Press enter to list all courses, 0 to go back): ");
+            String query = sc.nextLine().trim();
+            if(query.equals("0")){
+                break;
+            }
+
+            List<Course> availableCourses = new ArrayList<>();
+            if(query.isEmpty()){
+                availableCourses.addAll(platform.getCourses());
+            }
+            else{
+                for(CourseSearchIndex.Result result : platform.searchCourses(query, CourseSearchIndex.Filter.ANY, MAX_COURSE_RESULTS)){
+                    availableCourses.add(result.getCourse());
+                }
+            }
+            if(availableCourses.isEmpty()){
+                System.out.println("No courses matched: " + query);
+                continue;
+            }
+
             for(int i = 0; i < availableCourses.size(); i++){
                 System.out.println((i+1) + ". " + availableCourses.get(i).courseInfo());
                 System.out.println("------------------------------");
@@ -313,26 +524,22 @@ public class Student extends User implements Cloneable, Comparable<Student>{
             int option = choice.ChoiceByInt(availableCourses.size());
 
             if(option == 0){
-                break;
+                continue;
             }
 
             Course selectedCourse = availableCourses.get(option-1);
 
-            try {
-                boolean enrolled = selectedCourse.enroll(this);
-                if(enrolled){
-                    addCourseEnrollment(selectedCourse);
-                    System.out.println("Successfully enrolled in: " + selectedCourse);
-                }
+            CommandResult<Course> result = platform.getCommandService()
+                    .execute(new EnrollCommand(getUserId(), selectedCourse.getCourseID()));
+            System.out.println(result.getMessage());
+            if(result.isOk()){
                 break;
-            } catch (AlreadyEnrolledException | CourseFullException e){
-                System.out.println(e.getMessage());
             }
         }
     }
 
     //prints all enrolled courses if found then asks the user to choose an operation on the course
-    private void viewEnrolledCourses(Scanner sc){
+    private void viewEnrolledCourses(Platform platform, Scanner sc){
         while (true){
             SystemHelper.Choice choice = new SystemHelper.Choice("Choose a course (Press 0 to go back): ",
                     "Error: You must choose a course.",
@@ -341,6 +548,7 @@ public class Student extends User implements Cloneable, Comparable<Student>{
 
             System.out.println();
 
+            List<Course> enrolledCourses = getEnrolledCourses();
             if(enrolledCourses.isEmpty()){
                 System.out.println("You are not enrolled in any course.");
                 return;
@@ -366,12 +574,11 @@ public class Student extends User implements Cloneable, Comparable<Student>{
                     break;
                 }
                 else if(option == 1){
-                    Double gradeObj = grades.get(course);
-                    if(gradeObj == null){
+                    if(!hasGrade(course)){
                         System.out.println("No grades available for this course.");
                     }
                     else{
-                        double grade = gradeObj;
+                        double grade = getGrade(course);
                         System.out.println("Grade for " + course.getTitle() + ": " + grade);
                     }
                     System.out.printf("Your current GPA: %.2f\n", calculateGPA());
@@ -385,13 +592,9 @@ public class Student extends User implements Cloneable, Comparable<Student>{
                     System.out.print("Enter rating (1-5): ");
                     double ratingInput = sc.nextDouble();
 
-                    if(ratingInput < 1 || ratingInput > 5){
-                        System.out.println("Error: Rating must be 1-5.");
-                        continue;
-                    }
-                    course.addRating(ratingInput);
-                    ratedCourses.put(course, ratingInput);
-                    System.out.printf("Rated %.1f | New course average rating: %.1f \n", ratingInput, course.getAverageRating());
+                    CommandResult<Double> result = platform.getCommandService()
+                            .execute(new RateCommand(getUserId(), course.getCourseID(), ratingInput));
+                    System.out.println(result.getMessage());
                 }
             }
         }
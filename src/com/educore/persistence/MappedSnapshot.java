@@ -0,0 +1,553 @@
+package com.educore.persistence;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.UserRole;
+import com.educore.interfaces.LazyLoader;
+import com.educore.model.*;
+import com.educore.model.Module;
+import com.educore.service.Platform;
+import com.educore.util.RatingAggregate;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A columnar snapshot of the platform that is read through {@link FileChannel#map} instead of being deserialized.
+ * Each field is stored as its own column (all the user ids, then all the user names, ...), with users and courses
+ * sorted by id so a row is found with a binary search on the id column. Enrollments, grades and ratings are edge lists
+ * in CSR form: a start column with one entry per row pointing into a flat column of values.
+ * Strings live in a heap section at the end of the file, the columns only hold their offsets.
+ * Key Features:
+ * Opening the file only maps it and checks the header, no object is built.
+ * It is the {@link LazyLoader} of the platform: a user or course is built the first time it is looked up.
+ * Building a student also builds its courses (without their other students), a course reserves the seats of its
+ * students and only builds them when its student list is asked for.
+ * A single mapping is limited to 2 GB, which is far more than 1M users and 50k courses need.
+ */
+
+public class MappedSnapshot implements LazyLoader {
+    private static final int MAGIC = 0x45445543; // "EDUC"
+    /** Version 2 added the rating sequence, version 1 files are still read. */
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 256;
+    /** Per course rating row: count, sum, sum of squares, the 5 star histogram and the rating sequence. */
+    private static final int RATING_WIDTH = 9 * 8;
+    private static final int RATING_WIDTH_V1 = 8 * 8;
+    private static final int STARS = RatingAggregate.MAX_STARS - RatingAggregate.MIN_STARS + 1;
+
+    //Position of each section in the offset table of the header
+    private static final int USER_IDS = 0;
+    private static final int USER_KINDS = 1;
+    private static final int USER_ROLES = 2;
+    private static final int USER_NAMES = 3;
+    private static final int USER_EMAILS = 4;
+    private static final int COURSE_IDS = 5;
+    private static final int COURSE_CAPACITIES = 6;
+    private static final int COURSE_PRICES = 7;
+    private static final int COURSE_LEVELS = 8;
+    private static final int COURSE_TITLES = 9;
+    private static final int COURSE_RATINGS = 10;
+    private static final int COURSE_MODULES = 11;
+    private static final int COURSE_EDGE_START = 12;
+    private static final int COURSE_EDGES = 13;
+    private static final int USER_LINK_START = 14;
+    private static final int USER_LINKS = 15;
+    private static final int GRADE_START = 16;
+    private static final int GRADE_COURSES = 17;
+    private static final int GRADE_VALUES = 18;
+    private static final int RATED_START = 19;
+    private static final int RATED_COURSES = 20;
+    private static final int RATED_VALUES = 21;
+    private static final int HEAP = 22;
+    private static final int SECTION_COUNT = 23;
+
+    private final MappedByteBuffer buffer;
+    private final Platform platform;
+    private final long lsn;
+    private final int userCount;
+    private final int courseCount;
+    private final int ratingWidth;
+    private final int[] sections = new int[SECTION_COUNT];
+
+    /** Which rows were already built, a row is built at most once. */
+    private final boolean[] userBuilt;
+    private final boolean[] courseBuilt;
+    /** Open addressing table from the email hash to (row + 1), built on the first email lookup. */
+    private int[] emailIndex;
+    private int builtUsers;
+
+    private MappedSnapshot(MappedByteBuffer buffer, Platform platform) throws IOException {
+        this.buffer = buffer;
+        this.platform = platform;
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || (buffer.getInt(4) != VERSION && buffer.getInt(4) != 1)){
+            throw new IOException("The file is not a columnar platform snapshot.");
+        }
+        this.ratingWidth = buffer.getInt(4) == VERSION ? RATING_WIDTH : RATING_WIDTH_V1;
+        this.lsn = buffer.getLong(8);
+        this.userCount = buffer.getInt(16);
+        this.courseCount = buffer.getInt(20);
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            long offset = buffer.getLong(24 + i * 8);
+            if(offset < HEADER_SIZE || offset > buffer.capacity()){
+                throw new IOException("The snapshot section table is damaged.");
+            }
+            sections[i] = (int) offset;
+        }
+        this.userBuilt = new boolean[userCount];
+        this.courseBuilt = new boolean[courseCount];
+    }
+
+    /**
+     * Maps a snapshot file, nothing is built until the platform asks for it.
+     *
+     * @param file     The snapshot file.
+     * @param platform The platform the built users and courses are added to.
+     * @return The mapped snapshot, to be set as the platform's {@link LazyLoader}.
+     * @throws IOException if the file can't be mapped or is not a snapshot.
+     */
+    public static MappedSnapshot open(Path file, Platform platform) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if(channel.size() > Integer.MAX_VALUE){
+                throw new IOException("The snapshot is bigger than one mapping (2 GB).");
+            }
+            return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), platform);
+        }
+    }
+
+    /** @return The lsn of the last log record the snapshot covers. */
+    public long getLsn(){ return lsn; }
+
+    /** @return The number of users saved in the snapshot. */
+    public int getUserCount(){ return userCount; }
+
+    /** @return The number of courses saved in the snapshot. */
+    public int getCourseCount(){ return courseCount; }
+
+    /** @return The number of saved users built into objects so far. */
+    public synchronized int getBuiltUserCount(){ return builtUsers; }
+
+    @Override
+    public synchronized User loadUser(int id){
+        int row = findRow(sections[USER_IDS], userCount, id);
+        if(row < 0) return null;
+        //Rows are built and registered under this monitor, so a built row is in the platform unless it was deleted
+        if(userBuilt[row]) return platform.findLoadedUser(id);
+        return buildUser(row);
+    }
+
+    @Override
+    public synchronized User loadUserByEmail(String email){
+        if(email == null) return null;
+        User built = platform.findLoadedUserByEmail(email);
+        if(built != null) return built;
+        if(emailIndex == null){
+            buildEmailIndex();
+        }
+        int mask = emailIndex.length - 1;
+        int slot = emailHash(email) & mask;
+        while (emailIndex[slot] != 0){
+            int row = emailIndex[slot] - 1;
+            if(!userBuilt[row] && email.equalsIgnoreCase(readString(sections[USER_EMAILS], row))){
+                return buildUser(row);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Course loadCourse(int id){
+        int row = findRow(sections[COURSE_IDS], courseCount, id);
+        if(row < 0) return null;
+        if(courseBuilt[row]) return platform.findLoadedCourse(id);
+        return buildCourse(row);
+    }
+
+    @Override
+    public synchronized void loadAll(){
+        //Going through the platform skips ids that were taken by users or courses added since the snapshot
+        for (int row = 0; row < courseCount; row++) {
+            if(!courseBuilt[row]){
+                int id = buffer.getInt(sections[COURSE_IDS] + row * 4);
+                if(platform.findCourseById(id) != null){
+                    courseBuilt[row] = true;
+                }
+            }
+        }
+        for (int row = 0; row < userCount; row++) {
+            if(!userBuilt[row]){
+                int id = buffer.getInt(sections[USER_IDS] + row * 4);
+                if(platform.findUserById(id) != null){
+                    userBuilt[row] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the platform in the columnar format, to a temporary file that is then renamed over the old one.
+     * Every user and course is built first (through {@link Platform#getUsers()}).
+     *
+     * @param file     Where to save the snapshot.
+     * @param lsn      The lsn of the last log record the state includes.
+     * @param platform The platform to save.
+     * @throws IOException if the file can't be written.
+     */
+    public static void write(Path file, long lsn, Platform platform) throws IOException {
+        List<User> users = new ArrayList<>(platform.getUsers());
+        List<Course> courses = new ArrayList<>(platform.getCourses());
+        users.sort(Comparator.comparingInt(User::getUserId));
+        courses.sort(Comparator.comparingInt(Course::getCourseID));
+        int n = users.size();
+        int m = courses.size();
+
+        ByteArrayOutputStream heapBytes = new ByteArrayOutputStream();
+        DataOutputStream heap = new DataOutputStream(heapBytes);
+
+        int[] userNames = new int[n];
+        int[] userEmails = new int[n];
+        int[] linkStart = new int[n + 1];
+        int[] gradeStart = new int[n + 1];
+        int[] ratedStart = new int[n + 1];
+        IntColumn links = new IntColumn();
+        IntColumn gradeCourses = new IntColumn();
+        DoubleColumn gradeValues = new DoubleColumn();
+        IntColumn ratedCourses = new IntColumn();
+        DoubleColumn ratedValues = new DoubleColumn();
+        for (int i = 0; i < n; i++) {
+            User user = users.get(i);
+            userNames[i] = writeHeapString(heap, heapBytes, user.getName());
+            userEmails[i] = writeHeapString(heap, heapBytes, user.getEmail());
+            if(user instanceof Student){
+                Student student = (Student) user;
+                for(Course course : student.getEnrolledCourses()){
+                    links.add(course.getCourseID());
+                }
+                student.forEachGrade((courseId, grade) -> {
+                    gradeCourses.add(courseId);
+                    gradeValues.add(grade);
+                });
+                for(Map.Entry<Course, Double> rated : student.getRatedCourses().entrySet()){
+                    ratedCourses.add(rated.getKey().getCourseID());
+                    ratedValues.add(rated.getValue());
+                }
+            }
+            else if(user instanceof Instructor){
+                for(Course course : ((Instructor) user).getTeachingCourses()){
+                    links.add(course.getCourseID());
+                }
+            }
+            linkStart[i + 1] = links.size;
+            gradeStart[i + 1] = gradeCourses.size;
+            ratedStart[i + 1] = ratedCourses.size;
+        }
+
+        int[] courseTitles = new int[m];
+        int[] courseModules = new int[m];
+        int[] edgeStart = new int[m + 1];
+        IntColumn edges = new IntColumn();
+        for (int i = 0; i < m; i++) {
+            Course course = courses.get(i);
+            courseTitles[i] = writeHeapString(heap, heapBytes, course.getTitle());
+            courseModules[i] = writeModules(heap, heapBytes, course.getModules());
+            for(Student student : course.getEnrolledStudents()){
+                edges.add(student.getUserId());
+            }
+            edgeStart[i + 1] = edges.size;
+        }
+        heap.flush();
+
+        long[] sizes = new long[SECTION_COUNT];
+        sizes[USER_IDS] = 4L * n;
+        sizes[USER_KINDS] = n;
+        sizes[USER_ROLES] = n;
+        sizes[USER_NAMES] = 4L * n;
+        sizes[USER_EMAILS] = 4L * n;
+        sizes[COURSE_IDS] = 4L * m;
+        sizes[COURSE_CAPACITIES] = 4L * m;
+        sizes[COURSE_PRICES] = 8L * m;
+        sizes[COURSE_LEVELS] = m;
+        sizes[COURSE_TITLES] = 4L * m;
+        sizes[COURSE_RATINGS] = (long) RATING_WIDTH * m;
+        sizes[COURSE_MODULES] = 4L * m;
+        sizes[COURSE_EDGE_START] = 4L * (m + 1);
+        sizes[COURSE_EDGES] = 4L * edges.size;
+        sizes[USER_LINK_START] = 4L * (n + 1);
+        sizes[USER_LINKS] = 4L * links.size;
+        sizes[GRADE_START] = 4L * (n + 1);
+        sizes[GRADE_COURSES] = 4L * gradeCourses.size;
+        sizes[GRADE_VALUES] = 8L * gradeValues.size;
+        sizes[RATED_START] = 4L * (n + 1);
+        sizes[RATED_COURSES] = 4L * ratedCourses.size;
+        sizes[RATED_VALUES] = 8L * ratedValues.size;
+        sizes[HEAP] = heapBytes.size();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            out.writeInt(n);
+            out.writeInt(m);
+            long offset = HEADER_SIZE;
+            for (int i = 0; i < SECTION_COUNT; i++) {
+                out.writeLong(offset);
+                offset += sizes[i];
+            }
+            if(offset > Integer.MAX_VALUE){
+                throw new IOException("The snapshot would be bigger than one mapping (2 GB).");
+            }
+            out.write(new byte[HEADER_SIZE - 24 - SECTION_COUNT * 8]);
+
+            for(User user : users) out.writeInt(user.getUserId());
+            for(User user : users) out.writeByte(SnapshotFile.kindOf(user));
+            for(User user : users) out.writeByte(user.getUserRole() == null ? -1 : user.getUserRole().ordinal());
+            for(int name : userNames) out.writeInt(name);
+            for(int email : userEmails) out.writeInt(email);
+
+            for(Course course : courses) out.writeInt(course.getCourseID());
+            for(Course course : courses) out.writeInt(course.getCapacity());
+            for(Course course : courses) out.writeDouble(course.getPrice());
+            for(Course course : courses) out.writeByte(course.getCourseLevel() == null ? -1 : course.getCourseLevel().ordinal());
+            for(int title : courseTitles) out.writeInt(title);
+            for(Course course : courses){
+                RatingAggregate ratings = course.getRatingAggregate();
+                synchronized (ratings){
+                    out.writeLong(ratings.getCount());
+                    out.writeDouble(ratings.getSum());
+                    out.writeDouble(ratings.getSumOfSquares());
+                    for(long stars : ratings.getDistribution()){
+                        out.writeLong(stars);
+                    }
+                    out.writeLong(ratings.getSequence());
+                }
+            }
+            for(int modules : courseModules) out.writeInt(modules);
+            for(int start : edgeStart) out.writeInt(start);
+            edges.writeTo(out);
+
+            for(int start : linkStart) out.writeInt(start);
+            links.writeTo(out);
+            for(int start : gradeStart) out.writeInt(start);
+            gradeCourses.writeTo(out);
+            gradeValues.writeTo(out);
+            for(int start : ratedStart) out.writeInt(start);
+            ratedCourses.writeTo(out);
+            ratedValues.writeTo(out);
+            heapBytes.writeTo(out);
+
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Builds the user of a row, links a student to its courses and restores its grades and ratings
+    private User buildUser(int row){
+        userBuilt[row] = true;
+        builtUsers++;
+        int id = buffer.getInt(sections[USER_IDS] + row * 4);
+        byte kind = buffer.get(sections[USER_KINDS] + row);
+        byte role = buffer.get(sections[USER_ROLES] + row);
+        String name = readString(sections[USER_NAMES], row);
+        String email = readString(sections[USER_EMAILS], row);
+
+        User user;
+        try {
+            user = SnapshotFile.createUser(kind, id, name, email, role < 0 ? null : UserRole.values()[role], platform);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+
+        int linkFrom = buffer.getInt(sections[USER_LINK_START] + row * 4);
+        int linkTo = buffer.getInt(sections[USER_LINK_START] + (row + 1) * 4);
+        if(user instanceof Student){
+            Student student = (Student) user;
+            for (int i = linkFrom; i < linkTo; i++) {
+                Course course = platform.findCourseById(buffer.getInt(sections[USER_LINKS] + i * 4));
+                if(course != null){
+                    course.attachLoadedStudent(student);
+                    student.addCourseEnrollment(course);
+                }
+            }
+            int gradeFrom = buffer.getInt(sections[GRADE_START] + row * 4);
+            int gradeTo = buffer.getInt(sections[GRADE_START] + (row + 1) * 4);
+            for (int i = gradeFrom; i < gradeTo; i++) {
+                student.restoreGrade(buffer.getInt(sections[GRADE_COURSES] + i * 4),
+                        buffer.getDouble(sections[GRADE_VALUES] + i * 8));
+            }
+            int ratedFrom = buffer.getInt(sections[RATED_START] + row * 4);
+            int ratedTo = buffer.getInt(sections[RATED_START] + (row + 1) * 4);
+            for (int i = ratedFrom; i < ratedTo; i++) {
+                Course course = platform.findCourseById(buffer.getInt(sections[RATED_COURSES] + i * 4));
+                if(course != null){
+                    student.restoreRating(course, buffer.getDouble(sections[RATED_VALUES] + i * 8));
+                }
+            }
+        }
+        else if(user instanceof Instructor){
+            for (int i = linkFrom; i < linkTo; i++) {
+                Course course = platform.findCourseById(buffer.getInt(sections[USER_LINKS] + i * 4));
+                if(course != null){
+                    ((Instructor) user).restoreTeachingCourse(course);
+                }
+            }
+        }
+        platform.addLoadedUser(user);
+        return user;
+    }
+
+    //Builds the course of a row without its students, their seats are reserved until the student list is needed
+    private Course buildCourse(int row){
+        courseBuilt[row] = true;
+        int id = buffer.getInt(sections[COURSE_IDS] + row * 4);
+        int capacity = buffer.getInt(sections[COURSE_CAPACITIES] + row * 4);
+        double price = buffer.getDouble(sections[COURSE_PRICES] + row * 8);
+        byte level = buffer.get(sections[COURSE_LEVELS] + row);
+        String title = readString(sections[COURSE_TITLES], row);
+        Course course = new Course(id, capacity, title, price, level < 0 ? null : CourseLevel.values()[level]);
+
+        int ratingRow = sections[COURSE_RATINGS] + row * ratingWidth;
+        long[] distribution = new long[STARS];
+        for (int i = 0; i < STARS; i++) {
+            distribution[i] = buffer.getLong(ratingRow + 24 + i * 8);
+        }
+        long count = buffer.getLong(ratingRow);
+        //A version 1 row has no sequence, the count is the closest value
+        long sequence = ratingWidth == RATING_WIDTH ? buffer.getLong(ratingRow + 24 + STARS * 8) : count;
+        course.getRatingAggregate().restore(count, buffer.getDouble(ratingRow + 8),
+                buffer.getDouble(ratingRow + 16), distribution, sequence);
+
+        course.restoreModules(readModules(buffer.getInt(sections[COURSE_MODULES] + row * 4)));
+
+        int edgeFrom = buffer.getInt(sections[COURSE_EDGE_START] + row * 4);
+        int edgeTo = buffer.getInt(sections[COURSE_EDGE_START] + (row + 1) * 4);
+        course.setPendingStudents(edgeTo - edgeFrom, () -> loadStudents(edgeFrom, edgeTo));
+        platform.addLoadedCourse(course);
+        return course;
+    }
+
+    //Builds every student of a course that is not built yet, each one takes its reserved seat
+    private void loadStudents(int edgeFrom, int edgeTo){
+        for (int i = edgeFrom; i < edgeTo; i++) {
+            platform.findUserById(buffer.getInt(sections[COURSE_EDGES] + i * 4));
+        }
+    }
+
+    private void buildEmailIndex(){
+        int capacity = Integer.highestOneBit(Math.max(4, userCount * 2 - 1) << 1);
+        emailIndex = new int[capacity];
+        int mask = capacity - 1;
+        for (int row = 0; row < userCount; row++) {
+            String email = readString(sections[USER_EMAILS], row);
+            if(email == null) continue;
+            int slot = emailHash(email) & mask;
+            while (emailIndex[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            emailIndex[slot] = row + 1;
+        }
+    }
+
+    private static int emailHash(String email){
+        int h = email.toLowerCase(Locale.ROOT).hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    //Binary search over a sorted int column
+    private int findRow(int column, int count, int id){
+        int low = 0;
+        int high = count - 1;
+        while (low <= high){
+            int mid = (low + high) >>> 1;
+            int value = buffer.getInt(column + mid * 4);
+            if(value < id) low = mid + 1;
+            else if(value > id) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    //Reads the string whose heap offset is stored at the given row of an offset column
+    private String readString(int column, int row){
+        int offset = buffer.getInt(column + row * 4);
+        if(offset < 0) return null;
+        int position = sections[HEAP] + offset;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ArrayList<Module> readModules(int offset){
+        if(offset < 0) return new ArrayList<>();
+        int position = sections[HEAP] + offset;
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))){
+            return SnapshotFile.readModules(in);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Appends a length prefixed UTF-8 string to the heap, returns its offset or -1 for null
+    private static int writeHeapString(DataOutputStream heap, ByteArrayOutputStream heapBytes, String value) throws IOException {
+        if(value == null) return -1;
+        heap.flush();
+        int offset = heapBytes.size();
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        heap.writeInt(bytes.length);
+        heap.write(bytes);
+        return offset;
+    }
+
+    //Appends the modules and lessons of a course as one length prefixed blob, returns its offset or -1 if there are none
+    private static int writeModules(DataOutputStream heap, ByteArrayOutputStream heapBytes, List<Module> modules) throws IOException {
+        if(modules.isEmpty()) return -1;
+        ByteArrayOutputStream blobBytes = new ByteArrayOutputStream();
+        DataOutputStream blob = new DataOutputStream(blobBytes);
+        SnapshotFile.writeModules(blob, modules);
+        blob.flush();
+        heap.flush();
+        int offset = heapBytes.size();
+        heap.writeInt(blobBytes.size());
+        blobBytes.writeTo(heap);
+        return offset;
+    }
+
+    /** A growable int column used while writing. */
+    private static class IntColumn {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value){
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) out.writeInt(values[i]);
+        }
+    }
+
+    /** A growable double column used while writing. */
+    private static class DoubleColumn {
+        double[] values = new double[16];
+        int size;
+
+        void add(double value){
+            if(size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) out.writeDouble(values[i]);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.educore.persistence;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.MutationType;
+import com.educore.enums.UserRole;
+import com.educore.interfaces.MutationListener;
+import com.educore.model.*;
+import com.educore.model.Module;
+import com.educore.service.MetricsRegistry;
+import com.educore.service.Platform;
+import com.educore.service.PlatformEvents;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves the platform to disk and brings it back on the next start.
+ * It combines a {@link MappedSnapshot} with a {@link WriteAheadLog}:
+ * Startup maps the last snapshot (users and courses are only built when first used) and replays the log records
+ * written after it. A data folder saved in the older {@link SnapshotFile} format is still loaded and converted
+ * at the first checkpoint.
+ * While running it listens to {@link PlatformEvents} and appends one log record per change
+ * (new users, enrollments, grades, ratings, course content, ...), waiting for the group commit fsync before returning.
+ * A change that can't be saved is not hidden: the listener throws an {@link UncheckedIOException} to the code
+ * that made the change.
+ * A change made under the platform's write lock is appended there, so the log keeps the order of the changes,
+ * but its fsync is only waited for once the lock is released ({@link #deferSync()}), so the writers don't queue
+ * behind the disk and still share one fsync.
+ * Every {@code checkpointInterval} records (and on {@link #close()}) it saves a new snapshot
+ * and deletes the log segments the snapshot covers, so replay stays short. The checkpoint runs on its own thread:
+ * the listeners are called while the platform's write lock may be held, and a snapshot needs that lock to build
+ * lazily loaded users.
+ * Replaying a record that is already part of the snapshot changes nothing (every record is idempotent),
+ * so a change that lands while a snapshot is being written is never applied twice. A rating is recognised by
+ * the sequence number the course gave it, the snapshot holds exactly the ratings up to the sequence it saved.
+ */
+
+public class PlatformStore implements MutationListener, AutoCloseable {
+    /** The default number of log records between two snapshots. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static final String SNAPSHOT_FILE = "snapshot.col";
+    private static final String LEGACY_SNAPSHOT_FILE = "snapshot.bin";
+    /** Counts the background checkpoints that failed, {@link #getCheckpointFailure()} tells why the last one did. */
+    private static final MetricsRegistry.Counter CHECKPOINT_FAILED = MetricsRegistry.shared().counter("store.checkpoint.failed");
+
+    private final Path directory;
+    private final Platform platform;
+    private final int checkpointInterval;
+    private final boolean syncWrites;
+
+    private WriteAheadLog log;
+    private boolean fresh;
+    /** true if the state on disk is not a columnar snapshot yet (nothing saved, replayed records or the old format). */
+    private boolean needsCheckpoint;
+    private final AtomicLong recordsSinceCheckpoint = new AtomicLong();
+    /** Runs the checkpoints asked for by the listeners, one at a time. */
+    private final ExecutorService checkpointer;
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+    /** Why the last background checkpoint failed, null if it succeeded (or none ran yet). */
+    private volatile Exception checkpointFailure;
+    /** Per thread: how deep it is in {@link #deferSync()} calls, and the last lsn it appended without waiting for it. */
+    private final ThreadLocal<long[]> deferred = ThreadLocal.withInitial(() -> new long[2]);
+    /** While replaying: the rating sequence each course had in the snapshot, ratings up to it are already counted. */
+    private final Map<Integer, Long> snapshotRatingSequences = new HashMap<>();
+
+    private PlatformStore(Path directory, Platform platform, int checkpointInterval, boolean syncWrites){
+        this.directory = directory;
+        this.platform = platform;
+        this.checkpointInterval = checkpointInterval;
+        this.syncWrites = syncWrites;
+        this.checkpointer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "platform-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the saved state into an empty platform: the snapshot first, then the log records after it.
+     * The columnar snapshot is only mapped, it becomes the platform's {@link com.educore.interfaces.LazyLoader}.
+     * Call {@link #start()} afterwards to begin saving new changes.
+     *
+     * @param directory The folder holding the snapshot and the log.
+     * @param platform  The platform to fill.
+     * @return The store, {@link #isFresh()} tells whether anything was loaded.
+     * @throws IOException if the saved data can't be read.
+     */
+    public static PlatformStore open(Path directory, Platform platform) throws IOException {
+        return open(directory, platform, DEFAULT_CHECKPOINT_INTERVAL, true);
+    }
+
+    /**
+     * @param checkpointInterval The number of log records between two snapshots.
+     * @param syncWrites         true to wait for the fsync of every change before returning to the caller.
+     * @see #open(Path, Platform)
+     */
+    public static PlatformStore open(Path directory, Platform platform, int checkpointInterval,
+                                     boolean syncWrites) throws IOException {
+        Files.createDirectories(directory);
+        PlatformStore store = new PlatformStore(directory, platform, checkpointInterval, syncWrites);
+
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path legacySnapshot = directory.resolve(LEGACY_SNAPSHOT_FILE);
+        long snapshotLsn = 0;
+        boolean hasSnapshot = Files.exists(snapshot);
+        boolean hasLegacySnapshot = !hasSnapshot && Files.exists(legacySnapshot);
+        if(hasSnapshot){
+            MappedSnapshot mapped = MappedSnapshot.open(snapshot, platform);
+            platform.setLazyLoader(mapped);
+            snapshotLsn = mapped.getLsn();
+        }
+        else if(hasLegacySnapshot){
+            snapshotLsn = SnapshotFile.read(legacySnapshot, platform);
+        }
+        long lastLsn = WriteAheadLog.replay(directory, snapshotLsn, store::apply);
+        store.snapshotRatingSequences.clear();
+
+        store.fresh = !hasSnapshot && !hasLegacySnapshot && lastLsn == 0;
+        store.needsCheckpoint = !hasSnapshot || lastLsn > snapshotLsn;
+        store.log = WriteAheadLog.open(directory, lastLsn + 1, 0);
+        return store;
+    }
+
+    /** @return true if there was no saved state to load. */
+    public boolean isFresh(){ return fresh; }
+
+    /**
+     * A background checkpoint that fails is counted in the {@code store.checkpoint.failed} metric and kept here,
+     * the changes stay in the log and the next checkpoint tries again.
+     *
+     * @return Why the last background checkpoint failed, or null if it succeeded.
+     */
+    public Exception getCheckpointFailure(){ return checkpointFailure; }
+
+    /**
+     * Starts logging every change. A snapshot is saved first if the loaded state isn't one already,
+     * a clean start from a columnar snapshot skips it so nothing is built up front.
+     *
+     * @throws IOException if the snapshot can't be saved.
+     */
+    public void start() throws IOException {
+        if(needsCheckpoint){
+            checkpoint();
+        }
+        PlatformEvents.addListener(this);
+    }
+
+    /**
+     * Saves a snapshot and deletes the log segments it covers.
+     * Every user and course that is still only on disk gets built first.
+     *
+     * @throws IOException if the snapshot can't be saved.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long lsn = log.rotate();
+        MappedSnapshot.write(directory.resolve(SNAPSHOT_FILE), lsn, platform);
+        log.deleteSegmentsUpTo(lsn);
+        Files.deleteIfExists(directory.resolve(LEGACY_SNAPSHOT_FILE));
+        recordsSinceCheckpoint.set(0);
+        needsCheckpoint = false;
+    }
+
+    /**
+     * From now on the changes of this thread are appended to the log without waiting for their fsync,
+     * until the matching {@link #awaitDeferred()}. The calls nest, only the outermost one waits.
+     */
+    public void deferSync(){
+        deferred.get()[0]++;
+    }
+
+    /**
+     * Ends a {@link #deferSync()}, the outermost one waits for the fsync of every record appended meanwhile.
+     *
+     * @throws UncheckedIOException if the records could not be saved.
+     */
+    public void awaitDeferred(){
+        long[] state = deferred.get();
+        if(--state[0] > 0) return;
+        long lsn = state[1];
+        state[1] = 0;
+        if(lsn == 0 || !syncWrites) return;
+        try {
+            log.awaitDurable(lsn);
+        } catch (IOException e){
+            throw new UncheckedIOException("The changes up to lsn " + lsn + " could not be saved", e);
+        }
+    }
+
+    /** Stops logging, waits for a running checkpoint, saves a final snapshot and closes the log. */
+    @Override
+    public void close() throws IOException {
+        PlatformEvents.removeListener(this);
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        try {
+            checkpoint();
+        } finally {
+            log.close();
+        }
+    }
+
+    @Override
+    public void userAdded(User user){
+        write(MutationType.USER_ADDED, out -> {
+            out.writeByte(SnapshotFile.kindOf(user));
+            out.writeByte(user.getUserRole() == null ? -1 : user.getUserRole().ordinal());
+            out.writeInt(user.getUserId());
+            SnapshotFile.writeString(out, user.getName());
+            SnapshotFile.writeString(out, user.getEmail());
+        });
+    }
+
+    @Override
+    public void userRemoved(User user){
+        write(MutationType.USER_REMOVED, out -> out.writeInt(user.getUserId()));
+    }
+
+    @Override
+    public void courseAdded(Course course){
+        write(MutationType.COURSE_ADDED, out -> {
+            out.writeInt(course.getCourseID());
+            out.writeInt(course.getCapacity());
+            SnapshotFile.writeString(out, course.getTitle());
+            out.writeDouble(course.getPrice());
+            out.writeByte(course.getCourseLevel() == null ? -1 : course.getCourseLevel().ordinal());
+        });
+    }
+
+    @Override
+    public void courseRemoved(Course course){
+        write(MutationType.COURSE_REMOVED, out -> out.writeInt(course.getCourseID()));
+    }
+
+    @Override
+    public void courseContentChanged(Course course){
+        write(MutationType.COURSE_CONTENT_CHANGED, out -> {
+            out.writeInt(course.getCourseID());
+            SnapshotFile.writeString(out, course.getTitle());
+            SnapshotFile.writeModules(out, course.getModules());
+        });
+    }
+
+    @Override
+    public void courseLevelChanged(Course course){
+        write(MutationType.COURSE_LEVEL_CHANGED, out -> {
+            out.writeInt(course.getCourseID());
+            out.writeByte(course.getCourseLevel() == null ? -1 : course.getCourseLevel().ordinal());
+        });
+    }
+
+    @Override
+    public void teachingCourseAdded(Instructor instructor, Course course){
+        write(MutationType.TEACHING_COURSE_ADDED, out -> {
+            out.writeInt(instructor.getUserId());
+            out.writeInt(course.getCourseID());
+        });
+    }
+
+    @Override
+    public void enrolled(Course course, Student student){
+        write(MutationType.ENROLLED, out -> {
+            out.writeInt(course.getCourseID());
+            out.writeInt(student.getUserId());
+        });
+    }
+
+    @Override
+    public void dropped(Course course, Student student){
+        write(MutationType.DROPPED, out -> {
+            out.writeInt(course.getCourseID());
+            out.writeInt(student.getUserId());
+        });
+    }
+
+    @Override
+    public void gradeChanged(Student student, Course course, double grade){
+        write(MutationType.GRADE_CHANGED, out -> {
+            out.writeInt(student.getUserId());
+            out.writeInt(course.getCourseID());
+            out.writeDouble(grade);
+        });
+    }
+
+    @Override
+    public void rated(Course course, Student rater, double rating, long sequence){
+        write(MutationType.RATED, out -> {
+            out.writeInt(course.getCourseID());
+            out.writeInt(rater == null ? -1 : rater.getUserId());
+            out.writeDouble(rating);
+            out.writeLong(sequence);
+        });
+    }
+
+    //Appends a record, waits for its fsync (unless it is deferred) and asks for a snapshot when enough records piled up
+    private void write(MutationType type, WriteAheadLog.Payload payload){
+        try {
+            long lsn = log.append(type, payload);
+            long[] state = deferred.get();
+            if(state[0] > 0){
+                state[1] = lsn;
+            }
+            else if(syncWrites){
+                log.awaitDurable(lsn);
+            }
+        } catch (IOException e){
+            throw new UncheckedIOException("The change (" + type + ") could not be saved", e);
+        }
+        if(recordsSinceCheckpoint.incrementAndGet() >= checkpointInterval && checkpointQueued.compareAndSet(false, true)){
+            checkpointer.execute(this::backgroundCheckpoint);
+        }
+    }
+
+    //Runs on the checkpoint thread, no lock of the platform is held here
+    private void backgroundCheckpoint(){
+        checkpointQueued.set(false);
+        try {
+            checkpoint();
+            checkpointFailure = null;
+        } catch (IOException | UncheckedIOException e){
+            //The changes are still in the log, the next checkpoint tries again
+            checkpointFailure = e;
+            CHECKPOINT_FAILED.increment();
+        }
+    }
+
+    //Applies one replayed record to the platform, skipping it if the platform already has the change
+    private void apply(long lsn, MutationType type, DataInputStream in) throws IOException {
+        switch (type){
+            case USER_ADDED: {
+                byte kind = in.readByte();
+                byte role = in.readByte();
+                int id = in.readInt();
+                String name = SnapshotFile.readString(in);
+                String email = SnapshotFile.readString(in);
+                if(platform.findUserById(id) == null){
+                    platform.addUser(SnapshotFile.createUser(kind, id, name, email,
+                            role < 0 ? null : UserRole.values()[role], platform));
+                }
+                break;
+            }
+            case USER_REMOVED: {
+                User user = platform.findUserById(in.readInt());
+                if(user != null){
+                    platform.deleteUser(user);
+                }
+                break;
+            }
+            case COURSE_ADDED: {
+                int id = in.readInt();
+                int capacity = in.readInt();
+                String title = SnapshotFile.readString(in);
+                double price = in.readDouble();
+                byte level = in.readByte();
+                if(platform.findCourseById(id) == null){
+                    platform.addCourse(new Course(id, capacity, title, price,
+                            level < 0 ? null : CourseLevel.values()[level]));
+                }
+                break;
+            }
+            case COURSE_REMOVED: {
+                int id = in.readInt();
+                Course course = platform.findCourseById(id);
+                if(course != null){
+                    platform.deleteCourse(course);
+                }
+                snapshotRatingSequences.remove(id);
+                break;
+            }
+            case COURSE_CONTENT_CHANGED: {
+                Course course = platform.findCourseById(in.readInt());
+                String title = SnapshotFile.readString(in);
+                ArrayList<Module> modules = SnapshotFile.readModules(in);
+                if(course != null){
+                    course.setTitle(title);
+                    course.setModules(modules);
+                }
+                break;
+            }
+            case COURSE_LEVEL_CHANGED: {
+                Course course = platform.findCourseById(in.readInt());
+                byte level = in.readByte();
+                if(course != null){
+                    course.setCourseLevel(level < 0 ? null : CourseLevel.values()[level]);
+                }
+                break;
+            }
+            case TEACHING_COURSE_ADDED: {
+                User user = platform.findUserById(in.readInt());
+                Course course = platform.findCourseById(in.readInt());
+                if(user instanceof Instructor && course != null
+                        && !((Instructor) user).getTeachingCourses().contains(course)){
+                    ((Instructor) user).addTeachingCourse(course);
+                }
+                break;
+            }
+            case ENROLLED: {
+                Course course = platform.findCourseById(in.readInt());
+                User user = platform.findUserById(in.readInt());
+                if(course != null && user instanceof Student){
+                    Student student = (Student) user;
+                    if(course.restoreEnrollment(student)){
+                        student.addCourseEnrollment(course);
+                    }
+                }
+                break;
+            }
+            case DROPPED: {
+                Course course = platform.findCourseById(in.readInt());
+                User user = platform.findUserById(in.readInt());
+                if(course != null && user instanceof Student){
+                    course.removeEnrollment((Student) user);
+                    ((Student) user).removeCourseEnrollment(course);
+                }
+                break;
+            }
+            case GRADE_CHANGED: {
+                User user = platform.findUserById(in.readInt());
+                int courseId = in.readInt();
+                double grade = in.readDouble();
+                if(user instanceof Student){
+                    ((Student) user).restoreGrade(courseId, grade);
+                }
+                break;
+            }
+            case RATED: {
+                Course course = platform.findCourseById(in.readInt());
+                User rater = platform.findUserById(in.readInt());
+                double rating = in.readDouble();
+                long sequence = in.readLong();
+                if(course == null) break;
+                //Read before the first replayed rating of the course changes it
+                long saved = snapshotRatingSequences.computeIfAbsent(course.getCourseID(),
+                        id -> course.getRatingAggregate().getSequence());
+                if(sequence > saved){
+                    course.getRatingAggregate().replay(rating, sequence);
+                }
+                if(rater instanceof Student){
+                    ((Student) rater).restoreRating(course, rating);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown log record type " + type + " at lsn " + lsn);
+        }
+    }
+}
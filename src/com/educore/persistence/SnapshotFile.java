@@ -0,0 +1,210 @@
+package com.educore.persistence;
+
+import com.educore.enums.CourseLevel;
+import com.educore.enums.UserRole;
+import com.educore.model.*;
+import com.educore.model.Module;
+import com.educore.service.Platform;
+import com.educore.util.RatingAggregate;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The first snapshot format: a stream holding the whole platform state at one point of the write-ahead log.
+ * It holds the users, the courses with their modules, lessons and rating aggregates,
+ * the enrollments of both sides, the grades, the ratings each student gave and the courses each instructor teaches.
+ * New snapshots are saved as a {@link MappedSnapshot}, this class only reads old data folders
+ * and holds the helpers shared by the log records.
+ */
+
+public final class SnapshotFile {
+    private static final int MAGIC = 0x45445553; // "EDUS"
+    private static final int VERSION = 1;
+
+    /** The kind of user, written instead of the class name. */
+    static final byte STUDENT = 0;
+    static final byte INSTRUCTOR = 1;
+    static final byte ADMIN = 2;
+
+    private SnapshotFile(){}
+
+    /**
+     * Loads a snapshot into an empty platform.
+     *
+     * @param file     The snapshot to load.
+     * @param platform The platform to fill.
+     * @return The lsn of the last log record the snapshot covers.
+     * @throws IOException if the file can't be read or is not a snapshot.
+     */
+    public static long read(Path file, Platform platform) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException(file + " is not a platform snapshot.");
+            }
+            long lsn = in.readLong();
+
+            int userCount = in.readInt();
+            List<User> users = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                byte kind = in.readByte();
+                byte role = in.readByte();
+                int id = in.readInt();
+                String name = readString(in);
+                String email = readString(in);
+                User user = createUser(kind, id, name, email, role < 0 ? null : UserRole.values()[role], platform);
+                users.add(user);
+                platform.addUser(user);
+            }
+
+            int courseCount = in.readInt();
+            int[][] courseStudents = new int[courseCount][];
+            List<Course> courses = new ArrayList<>(courseCount);
+            for (int i = 0; i < courseCount; i++) {
+                Course course = readCourse(in);
+                int enrolled = in.readInt();
+                courseStudents[i] = new int[enrolled];
+                for (int j = 0; j < enrolled; j++) {
+                    courseStudents[i][j] = in.readInt();
+                }
+                courses.add(course);
+                platform.addCourse(course);
+            }
+            for (int i = 0; i < courseCount; i++) {
+                for(int studentId : courseStudents[i]){
+                    User user = platform.findUserById(studentId);
+                    if(user instanceof Student){
+                        courses.get(i).restoreEnrollment((Student) user);
+                    }
+                }
+            }
+
+            for(User user : users){
+                if(user instanceof Instructor){
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        Course course = platform.findCourseById(in.readInt());
+                        if(course != null){
+                            ((Instructor) user).restoreTeachingCourse(course);
+                        }
+                    }
+                }
+                else if(user instanceof Student){
+                    readStudent(in, (Student) user, platform);
+                }
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Builds a user of the right class from its saved kind.
+     *
+     * @return The new user.
+     * @throws IOException if the kind is unknown.
+     */
+    static User createUser(byte kind, int id, String name, String email, UserRole role, Platform platform) throws IOException {
+        switch (kind){
+            case STUDENT:
+                return new Student(id, name, email, role);
+            case INSTRUCTOR:
+                return new Instructor(id, name, email, role);
+            case ADMIN:
+                return new Admin(id, name, email, role, platform);
+            default:
+                throw new IOException("Unknown user kind: " + kind);
+        }
+    }
+
+    /** @return The kind byte of a user, see {@link #createUser}. */
+    static byte kindOf(User user){
+        if(user instanceof Instructor) return INSTRUCTOR;
+        if(user instanceof Admin) return ADMIN;
+        return STUDENT;
+    }
+
+    /** Writes a string that may be null. */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) out.writeUTF(value);
+    }
+
+    /** Reads a string written by {@link #writeString}. */
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /** Writes the modules of a course with their lessons. */
+    static void writeModules(DataOutputStream out, List<Module> modules) throws IOException {
+        out.writeInt(modules.size());
+        for(Module module : modules){
+            writeString(out, module.getTitle());
+            List<Lesson> lessons = module.getLessonsList();
+            out.writeInt(lessons.size());
+            for(Lesson lesson : lessons){
+                writeString(out, lesson.getTitle());
+                out.writeInt(lesson.getDurationMinutes());
+            }
+        }
+    }
+
+    /** Reads the modules written by {@link #writeModules}. */
+    static ArrayList<Module> readModules(DataInputStream in) throws IOException {
+        int moduleCount = in.readInt();
+        ArrayList<Module> modules = new ArrayList<>(moduleCount);
+        for (int i = 0; i < moduleCount; i++) {
+            Module module = new Module(readString(in));
+            int lessonCount = in.readInt();
+            for (int j = 0; j < lessonCount; j++) {
+                module.addLesson(new Lesson(readString(in), in.readInt()));
+            }
+            modules.add(module);
+        }
+        return modules;
+    }
+
+    private static Course readCourse(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        int capacity = in.readInt();
+        String title = readString(in);
+        double price = in.readDouble();
+        byte level = in.readByte();
+        Course course = new Course(id, capacity, title, price, level < 0 ? null : CourseLevel.values()[level]);
+
+        long count = in.readLong();
+        double sum = in.readDouble();
+        double sumOfSquares = in.readDouble();
+        long[] distribution = new long[RatingAggregate.MAX_STARS - RatingAggregate.MIN_STARS + 1];
+        for (int i = 0; i < distribution.length; i++) {
+            distribution[i] = in.readLong();
+        }
+        course.getRatingAggregate().restore(count, sum, sumOfSquares, distribution);
+
+        course.restoreModules(readModules(in));
+        return course;
+    }
+
+    private static void readStudent(DataInputStream in, Student student, Platform platform) throws IOException {
+        int enrolledCount = in.readInt();
+        for (int i = 0; i < enrolledCount; i++) {
+            Course course = platform.findCourseById(in.readInt());
+            if(course != null){
+                student.addCourseEnrollment(course);
+            }
+        }
+        int gradeCount = in.readInt();
+        for (int i = 0; i < gradeCount; i++) {
+            int courseId = in.readInt();
+            student.restoreGrade(courseId, in.readDouble());
+        }
+        int ratedCount = in.readInt();
+        for (int i = 0; i < ratedCount; i++) {
+            Course course = platform.findCourseById(in.readInt());
+            double rating = in.readDouble();
+            if(course != null){
+                student.restoreRating(course, rating);
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.educore.persistence;
+
+import com.educore.enums.MutationType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of every change made to the platform, so nothing is lost if the program stops.
+ * Each change is one record: {@code [int length][int crc32][long lsn][byte type][payload]}.
+ * The lsn (log sequence number) grows by one for every record.
+ * Key Features:
+ * Group commit: appending only copies the record into a memory buffer, a background committer thread writes
+ * everything that piled up while the previous fsync was running with a single write and a single fsync.
+ * Callers that need durability wait with {@link #awaitDurable(long)}, many callers share one fsync.
+ * Segments: the log is split in files named {@code wal-<first lsn>.log}. A checkpoint starts a new segment
+ * ({@link #rotate()}) and deletes the old ones once the snapshot is saved.
+ * Torn writes: a record cut short by a crash fails its length or CRC check, replay stops there and
+ * cuts it off, so the log always ends with the last complete record.
+ */
+
+public class WriteAheadLog implements AutoCloseable {
+    /** Writes the payload of a record. */
+    public interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** Receives the records during {@link #replay}. */
+    public interface RecordHandler {
+        void handle(long lsn, MutationType type, DataInputStream payload) throws IOException;
+    }
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    /** Frame header: length + crc. */
+    private static final int HEADER_SIZE = 8;
+    /** A record bigger than this is treated as garbage left by a crash. */
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final long groupCommitNanos;
+
+    /** Guards the pending buffer and the lsn counters, appenders only take this lock. */
+    private final Object bufferLock = new Object();
+    /** Guards the current segment, only the committer, {@link #rotate()} and {@link #close()} take it. */
+    private final Object segmentLock = new Object();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private long nextLsn;
+    private long durableLsn;
+    private FileChannel segment;
+    private IOException failure;
+    private volatile boolean closed;
+    private final Thread committer;
+
+    private WriteAheadLog(Path directory, long nextLsn, long groupCommitNanos) throws IOException {
+        this.directory = directory;
+        this.nextLsn = nextLsn;
+        this.durableLsn = nextLsn - 1;
+        this.groupCommitNanos = groupCommitNanos;
+        this.segment = openSegment(nextLsn);
+        this.committer = new Thread(this::commitLoop, "wal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Opens the log for appending, starting a new segment.
+     *
+     * @param directory       The folder holding the segments.
+     * @param nextLsn         The lsn of the first record appended (one after the last replayed record).
+     * @param groupCommitMicros How long the committer waits for more records before an fsync, 0 doesn't wait.
+     * @return The opened log.
+     * @throws IOException if the segment can't be created.
+     */
+    public static WriteAheadLog open(Path directory, long nextLsn, long groupCommitMicros) throws IOException {
+        Files.createDirectories(directory);
+        return new WriteAheadLog(directory, nextLsn, groupCommitMicros * 1000);
+    }
+
+    /**
+     * Adds a record to the log. The record is in memory until {@link #awaitDurable(long)} returns for its lsn.
+     *
+     * @param type    The kind of change.
+     * @param payload Writes the data of the change.
+     * @return The lsn of the record.
+     * @throws IOException if the committer failed to write an earlier batch, or the payload failed.
+     */
+    public long append(MutationType type, Payload payload) throws IOException {
+        synchronized (bufferLock){
+            if(failure != null) throw failure;
+            if(closed) throw new IOException("The write-ahead log is closed.");
+
+            //The payload is written first, one that fails takes no lsn and leaves nothing in the pending buffer
+            recordBytes.reset();
+            recordOut.writeLong(0); //The lsn, filled in below
+            recordOut.writeByte(type.getCode());
+            try {
+                payload.write(recordOut);
+                recordOut.flush();
+            } catch (IOException | RuntimeException e){
+                recordBytes.reset();
+                throw e;
+            }
+            byte[] body = recordBytes.toByteArray();
+            long lsn = nextLsn++;
+            for (int i = 0; i < 8; i++) {
+                body[i] = (byte) (lsn >>> (56 - 8 * i));
+            }
+
+            crc.reset();
+            crc.update(body, 0, body.length);
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(body.length);
+            out.writeInt((int) crc.getValue());
+            out.write(body);
+
+            bufferLock.notifyAll();
+            return lsn;
+        }
+    }
+
+    /**
+     * Blocks until the record with the given lsn (and every record before it) is fsynced to disk.
+     *
+     * @param lsn The lsn returned by {@link #append}.
+     * @throws IOException if the write or the fsync failed.
+     */
+    public void awaitDurable(long lsn) throws IOException {
+        synchronized (bufferLock){
+            while (durableLsn < lsn){
+                if(failure != null) throw failure;
+                if(closed) throw new IOException("The write-ahead log was closed before the record was saved.");
+                try {
+                    bufferLock.wait();
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the write-ahead log.");
+                }
+            }
+        }
+    }
+
+    /** @return The lsn of the last appended record, 0 if there is none. */
+    public long getLastLsn(){
+        synchronized (bufferLock){
+            return nextLsn - 1;
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything appended so far, then starts a new segment.
+     * Used by checkpoints: every record up to the returned lsn is in the old segments.
+     *
+     * @return The lsn of the last record in the old segments.
+     * @throws IOException if writing or creating the new segment failed.
+     */
+    public long rotate() throws IOException {
+        synchronized (segmentLock){
+            long lastLsn = writePending();
+            segment.close();
+            segment = openSegment(lastLsn + 1);
+            return lastLsn;
+        }
+    }
+
+    /**
+     * Deletes the segments that only hold records up to the given lsn, they are covered by a snapshot.
+     *
+     * @param checkpointLsn The lsn saved in the snapshot.
+     * @throws IOException if a file can't be deleted.
+     */
+    public void deleteSegmentsUpTo(long checkpointLsn) throws IOException {
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            //A segment ends right before the next one starts
+            if(firstLsnOf(segments.get(i + 1)) - 1 <= checkpointLsn){
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    /** Writes everything still buffered and stops the committer. */
+    @Override
+    public void close() throws IOException {
+        if(closed) return;
+        synchronized (segmentLock){
+            writePending();
+            closed = true;
+            segment.close();
+        }
+        synchronized (bufferLock){
+            bufferLock.notifyAll();
+        }
+        committer.interrupt();
+    }
+
+    /**
+     * Reads every complete record in the folder, in lsn order, and passes the ones after a snapshot to the handler.
+     * A torn record at the end of the last segment is cut off.
+     *
+     * @param directory The folder holding the segments.
+     * @param afterLsn  Records with this lsn or lower are skipped (they are in the snapshot).
+     * @param handler   Receives each record.
+     * @return The lsn of the last complete record, or afterLsn if there are none after it.
+     * @throws IOException if a segment other than the last one is damaged.
+     */
+    public static long replay(Path directory, long afterLsn, RecordHandler handler) throws IOException {
+        long lastLsn = afterLsn;
+        if(!Files.isDirectory(directory)) return lastLsn;
+
+        List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            boolean lastSegment = i == segments.size() - 1;
+            long validBytes = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+                CRC32 check = new CRC32();
+                while (true){
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e){
+                        break;
+                    }
+                    if(length < 9 || length > MAX_RECORD_SIZE) break;
+                    byte[] body = new byte[length];
+                    int expectedCrc;
+                    try {
+                        expectedCrc = in.readInt();
+                        in.readFully(body);
+                    } catch (EOFException e){
+                        break;
+                    }
+                    check.reset();
+                    check.update(body, 0, body.length);
+                    if((int) check.getValue() != expectedCrc) break;
+
+                    DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body));
+                    long lsn = payload.readLong();
+                    int code = payload.readUnsignedByte();
+                    MutationType type = MutationType.fromCode(code);
+                    if(type == null){
+                        throw new IOException("Unknown record type " + code + " at lsn " + lsn + " in " + file);
+                    }
+                    if(lsn > afterLsn){
+                        handler.handle(lsn, type, payload);
+                    }
+                    lastLsn = Math.max(lastLsn, lsn);
+                    validBytes += HEADER_SIZE + length;
+                }
+            }
+            if(validBytes < Files.size(file)){
+                if(!lastSegment){
+                    throw new IOException("The write-ahead log segment " + file + " is damaged.");
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+                    channel.truncate(validBytes);
+                    channel.force(true);
+                }
+            }
+        }
+        return lastLsn;
+    }
+
+    //Writes everything appended so far to the current segment and fsyncs it, returns the last lsn written
+    private long writePending() throws IOException {
+        ByteArrayOutputStream batch;
+        long batchLsn;
+        synchronized (bufferLock){
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            batchLsn = nextLsn - 1;
+        }
+        try {
+            if(batch.size() > 0){
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()){
+                    segment.write(buffer);
+                }
+                segment.force(false);
+            }
+        } catch (IOException e){
+            synchronized (bufferLock){
+                failure = e;
+                bufferLock.notifyAll();
+            }
+            throw e;
+        } finally {
+            batch.reset();
+        }
+        synchronized (bufferLock){
+            durableLsn = Math.max(durableLsn, batchLsn);
+            bufferLock.notifyAll();
+        }
+        return batchLsn;
+    }
+
+    //Waits for records, then writes all of them with one fsync (group commit)
+    private void commitLoop(){
+        while (!closed){
+            synchronized (bufferLock){
+                while (pending.size() == 0 && !closed){
+                    try {
+                        bufferLock.wait();
+                    } catch (InterruptedException e){
+                        if(closed) return;
+                    }
+                }
+            }
+            if(closed) return;
+            if(groupCommitNanos > 0){
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+            synchronized (segmentLock){
+                if(closed) return;
+                try {
+                    writePending();
+                } catch (IOException e){
+                    return;
+                }
+            }
+        }
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        ArrayList<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)){
+            for(Path file : stream){
+                segments.add(file);
+            }
+        }
+        segments.sort(Comparator.comparingLong(WriteAheadLog::firstLsnOf));
+        return segments;
+    }
+
+    private static long firstLsnOf(Path segment){
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,52 @@
+package com.educore.service;
+
+/**
+ * What a cascade delete of the {@link Platform} removed along with the user or course
+ * ({@link Platform#deleteUser} and {@link Platform#deleteCourse}).
+ * Key Features:
+ * Counts every kind of dependent record on its own, so the caller can tell exactly what was touched.
+ * A report with {@link #isRemoved()} false means nothing at all was changed.
+ */
+
+public final class CascadeReport {
+    /** The report of a delete that found nothing to remove. */
+    static final CascadeReport NOTHING = new CascadeReport(false, 0, 0, 0, 0);
+
+    private final boolean removed;
+    private final int enrollments;
+    private final int grades;
+    private final int ratings;
+    private final int teachingCourses;
+
+    CascadeReport(boolean removed, int enrollments, int grades, int ratings, int teachingCourses){
+        this.removed = removed;
+        this.enrollments = enrollments;
+        this.grades = grades;
+        this.ratings = ratings;
+        this.teachingCourses = teachingCourses;
+    }
+
+    /** @return true if the user or course was registered and is now removed. */
+    public boolean isRemoved(){ return removed; }
+
+    /** @return The number of student-course enrollments removed. */
+    public int getEnrollments(){ return enrollments; }
+
+    /** @return The number of grade records removed. */
+    public int getGrades(){ return grades; }
+
+    /** @return The number of ratings removed. */
+    public int getRatings(){ return ratings; }
+
+    /** @return The number of instructor-course teaching assignments removed. */
+    public int getTeachingCourses(){ return teachingCourses; }
+
+    /** @return The number of dependent records removed, of every kind. */
+    public int getTotal(){ return enrollments + grades + ratings + teachingCourses; }
+
+    @Override
+    public String toString(){
+        return String.format("%d enrollments, %d grades, %d ratings, %d teaching assignments",
+                enrollments, grades, ratings, teachingCourses);
+    }
+}
@@ -0,0 +1,72 @@
+package com.educore.service;
+
+import com.educore.command.CommandResult;
+import com.educore.enums.CommandStatus;
+import com.educore.interfaces.Command;
+
+import java.io.UncheckedIOException;
+
+/**
+ * The headless entry point for changing the platform: every dashboard action is a
+ * {@link Command} run here, and any other client (a test, the load generator, a server) can run the same commands.
+ * Key Features:
+ * No console I/O: a command's outcome is a typed {@link CommandResult}, the caller decides what to print.
+ * Safe for concurrent clients: seats are taken by the {@link EnrollmentEngine}, new ids are claimed under the
+ * platform's write lock, and a student's grades and ratings are only changed while holding that student,
+ * so two clients working on the same student take turns. The cascade deletes of the {@link Platform} hold the
+ * student the same way (always the student before the write lock), and the commands check inside that lock that the
+ * student and course are still registered.
+ * Every command is timed ({@code command.<name>} in the {@link MetricsRegistry}) and every failure is counted
+ * ({@code command.failed.<status>}).
+ * A change the {@link com.educore.persistence.PlatformStore} could not save ends the command with
+ * {@link CommandStatus#NOT_SAVED} instead of an exception.
+ */
+
+public class CommandService {
+    //One timer per command class, looked up without building the name again
+    private static final ClassValue<MetricsRegistry.Timer> TIMERS = new ClassValue<>() {
+        @Override
+        protected MetricsRegistry.Timer computeValue(Class<?> type){
+            return MetricsRegistry.shared().timer("command." + type.getSimpleName());
+        }
+    };
+    private static final MetricsRegistry.Counter[] FAILURES = new MetricsRegistry.Counter[CommandStatus.values().length];
+
+    static {
+        for(CommandStatus status : CommandStatus.values()){
+            if(status == CommandStatus.OK) continue;
+            FAILURES[status.ordinal()] = MetricsRegistry.shared().counter("command.failed." + status.name().toLowerCase());
+        }
+    }
+
+    private final Platform platform;
+
+    /** @param platform The platform the commands change. */
+    public CommandService(Platform platform){
+        this.platform = platform;
+    }
+
+    /**
+     * Runs one command, from any thread.
+     *
+     * @param command The command.
+     * @return The typed result of the command.
+     */
+    public <T> CommandResult<T> execute(Command<T> command){
+        long started = System.nanoTime();
+        CommandResult<T> result;
+        try {
+            result = command.execute(platform);
+        } catch (UncheckedIOException e){
+            result = CommandResult.failed(CommandStatus.NOT_SAVED, e.getMessage() + ": " + e.getCause().getMessage());
+        }
+        TIMERS.get(command.getClass()).recordSince(started);
+        if(!result.isOk()){
+            FAILURES[result.getStatus().ordinal()].increment();
+        }
+        return result;
+    }
+
+    /** @return The platform the commands change. */
+    public Platform getPlatform(){ return platform; }
+}
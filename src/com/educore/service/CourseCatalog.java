@@ -0,0 +1,134 @@
+package com.educore.service;
+
+import com.educore.enums.CourseLevel;
+import com.educore.interfaces.MutationListener;
+import com.educore.model.Course;
+import com.educore.util.Page;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An index of all the courses registered in the {@link Platform}.
+ * It is kept in sync by {@link Platform#addCourse(Course)} and {@link Platform#removeCourse(Course)}
+ * (which {@link com.educore.model.Instructor#removeCourse(Platform)} goes through) and holds:
+ * A hash index from the course id to the course, so lookups are O(1).
+ * A sorted index from the course id to the course, so the courses can be read page by page in id order.
+ * One bucket per {@link CourseLevel} stored in an {@link EnumMap}, so listing courses by
+ * difficulty is a concatenation of the buckets in level order and never needs a sort.
+ * The catalog listens for {@link MutationListener#courseLevelChanged(Course)}, so a course whose
+ * level is changed with {@link Course#setCourseLevel(CourseLevel)} moves to the bucket of its new level.
+ */
+
+public class CourseCatalog implements MutationListener {
+    /** Primary key index. Key: courseID, Value: Course. */
+    private final ConcurrentHashMap<Integer, Course> coursesById = new ConcurrentHashMap<>();
+    /** The same courses in id order, for keyset paging. Key: courseID, Value: Course. */
+    private final ConcurrentSkipListMap<Integer, Course> coursesInIdOrder = new ConcurrentSkipListMap<>();
+    /** Courses grouped by difficulty, each bucket keeps the order the courses were added in. */
+    private final EnumMap<CourseLevel, LinkedHashSet<Course>> coursesByLevel = new EnumMap<>(CourseLevel.class);
+
+    public CourseCatalog(){
+        for(CourseLevel level : CourseLevel.values()){
+            coursesByLevel.put(level, new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Adds a course to the id index and to the bucket of its level.
+     *
+     * @param course The course to index.
+     */
+    public synchronized void add(Course course){
+        Course replaced = coursesById.put(course.getCourseID(), course);
+        coursesInIdOrder.put(course.getCourseID(), course);
+        if(replaced != null){
+            removeFromBucket(replaced);
+        }
+        coursesByLevel.get(levelOf(course)).add(course);
+    }
+
+    /**
+     * Removes a course from the id index and from its level bucket.
+     *
+     * @param course The course to remove.
+     * @return true if the course was found in the id index and removed.
+     */
+    public synchronized boolean remove(Course course){
+        boolean removed = coursesById.remove(course.getCourseID(), course);
+        if(removed){
+            coursesInIdOrder.remove(course.getCourseID(), course);
+            removeFromBucket(course);
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the course to the bucket of its new level, at the end of that bucket.
+     * A course that is not in the catalog (not added yet, or removed) is skipped.
+     *
+     * @param course The course whose level changed.
+     */
+    @Override
+    public synchronized void courseLevelChanged(Course course){
+        if(coursesById.get(course.getCourseID()) != course) return;
+        removeFromBucket(course);
+        coursesByLevel.get(levelOf(course)).add(course);
+    }
+
+    /**
+     * @param id The unique integer ID of the course.
+     * @return The Course object if found, otherwise null.
+     */
+    public Course findById(int id){ return coursesById.get(id); }
+
+    /**
+     * @param level The difficulty level.
+     * @return A copy of the courses with that level, in the order they were added.
+     */
+    public synchronized List<Course> getByLevel(CourseLevel level){
+        return new ArrayList<>(coursesByLevel.get(level));
+    }
+
+    /**
+     * Concatenates the level buckets from BEGINNER to ADVANCED.
+     * Courses of the same level keep the order they were added in.
+     *
+     * @return A new list of all the courses ordered by difficulty.
+     */
+    public synchronized List<Course> getSortedByDifficulty(){
+        ArrayList<Course> sorted = new ArrayList<>(coursesById.size());
+        for(LinkedHashSet<Course> bucket : coursesByLevel.values()){
+            sorted.addAll(bucket);
+        }
+        return sorted;
+    }
+
+    /**
+     * Reads one page of the courses in id order, without copying or sorting the courses.
+     *
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of courses on the page.
+     * @return The page.
+     */
+    public Page<Course> page(Integer afterId, int limit){
+        Map<Integer, Course> tail = afterId == null ? coursesInIdOrder : coursesInIdOrder.tailMap(afterId, false);
+        return Page.of(tail.values().iterator(), Course::getCourseID, limit);
+    }
+
+    /** @return The number of courses in the id index. */
+    public int size(){ return coursesById.size(); }
+
+    //The level may have been changed after the course was indexed, so every bucket is checked (there are only 3)
+    private void removeFromBucket(Course course){
+        for(LinkedHashSet<Course> bucket : coursesByLevel.values()){
+            if(bucket.remove(course)) return;
+        }
+    }
+
+    //Courses created with the empty constructor have no level yet, they are listed with the beginner courses
+    private static CourseLevel levelOf(Course course){
+        return course.getCourseLevel() == null ? CourseLevel.BEGINNER : course.getCourseLevel();
+    }
+}
@@ -0,0 +1,366 @@
+package com.educore.service;
+
+import com.educore.enums.CourseLevel;
+import com.educore.interfaces.MutationListener;
+import com.educore.model.Course;
+import com.educore.model.Lesson;
+import com.educore.model.Module;
+import com.educore.util.IntDoubleMap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A full-text index over the courses of the {@link Platform}, searched by the words of their title,
+ * module titles and lesson titles.
+ * It is kept in sync by {@link Platform#addCourse(Course)} and {@link Platform#removeCourse(Course)},
+ * and listens to {@link PlatformEvents} so a course is indexed again when its title, modules or lessons change.
+ * Key Features:
+ * An inverted index: each word points to the courses holding it, with how often it appears.
+ * A word in the title counts 3 times, in a module title 2 times, in a lesson title once.
+ * Results are ranked with BM25: a rare word weighs more than a common one,
+ * and a word found in a short course counts more than the same word in a long one.
+ * A query word that is not in the index is matched as the start of a word, so "jav" finds "java".
+ * Results can be filtered by level, price range and min average rating, read from the course when the query runs.
+ * A {@link ReentrantReadWriteLock}: searches run at the same time, updates wait for them.
+ */
+
+public class CourseSearchIndex implements MutationListener {
+    /** How fast repeating a word stops adding to the score. */
+    private static final double K1 = 1.2;
+    /** How much the length of a course lowers the score of its words (0 = not at all, 1 = fully). */
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MODULE_WEIGHT = 2;
+    private static final int LESSON_WEIGHT = 1;
+    /** The max number of indexed words a query word that is not in the index is expanded to. */
+    private static final int MAX_PREFIX_WORDS = 16;
+
+    /** Key: word, Value: (Key: slot of the course, Value: weighted count of the word in the course). */
+    private final TreeMap<String, IntDoubleMap> postings = new TreeMap<>();
+    /** Key: courseID, Value: the slot of the course in {@link #documents} and {@link #lengths}. */
+    private final HashMap<Integer, Integer> slotOf = new HashMap<>();
+    /** The indexed courses by slot, null for a free slot. */
+    private Document[] documents = new Document[16];
+    /** The weighted length of each course by slot, read for every posting so it is a plain array. */
+    private double[] lengths = new double[16];
+    private int slotCount;
+    /** The slots of removed courses, reused before new slots are taken. */
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    /** The sum of the weighted lengths of every course, for the average length. */
+    private double totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** The score of each slot for the running query, one per searching thread so searches don't allocate it. */
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    //One indexed course and the words it was indexed under, so it can be removed without reading the course again
+    private static class Document {
+        final Course course;
+        final String[] words;
+        final double length;
+
+        Document(Course course, String[] words, double length){
+            this.course = course;
+            this.words = words;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The conditions a course must meet besides matching the query.
+     */
+    public static class Filter {
+        /** Accepts every course. */
+        public static final Filter ANY = new Filter(null, 0, Double.MAX_VALUE, 0);
+
+        private final CourseLevel level;
+        private final double minPrice;
+        private final double maxPrice;
+        private final double minRating;
+
+        /**
+         * @param level     The level the course must have, null for any level.
+         * @param minPrice  The lowest price accepted.
+         * @param maxPrice  The highest price accepted.
+         * @param minRating The lowest average rating accepted, 0 to accept courses without ratings.
+         */
+        public Filter(CourseLevel level, double minPrice, double maxPrice, double minRating){
+            this.level = level;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            this.minRating = minRating;
+        }
+
+        /**
+         * @param course The course to check.
+         * @return true if the course meets every condition.
+         */
+        public boolean accepts(Course course){
+            if(level != null && course.getCourseLevel() != level) return false;
+            if(course.getPrice() < minPrice || course.getPrice() > maxPrice) return false;
+            return minRating <= 0 || course.getAverageRating() >= minRating;
+        }
+    }
+
+    /**
+     * One course found by a search and its score.
+     */
+    public static class Result {
+        private final Course course;
+        private final double score;
+
+        public Result(Course course, double score){
+            this.course = course;
+            this.score = score;
+        }
+
+        /** @return The course found. */
+        public Course getCourse(){ return course; }
+        /** @return The BM25 score, higher is better, 0 when there was no query. */
+        public double getScore(){ return score; }
+
+        @Override
+        public String toString(){
+            return String.format("%s (score %.2f)", course, score);
+        }
+    }
+
+    /**
+     * Indexes a course, a course already indexed under the same id is replaced.
+     *
+     * @param course The course to index.
+     */
+    public void add(Course course){
+        lock.writeLock().lock();
+        try {
+            removeDocument(course.getCourseID());
+            HashMap<String, Integer> counts = new HashMap<>();
+            int length = count(counts, course.getTitle(), TITLE_WEIGHT);
+            for(Module module : course.getModules()){
+                length += count(counts, module.getTitle(), MODULE_WEIGHT);
+                for(Lesson lesson : module.getLessonsList()){
+                    length += count(counts, lesson.getTitle(), LESSON_WEIGHT);
+                }
+            }
+            int slot = takeSlot();
+            for(Map.Entry<String, Integer> entry : counts.entrySet()){
+                postings.computeIfAbsent(entry.getKey(), word -> new IntDoubleMap()).put(slot, entry.getValue());
+            }
+            documents[slot] = new Document(course, counts.keySet().toArray(new String[0]), length);
+            lengths[slot] = length;
+            slotOf.put(course.getCourseID(), slot);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a course, it is only removed if the index still holds this course under its id.
+     *
+     * @param course The course to remove.
+     * @return true if the course was found and removed.
+     */
+    public boolean remove(Course course){
+        lock.writeLock().lock();
+        try {
+            if(!holds(course)) return false;
+            removeDocument(course.getCourseID());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Indexes the course again if it is indexed, a course not yet added to the platform is skipped. */
+    @Override
+    public void courseContentChanged(Course course){
+        boolean indexed;
+        lock.readLock().lock();
+        try {
+            indexed = holds(course);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if(indexed){
+            add(course);
+        }
+    }
+
+    /** @return The number of indexed courses. */
+    public int size(){
+        lock.readLock().lock();
+        try {
+            return slotOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the courses matching a query and a filter.
+     *
+     * @param query  The words to look for, the case is ignored. An empty query lists every course the filter accepts.
+     * @param filter The conditions the courses must meet, {@link Filter#ANY} for none.
+     * @param limit  The max number of results returned.
+     * @return Up to limit results, the best score first (by id when there was no query).
+     */
+    public List<Result> search(String query, Filter filter, int limit){
+        if(limit <= 0) return Collections.emptyList();
+        List<String> words = tokenize(query);
+
+        lock.readLock().lock();
+        try {
+            ArrayList<Result> results = new ArrayList<>();
+            if(words.isEmpty()){
+                for (int slot = 0; slot < slotCount; slot++) {
+                    if(documents[slot] != null && filter.accepts(documents[slot].course)){
+                        results.add(new Result(documents[slot].course, 0));
+                    }
+                }
+                results.sort(Comparator.comparingInt(result -> result.getCourse().getCourseID()));
+                return new ArrayList<>(results.subList(0, Math.min(limit, results.size())));
+            }
+
+            int courseCount = slotOf.size();
+            double averageLength = courseCount == 0 ? 1 : Math.max(1, totalLength / courseCount);
+            Scratch scores = scratch.get();
+            scores.ensureCapacity(slotCount);
+            try {
+                for(String word : new LinkedHashSet<>(words)){
+                    for(IntDoubleMap courses : postingsFor(word)){
+                        double idf = Math.log(1 + (courseCount - courses.size() + 0.5) / (courses.size() + 0.5));
+                        courses.forEach((slot, frequency) -> {
+                            double norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+                            scores.add(slot, idf * frequency * (K1 + 1) / (frequency + norm));
+                        });
+                    }
+                }
+                //Keeps the best limit results in a min heap, a course is only read and filtered if it would get in
+                Comparator<Result> worstFirst = Comparator.comparingDouble(Result::getScore)
+                        .thenComparing(Comparator.comparingInt((Result result) -> result.getCourse().getCourseID()).reversed());
+                PriorityQueue<Result> best = new PriorityQueue<>(limit + 1, worstFirst);
+                for (int i = 0; i < scores.touchedSize; i++) {
+                    int slot = scores.touched[i];
+                    double score = scores.scores[slot];
+                    if(best.size() == limit && score < best.peek().getScore()) continue;
+                    Course course = documents[slot].course;
+                    if(!filter.accepts(course)) continue;
+                    best.add(new Result(course, score));
+                    if(best.size() > limit) best.poll();
+                }
+                results.addAll(best);
+                results.sort(worstFirst.reversed());
+                return results;
+            } finally {
+                scores.clear();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits a text into lower case words, every character that is not a letter or a digit separates two words.
+     *
+     * @param text The text to split, may be null.
+     * @return The words in order, duplicates included.
+     */
+    public static List<String> tokenize(String text){
+        ArrayList<String> words = new ArrayList<>();
+        if(text == null) return words;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if(wordChar && start < 0){
+                start = i;
+            }
+            else if(!wordChar && start >= 0){
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    //The postings of the word, or of the indexed words starting with it when the word itself is not indexed
+    private List<IntDoubleMap> postingsFor(String word){
+        IntDoubleMap exact = postings.get(word);
+        if(exact != null) return List.of(exact);
+        ArrayList<IntDoubleMap> expanded = new ArrayList<>();
+        for(IntDoubleMap courses : postings.subMap(word, true, word + Character.MAX_VALUE, false).values()){
+            expanded.add(courses);
+            if(expanded.size() == MAX_PREFIX_WORDS) break;
+        }
+        return expanded;
+    }
+
+    //Adds the words of a text to the counts, returns the weighted number of words
+    private static int count(HashMap<String, Integer> counts, String text, int weight){
+        List<String> words = tokenize(text);
+        for(String word : words){
+            counts.merge(word, weight, Integer::sum);
+        }
+        return words.size() * weight;
+    }
+
+    //True if the index holds this very course under its id
+    private boolean holds(Course course){
+        Integer slot = slotOf.get(course.getCourseID());
+        return slot != null && documents[slot].course == course;
+    }
+
+    private int takeSlot(){
+        if(!freeSlots.isEmpty()) return freeSlots.pop();
+        if(slotCount == documents.length){
+            documents = Arrays.copyOf(documents, slotCount * 2);
+            lengths = Arrays.copyOf(lengths, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    private void removeDocument(int courseId){
+        Integer slot = slotOf.remove(courseId);
+        if(slot == null) return;
+        Document document = documents[slot];
+        for(String word : document.words){
+            IntDoubleMap courses = postings.get(word);
+            if(courses != null){
+                courses.remove(slot);
+                if(courses.isEmpty()) postings.remove(word);
+            }
+        }
+        totalLength -= document.length;
+        documents[slot] = null;
+        lengths[slot] = 0;
+        freeSlots.push(slot);
+    }
+
+    //The scores of one query by slot, and the slots that got a score so clearing doesn't walk every slot
+    private static class Scratch {
+        double[] scores = new double[0];
+        int[] touched = new int[256];
+        int touchedSize;
+
+        void ensureCapacity(int size){
+            if(scores.length < size) scores = new double[size];
+        }
+
+        void add(int slot, double score){
+            if(scores[slot] == 0){
+                if(touchedSize == touched.length) touched = Arrays.copyOf(touched, touchedSize * 2);
+                touched[touchedSize++] = slot;
+            }
+            scores[slot] += score;
+        }
+
+        void clear(){
+            for (int i = 0; i < touchedSize; i++) {
+                scores[touched[i]] = 0;
+            }
+            touchedSize = 0;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.educore.service;
+
+import com.educore.model.Course;
+import com.educore.model.Student;
+import com.educore.enums.EnrollmentStatus;
+import com.educore.exception.AlreadyEnrolledException;
+import com.educore.exception.CourseFullException;
+import com.educore.exception.UserNotFoundException;
+import com.educore.util.Page;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The enrollment state of one course, safe to use from many threads at once.
+ * Every {@link com.educore.model.Course} owns its own engine, so sign-ups to different courses never
+ * contend with each other (the engines act as one lock-free stripe per course).
+ * Key Features:
+ * Seats are taken with a compare-and-set on an atomic counter, so the capacity can never be exceeded
+ * even when many students enroll at the same moment.
+ * The enrolled students themselves live in the shared {@link EnrollmentGraph}, the same place the students
+ * read their courses from, so checking for a duplicate enrollment is O(1) and both sides always agree.
+ * The engine only counts the seats.
+ */
+
+public class EnrollmentEngine {
+    /** The course whose students are counted, its id is the key in the graph. */
+    private final Course course;
+    /** Where the enrolled students are stored. */
+    private final EnrollmentGraph graph = EnrollmentGraph.shared();
+    /** The max number of students allowed. */
+    private volatile int capacity;
+    /** The number of seats taken, never greater than the capacity. */
+    private final AtomicInteger seatsTaken = new AtomicInteger();
+    /** Enrolled students that are saved on disk but not built into objects yet, see {@link #preload(int)}. */
+    private final AtomicInteger pendingStudents = new AtomicInteger();
+
+    /**
+     * @param course   The course the engine belongs to.
+     * @param capacity The max number of students allowed.
+     */
+    public EnrollmentEngine(Course course, int capacity){
+        this.course = course;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a copy of another engine with the same capacity and seats.
+     * The students are stored by course id, so a copy for a course with the same id sees the same students.
+     *
+     * @param course The course the copy belongs to.
+     * @param other  The engine to copy.
+     */
+    public EnrollmentEngine(Course course, EnrollmentEngine other){
+        this.course = course;
+        this.capacity = other.capacity;
+        this.pendingStudents.set(other.pendingStudents.get());
+        this.seatsTaken.set(other.seatsTaken.get());
+    }
+
+    /**
+     * Enrolls a student if they are not already enrolled and a seat is free.
+     * The duplicate check runs first so an enrolled student never takes a second seat, even for a moment.
+     *
+     * @param s The student attempting to enroll.
+     * @throws AlreadyEnrolledException if the student is already enrolled.
+     * @throws CourseFullException if every seat is taken.
+     */
+    public void enroll(Student s) throws AlreadyEnrolledException, CourseFullException {
+        if(graph.isLinked(course, s)){
+            throw new AlreadyEnrolledException("Student is already in this course!");
+        }
+        if(!takeSeat()){
+            throw new CourseFullException("Sorry, this course is full!");
+        }
+        if(!graph.link(course, s)){
+            //Another thread enrolled the same student between the check and the seat, give the seat back
+            seatsTaken.decrementAndGet();
+            throw new AlreadyEnrolledException("Student is already in this course!");
+        }
+    }
+
+    /**
+     * Enrolls a group of students, reserving all the seats they need with a single compare-and-set.
+     * Students are served in order, so when there are not enough seats the last ones get {@link EnrollmentStatus#FULL}.
+     * Seats reserved for students that turn out to be enrolled by another thread are given back at the end.
+     *
+     * @param batch The students to enroll.
+     * @return One result per student, in the same order as the collection.
+     */
+    public EnrollmentStatus[] enrollAll(Collection<Student> batch){
+        EnrollmentStatus[] results = new EnrollmentStatus[batch.size()];
+        Student[] candidates = new Student[batch.size()];
+        HashSet<Integer> seenIds = new HashSet<>();
+
+        int wanted = 0;
+        int i = 0;
+        for(Student s : batch){
+            if(!seenIds.add(s.getUserId()) || graph.isLinked(course, s)){
+                results[i] = EnrollmentStatus.ALREADY_ENROLLED;
+            }
+            else{
+                candidates[i] = s;
+                wanted++;
+            }
+            i++;
+        }
+
+        int reserved = takeSeats(wanted);
+        for (int j = 0; j < candidates.length; j++) {
+            Student s = candidates[j];
+            if(s == null) continue;
+            if(reserved == 0){
+                results[j] = EnrollmentStatus.FULL;
+            }
+            else if(graph.link(course, s)){
+                results[j] = EnrollmentStatus.ENROLLED;
+                reserved--;
+            }
+            else{
+                results[j] = EnrollmentStatus.ALREADY_ENROLLED;
+            }
+        }
+        if(reserved > 0){
+            seatsTaken.addAndGet(-reserved);
+        }
+        return results;
+    }
+
+    /**
+     * Removes a student and frees their seat.
+     *
+     * @param s The student to be removed.
+     * @throws UserNotFoundException if the student is NOT currently enrolled.
+     */
+    public void drop(Student s) throws UserNotFoundException {
+        if(!graph.unlink(course, s)){
+            throw new UserNotFoundException("Error: The student is not on the registered list.");
+        }
+        seatsTaken.decrementAndGet();
+    }
+
+    /**
+     * @param s The student to check.
+     * @return true if the student is enrolled, O(1).
+     */
+    public boolean isEnrolled(Student s){ return graph.isLinked(course, s); }
+
+    /** @return The number of enrolled students, including the ones not built yet. */
+    public int getEnrolledCount(){ return graph.studentCount(course) + pendingStudents.get(); }
+
+    /**
+     * Reserves seats for students that are saved on disk but not built into objects yet (lazy loading).
+     * Each of them joins with {@link #attach(Student)} once it is built.
+     *
+     * @param count The number of enrolled students still to come.
+     */
+    public void preload(int count){
+        pendingStudents.addAndGet(count);
+        seatsTaken.addAndGet(count);
+    }
+
+    /**
+     * Adds a lazily built student into a seat reserved by {@link #preload(int)}.
+     *
+     * @param s The student that was just built.
+     */
+    public void attach(Student s){
+        if(graph.link(course, s)){
+            if(pendingStudents.getAndDecrement() <= 0){
+                //More students attached than were reserved, take a normal seat for this one
+                pendingStudents.incrementAndGet();
+                seatsTaken.incrementAndGet();
+            }
+        }
+    }
+
+    /** Frees the reserved seats no student was attached to, e.g. the student was removed from the saved data. */
+    public void releasePending(){
+        int left = pendingStudents.getAndSet(0);
+        if(left > 0){
+            seatsTaken.addAndGet(-left);
+        }
+    }
+
+    /** @return The number of seats left. */
+    public int getSeatsLeft(){ return Math.max(0, capacity - seatsTaken.get()); }
+
+    /** @return The max number of students allowed. */
+    public int getCapacity(){ return capacity; }
+
+    /**
+     * Changes the capacity. Lowering it below the number of enrolled students keeps them enrolled,
+     * new students can join again once enough of them drop.
+     *
+     * @param capacity The new max number of students allowed.
+     */
+    public void setCapacity(int capacity){ this.capacity = capacity; }
+
+    /** @return A snapshot of the enrolled students, ordered by userId. */
+    public List<Student> getStudents(){ return graph.studentsOf(course); }
+
+    /**
+     * Reads one page of the enrolled students in id order, picked from the graph without copying the other students.
+     *
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of students on the page.
+     * @return The page.
+     */
+    public Page<Student> pageStudents(Integer afterId, int limit){
+        return graph.pageStudents(course, afterId, limit);
+    }
+
+    /**
+     * Adds a student without checking the capacity (used when restoring saved data).
+     *
+     * @param s The student to add.
+     * @return true if the student was added, false if they were already enrolled.
+     */
+    public boolean restore(Student s){
+        if(!graph.link(course, s)) return false;
+        seatsTaken.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes a student without throwing if they are not enrolled.
+     *
+     * @param s The student to remove.
+     * @return true if the student was enrolled and removed.
+     */
+    public boolean remove(Student s){
+        if(!graph.unlink(course, s)) return false;
+        seatsTaken.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes every enrolled student in one bulk unlink, frees their seats and takes the course out of the graph
+     * (used when the course itself is removed).
+     * Seats reserved for students not built yet are kept, see {@link #releasePending()}.
+     *
+     * @return The students that were enrolled, ordered by userId.
+     */
+    public List<Student> removeAll(){
+        List<Student> removed = graph.removeCourse(course);
+        seatsTaken.addAndGet(-removed.size());
+        return removed;
+    }
+
+    /**
+     * Replaces all the enrolled students, ignoring the capacity (used when restoring saved data).
+     * This is not atomic with respect to concurrent enrollments.
+     *
+     * @param enrolledStudents The students to set.
+     */
+    public void reset(Collection<Student> enrolledStudents){
+        graph.unlinkCourse(course);
+        pendingStudents.set(0);
+        for(Student s : enrolledStudents){
+            graph.link(course, s);
+        }
+        seatsTaken.set(graph.studentCount(course));
+    }
+
+    //Takes one seat if the capacity allows it, the compare-and-set retries if another thread took a seat first
+    private boolean takeSeat(){
+        return takeSeats(1) == 1;
+    }
+
+    //Takes as many of the wanted seats as are free in one compare-and-set, returns how many were taken
+    private int takeSeats(int wanted){
+        if(wanted <= 0) return 0;
+        while (true){
+            int taken = seatsTaken.get();
+            int granted = Math.min(wanted, capacity - taken);
+            if(granted <= 0) return 0;
+            if(seatsTaken.compareAndSet(taken, taken + granted)) return granted;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.educore.service;
+
+import com.educore.model.Course;
+import com.educore.model.Student;
+import com.educore.util.IntHashSet;
+import com.educore.util.Page;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The one place where enrollments are stored, in both directions: the students of each course
+ * and the courses of each student. {@link Course} and {@link Student} read their enrollments from here,
+ * so the two sides can never disagree.
+ * Like the user and course lists in {@link Platform}, the graph is shared by the whole program ({@link #shared()}).
+ * Key Features:
+ * Each side is an {@link IntHashSet} of ids (no boxed numbers, no entry objects), membership checks are O(1).
+ * Linking and unlinking change both sides under the locks of the course and of the student, so no reader ever
+ * sees one side without the other. The course is always locked before the student, so two threads can never
+ * wait on each other.
+ * Every course and every student has its own lock, changes to different courses never wait for each other.
+ * Removing every student from a course is one call that holds the course's lock, not one removal per student.
+ * A page of a course's students (or of a student's courses) is picked straight from the id set, only the ids on
+ * the page are copied.
+ */
+
+public class EnrollmentGraph {
+    private static final EnrollmentGraph SHARED = new EnrollmentGraph();
+
+    /** Key: courseID, Value: the course and the ids of its students. */
+    private final ConcurrentHashMap<Integer, Node<Course>> courses = new ConcurrentHashMap<>();
+    /** Key: userId, Value: the student and the ids of their courses. */
+    private final ConcurrentHashMap<Integer, Node<Student>> students = new ConcurrentHashMap<>();
+
+    //A course or a student and the ids on the other side, the node is the lock guarding its set
+    private static class Node<T> {
+        final T owner;
+        final IntHashSet links = new IntHashSet();
+        /** Set once the node is taken out of the graph, a thread that still holds it must look it up again. */
+        boolean removed;
+
+        Node(T owner){
+            this.owner = owner;
+        }
+    }
+
+    /** @return The graph shared by every course and student. */
+    public static EnrollmentGraph shared(){ return SHARED; }
+
+    /**
+     * Links a student and a course on both sides at once.
+     *
+     * @param course  The course.
+     * @param student The student.
+     * @return true if they were not linked yet.
+     */
+    public boolean link(Course course, Student student){
+        while (true){
+            Node<Course> courseNode = courses.computeIfAbsent(course.getCourseID(), id -> new Node<>(course));
+            Node<Student> studentNode = students.computeIfAbsent(student.getUserId(), id -> new Node<>(student));
+            synchronized (courseNode){
+                synchronized (studentNode){
+                    if(courseNode.removed || studentNode.removed) continue;
+                    if(!courseNode.links.add(student.getUserId())) return false;
+                    studentNode.links.add(course.getCourseID());
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Unlinks a student and a course on both sides at once.
+     *
+     * @param course  The course.
+     * @param student The student.
+     * @return true if they were linked.
+     */
+    public boolean unlink(Course course, Student student){
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        Node<Student> studentNode = students.get(student.getUserId());
+        if(courseNode == null || studentNode == null) return false;
+        synchronized (courseNode){
+            synchronized (studentNode){
+                if(!courseNode.links.remove(student.getUserId())) return false;
+                studentNode.links.remove(course.getCourseID());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param course  The course.
+     * @param student The student.
+     * @return true if the student is enrolled in the course, O(1).
+     */
+    public boolean isLinked(Course course, Student student){
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        if(courseNode == null) return false;
+        synchronized (courseNode){
+            return courseNode.links.contains(student.getUserId());
+        }
+    }
+
+    /** @return The number of students enrolled in the course. */
+    public int studentCount(Course course){
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        if(courseNode == null) return 0;
+        synchronized (courseNode){
+            return courseNode.links.size();
+        }
+    }
+
+    /** @return The number of courses the student is enrolled in. */
+    public int courseCount(Student student){
+        Node<Student> studentNode = students.get(student.getUserId());
+        if(studentNode == null) return 0;
+        synchronized (studentNode){
+            return studentNode.links.size();
+        }
+    }
+
+    /** @return A new list of the students enrolled in the course, ordered by userId. */
+    public List<Student> studentsOf(Course course){
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        if(courseNode == null) return new ArrayList<>();
+        int[] ids;
+        synchronized (courseNode){
+            ids = courseNode.links.toArray();
+        }
+        return owners(students, ids);
+    }
+
+    /** @return A new list of the courses the student is enrolled in, ordered by courseID. */
+    public List<Course> coursesOf(Student student){
+        Node<Student> studentNode = students.get(student.getUserId());
+        if(studentNode == null) return new ArrayList<>();
+        int[] ids;
+        synchronized (studentNode){
+            ids = studentNode.links.toArray();
+        }
+        return owners(courses, ids);
+    }
+
+    /**
+     * Reads one page of the students of a course in id order, without copying or sorting all of them:
+     * the course's id set is read once under its lock and only the limit + 1 smallest ids after the cursor are kept.
+     *
+     * @param course  The course.
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of students on the page.
+     * @return The page.
+     */
+    public Page<Student> pageStudents(Course course, Integer afterId, int limit){
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        int[] ids = new int[0];
+        if(courseNode != null){
+            synchronized (courseNode){
+                ids = courseNode.links.smallestAbove(afterId == null ? Long.MIN_VALUE : afterId, limit + 1);
+            }
+        }
+        return Page.of(owners(students, ids).iterator(), Student::getUserId, limit);
+    }
+
+    /**
+     * Reads one page of the courses of a student in id order, like {@link #pageStudents}.
+     *
+     * @param student The student.
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of courses on the page.
+     * @return The page.
+     */
+    public Page<Course> pageCourses(Student student, Integer afterId, int limit){
+        Node<Student> studentNode = students.get(student.getUserId());
+        int[] ids = new int[0];
+        if(studentNode != null){
+            synchronized (studentNode){
+                ids = studentNode.links.smallestAbove(afterId == null ? Long.MIN_VALUE : afterId, limit + 1);
+            }
+        }
+        return Page.of(owners(courses, ids).iterator(), Course::getCourseID, limit);
+    }
+
+    /**
+     * Unlinks every student of a course in one operation, holding the course's lock the whole time
+     * so no student can join or leave the course halfway through.
+     *
+     * @param course The course to empty.
+     * @return The students that were enrolled, ordered by userId.
+     */
+    public List<Student> unlinkCourse(Course course){
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        if(courseNode == null) return new ArrayList<>();
+        int[] ids;
+        synchronized (courseNode){
+            ids = courseNode.links.toArray();
+            for(int id : ids){
+                Node<Student> studentNode = students.get(id);
+                if(studentNode == null) continue;
+                synchronized (studentNode){
+                    studentNode.links.remove(course.getCourseID());
+                }
+            }
+            courseNode.links.clear();
+        }
+        return owners(students, ids);
+    }
+
+    /**
+     * Unlinks a student from every course. Each course is unlinked under its own lock
+     * (the course lock comes first, so the student's courses are unlinked one at a time).
+     *
+     * @param student The student to unlink.
+     * @return The courses the student was enrolled in, ordered by courseID.
+     */
+    public List<Course> unlinkStudent(Student student){
+        Node<Student> studentNode = students.get(student.getUserId());
+        if(studentNode == null) return new ArrayList<>();
+        int[] ids;
+        synchronized (studentNode){
+            ids = studentNode.links.toArray();
+        }
+        ArrayList<Integer> unlinked = new ArrayList<>(ids.length);
+        for(int id : ids){
+            Node<Course> courseNode = courses.get(id);
+            if(courseNode == null) continue;
+            synchronized (courseNode){
+                synchronized (studentNode){
+                    if(courseNode.links.remove(student.getUserId())){
+                        studentNode.links.remove(id);
+                        unlinked.add(id);
+                    }
+                }
+            }
+        }
+        int[] removedIds = new int[unlinked.size()];
+        for (int i = 0; i < removedIds.length; i++) {
+            removedIds[i] = unlinked.get(i);
+        }
+        return owners(courses, removedIds);
+    }
+
+    /**
+     * Unlinks every student of a course and forgets the course.
+     *
+     * @param course The course to remove.
+     * @return The students that were enrolled, ordered by userId.
+     */
+    public List<Student> removeCourse(Course course){
+        List<Student> unlinked = unlinkCourse(course);
+        Node<Course> courseNode = courses.get(course.getCourseID());
+        if(courseNode != null){
+            synchronized (courseNode){
+                //A student may have joined after the bulk unlink, only an empty course is forgotten
+                if(courseNode.links.isEmpty()){
+                    courseNode.removed = true;
+                    courses.remove(course.getCourseID(), courseNode);
+                }
+            }
+        }
+        return unlinked;
+    }
+
+    /**
+     * Unlinks a student from every course and forgets the student.
+     *
+     * @param student The student to remove.
+     * @return The courses the student was enrolled in, ordered by courseID.
+     */
+    public List<Course> removeStudent(Student student){
+        List<Course> unlinked = unlinkStudent(student);
+        Node<Student> studentNode = students.get(student.getUserId());
+        if(studentNode != null){
+            synchronized (studentNode){
+                if(studentNode.links.isEmpty()){
+                    studentNode.removed = true;
+                    students.remove(student.getUserId(), studentNode);
+                }
+            }
+        }
+        return unlinked;
+    }
+
+    //Turns ids into the objects registered under them, sorted by id (ids with no node are skipped)
+    private static <T> List<T> owners(ConcurrentHashMap<Integer, Node<T>> nodes, int[] ids){
+        Arrays.sort(ids);
+        ArrayList<T> list = new ArrayList<>(ids.length);
+        for(int id : ids){
+            Node<T> node = nodes.get(id);
+            if(node != null) list.add(node.owner);
+        }
+        return list;
+    }
+}
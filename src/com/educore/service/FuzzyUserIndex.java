@@ -0,0 +1,666 @@
+package com.educore.service;
+
+import com.educore.model.User;
+import com.educore.util.IntHashSet;
+import com.educore.util.IntIntMap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * A typo-tolerant index over the users' names and emails.
+ * It keeps a dictionary of the distinct words found in the names and emails (an email is split on its dots, @ and
+ * other symbols and where letters meet digits: "mazen.ali12@mail.com" gives "mazen", "ali", "12", "mail" and "com").
+ * Each word is cut into trigrams (3 letter pieces, "mazen" gives "$$m", "$ma", "maz", "aze", "zen") pointing back
+ * to the words holding them, and each word points to the users holding it.
+ * Key Features:
+ * A query word is only compared with the dictionary words sharing enough trigrams with it, using a bounded
+ * edit distance (Levenshtein, stopping as soon as the bound is passed). Many users share the same first or
+ * last name, so the work depends on the number of distinct words, not on the number of users.
+ * The distance is measured against the start of a word, so both "mazn" and "maz" find "Mazen".
+ * The allowed number of typos grows with the query word: 0 up to 2 letters, 1 up to 5, 2 up to 9 and 3 above.
+ * The query is split the same way and every query word must match a word of the user. The query word with the
+ * fewest users drives the search, the others are checked against the words of each user it finds.
+ * A word starting with a common piece (like "al" or "mo") still has a sorted range of exact prefix matches, used
+ * when its trigrams are too common to be read within the budget.
+ * The trigram lists of a query word are counted by merging them (they are sorted by word id), and the other query
+ * words are checked against each user rarest first, most users are turned down by the first check.
+ * Results are ranked by the total distance, then by name and id. Every user checked is ranked, the search only
+ * stops early once no user left can be closer than the ones kept.
+ * The ranking is approximate, it trades completeness for a bounded cost per query (p99 under 0.5 ms at 1M users
+ * for 1 to 3 word queries, see FuzzySearchBenchmark in the jmh module):
+ * a dictionary word is only compared when it shares enough trigrams with the query word, at most
+ * 64 words are compared per query word, and at most 2,048 users are checked.
+ * So when a query word matches more users than that (a very common name), a closer user can be missed, and
+ * among equally close users the ones found first are kept, not the first by name. {@link #rank} has no budget.
+ * Removed users are skipped, the index is rebuilt when more than half of it belongs to removed users.
+ * Short lists (like the students of one course) can be ranked the same way without an index with
+ * {@link #rank(Collection, String, int)}.
+ */
+
+public class FuzzyUserIndex {
+    /** The max number of trigram posting entries read for one query word. */
+    private static final int POSTING_BUDGET = 8 * 1024;
+    /** The max number of dictionary words compared with one query word. */
+    private static final int MAX_CANDIDATES = 64;
+    /** The max number of exact prefix words kept for one query word. */
+    private static final int MAX_PREFIX_WORDS = 256;
+    /** The max number of users checked against the other query words. */
+    private static final int USER_BUDGET = 2 * 1024;
+    /** The max number of those users checked with the edit distance, when a query word had too many matches. */
+    private static final int DISTANCE_BUDGET = 32;
+    private static final char PAD = '$';
+    /** The order of the results: the total distance, then the name and the id. */
+    private static final Comparator<Match> RANKING = Comparator.comparingInt((Match match) -> match.distance)
+            .thenComparing(match -> match.name == null ? "" : match.name)
+            .thenComparingInt(match -> match.user.getUserId());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Dictionary dictionary = new Dictionary();
+
+    /** Slot to user, null once the user is removed. */
+    private User[] users = new User[16];
+    /** Slot to normalized name, used to rank the results. */
+    private String[] names = new String[16];
+    /** Slot to the dictionary ids of the words of the name and email. */
+    private int[][] wordIds = new int[16][];
+    private final HashMap<User, Integer> slotOf = new HashMap<>();
+    private int slotCount;
+    private int deadCount;
+
+    /**
+     * Adds a user under its current name and email.
+     *
+     * @param user The user to index.
+     */
+    public void add(User user){
+        lock.writeLock().lock();
+        try {
+            if(slotOf.containsKey(user)) return;
+            insert(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a user.
+     *
+     * @param user The user to remove.
+     * @return true if the user was indexed.
+     */
+    public boolean remove(User user){
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotOf.remove(user);
+            if(slot == null) return false;
+            users[slot] = null;
+            names[slot] = null;
+            wordIds[slot] = null;
+            deadCount++;
+            if(deadCount > 1024 && deadCount * 2 > slotCount){
+                rebuild();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** @return The number of indexed users. */
+    public int size(){
+        lock.readLock().lock();
+        try {
+            return slotOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the users whose name or email is close to the query.
+     *
+     * @param query The name or email typed by the user, the case is ignored.
+     * @param limit The max number of users returned.
+     * @return Up to limit users, the closest found first (the ranking is approximate, see the class comment).
+     */
+    public List<User> search(String query, int limit){
+        return search(query, limit, null);
+    }
+
+    /**
+     * Finds the users whose name or email is close to the query and who pass a filter.
+     * The users the filter rejects still count against the search budget, so a rare filter can return fewer users.
+     *
+     * @param query  The name or email typed by the user, the case is ignored.
+     * @param limit  The max number of users returned.
+     * @param filter Only the users it accepts are returned, null to accept every user.
+     * @return Up to limit users, the closest found first (the ranking is approximate, see the class comment).
+     */
+    public List<User> search(String query, int limit, Predicate<? super User> filter){
+        String[] tokens = tokenize(query);
+        if(tokens.length == 0 || limit <= 0) return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            //Match every query word against the dictionary, the word with the fewest users drives the search
+            TokenMatch[] matches = new TokenMatch[tokens.length];
+            IntIntMap[] distances = new IntIntMap[tokens.length];
+            long[] userCounts = new long[tokens.length];
+            int driver = 0;
+            long driverUsers = Long.MAX_VALUE;
+            for (int t = 0; t < tokens.length; t++) {
+                matches[t] = dictionary.match(tokens[t], maxDistance(tokens[t].length()));
+                if(matches[t].words.length == 0 && matches[t].complete) return Collections.emptyList();
+                distances[t] = new IntIntMap(matches[t].words.length);
+                long userCount = 0;
+                for(WordMatch match : matches[t].words){
+                    distances[t].put(match.word, match.distance);
+                    userCount += dictionary.users[match.word].size;
+                }
+                userCounts[t] = userCount;
+                if(userCount < driverUsers){
+                    driverUsers = userCount;
+                    driver = t;
+                }
+            }
+            //The other query words are checked rarest first, most users fail the first check
+            Integer[] others = new Integer[tokens.length - 1];
+            for (int t = 0, i = 0; t < tokens.length; t++) {
+                if(t != driver) others[i++] = t;
+            }
+            Arrays.sort(others, Comparator.comparingLong((Integer t) -> userCounts[t]));
+            //No user is closer than its driver word plus the closest match of every other query word
+            //(0 for a query word whose matches were cut, the edit distance may find a closer word)
+            int floor = 0;
+            for(int t : others){
+                if(!matches[t].complete) continue;
+                int closest = Integer.MAX_VALUE;
+                for(WordMatch match : matches[t].words) closest = Math.min(closest, match.distance);
+                floor += closest;
+            }
+
+            IntHashSet seen = new IntHashSet(USER_BUDGET);
+            //The best limit matches so far, the worst on top
+            PriorityQueue<Match> kept = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            int checked = 0;
+            int distanceChecks = 0;
+            //The driver's words are sorted by distance and a user is never closer than its driver word plus the floor:
+            //once every kept match is that close, no user left can be closer (an equally close one can only tie,
+            //the ties found first are kept)
+            for(WordMatch match : matches[driver].words){
+                Postings wordUsers = dictionary.users[match.word];
+                for (int i = 0; i < wordUsers.size && checked < USER_BUDGET; i++) {
+                    if(kept.size() == limit && kept.peek().distance <= match.distance + floor) break;
+                    int slot = wordUsers.slots[i];
+                    if(users[slot] == null || !seen.add(slot)) continue;
+                    checked++;
+                    if(filter != null && !filter.test(users[slot])) continue;
+                    int total = match.distance;
+                    //The other query words are checked with their matched words, the edit distance is only
+                    //computed when a query word had too many matches to keep them all
+                    for (int other = 0; other < others.length && total != Integer.MAX_VALUE; other++) {
+                        int t = others[other];
+                        int maxDistance = maxDistance(tokens[t].length());
+                        int distance = Integer.MAX_VALUE;
+                        for(int word : wordIds[slot]){
+                            distance = Math.min(distance, distances[t].get(word, Integer.MAX_VALUE));
+                        }
+                        if(distance == Integer.MAX_VALUE && !matches[t].complete && maxDistance == 0){
+                            //A short query word allows no typo, a plain prefix check is enough
+                            for(int word : wordIds[slot]){
+                                if(dictionary.words.get(word).startsWith(tokens[t])) distance = 0;
+                            }
+                        }
+                        else if(distance == Integer.MAX_VALUE && !matches[t].complete && distanceChecks++ < DISTANCE_BUDGET){
+                            for(int word : wordIds[slot]){
+                                String text = dictionary.words.get(word);
+                                distance = Math.min(distance, prefixDistance(text, 0, text.length(), tokens[t], maxDistance));
+                            }
+                            if(distance > maxDistance) distance = Integer.MAX_VALUE;
+                        }
+                        total = distance == Integer.MAX_VALUE ? Integer.MAX_VALUE : total + distance;
+                    }
+                    if(total != Integer.MAX_VALUE){
+                        kept.add(new Match(users[slot], names[slot], total));
+                        if(kept.size() > limit) kept.poll();
+                    }
+                }
+                if(checked >= USER_BUDGET || kept.size() == limit && kept.peek().distance <= match.distance + floor) break;
+            }
+            return best(new ArrayList<>(kept), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks the users of a short list against a query without an index, the same way {@link #search} does.
+     *
+     * @param users The users to check, every one of them is compared.
+     * @param query The name or email typed by the user, the case is ignored.
+     * @param limit The max number of users returned.
+     * @return Up to limit users, the closest first.
+     */
+    public static List<User> rank(Collection<? extends User> users, String query, int limit){
+        return rank(users, query, limit, null);
+    }
+
+    /**
+     * Ranks the users of a short list who pass a filter against a query without an index.
+     *
+     * @param users  The users to check, every one of them is compared.
+     * @param query  The name or email typed by the user, the case is ignored.
+     * @param limit  The max number of users returned.
+     * @param filter Only the users it accepts are returned, null to accept every user.
+     * @return Up to limit users, the closest first.
+     */
+    public static List<User> rank(Collection<? extends User> users, String query, int limit,
+                                  Predicate<? super User> filter){
+        String[] tokens = tokenize(query);
+        if(tokens.length == 0 || limit <= 0) return Collections.emptyList();
+
+        ArrayList<Match> matches = new ArrayList<>();
+        for(User user : users){
+            if(filter != null && !filter.test(user)) continue;
+            String name = UserNameIndex.normalize(user.getName());
+            String[] userWords = wordsOf(user);
+            int total = 0;
+            for (int t = 0; t < tokens.length && total != Integer.MAX_VALUE; t++) {
+                int maxDistance = maxDistance(tokens[t].length());
+                int distance = tokenDistance(userWords, tokens[t], maxDistance);
+                total = distance > maxDistance ? Integer.MAX_VALUE : total + distance;
+            }
+            if(total != Integer.MAX_VALUE){
+                matches.add(new Match(user, name, total));
+            }
+        }
+        return best(matches, limit);
+    }
+
+    //The number of typos allowed for a query word of this length
+    private static int maxDistance(int length){
+        if(length <= 2) return 0;
+        if(length <= 5) return 1;
+        if(length <= 9) return 2;
+        return 3;
+    }
+
+    private static String[] tokenize(String query){
+        String normalized = UserNameIndex.normalize(query);
+        if(normalized == null) return new String[0];
+        return split(normalized).toArray(new String[0]);
+    }
+
+    //The distinct words of the user's name and email
+    private static String[] wordsOf(User user){
+        LinkedHashSet<String> userWords = new LinkedHashSet<>();
+        String name = UserNameIndex.normalize(user.getName());
+        if(name != null) userWords.addAll(split(name));
+        if(user.getEmail() != null) userWords.addAll(split(user.getEmail().toLowerCase(Locale.ROOT)));
+        return userWords.toArray(new String[0]);
+    }
+
+    //Splits lower case text on every symbol and where letters meet digits
+    private static List<String> split(String text){
+        ArrayList<String> parts = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean wordChar = Character.isLetterOrDigit(c);
+            boolean boundary = start >= 0 && wordChar
+                    && Character.isDigit(c) != Character.isDigit(text.charAt(i - 1));
+            if(start >= 0 && (!wordChar || boundary)){
+                parts.add(text.substring(start, i));
+                start = -1;
+            }
+            if(wordChar && start < 0){
+                start = i;
+            }
+        }
+        return parts;
+    }
+
+    //The smallest distance between a query word and the start of any word of a user
+    private static int tokenDistance(String[] userWords, String token, int maxDistance){
+        int best = maxDistance + 1;
+        for (int i = 0; i < userWords.length && best > 0; i++) {
+            best = Math.min(best, prefixDistance(userWords[i], 0, userWords[i].length(), token, maxDistance));
+        }
+        return best;
+    }
+
+    /**
+     * The edit distance between the query and the closest start of text[from, to),
+     * or maxDistance + 1 as soon as it is certain to be higher than maxDistance.
+     */
+    static int prefixDistance(String text, int from, int to, String query, int maxDistance){
+        //A start of the text longer than the query plus the allowed typos can't be closer
+        int length = Math.min(to - from, query.length() + maxDistance);
+        int[] previous = new int[length + 1];
+        int[] current = new int[length + 1];
+        for (int j = 0; j <= length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char q = query.charAt(i - 1);
+            for (int j = 1; j <= length; j++) {
+                int cost = text.charAt(from + j - 1) == q ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(rowMin > maxDistance) return maxDistance + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        //Any start of the text may match, so the best column of the last row wins
+        int best = maxDistance + 1;
+        for (int j = 0; j <= length; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    private static List<User> best(ArrayList<Match> matches, int limit){
+        matches.sort(RANKING);
+        ArrayList<User> results = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            results.add(matches.get(i).user);
+        }
+        return results;
+    }
+
+    private void insert(User user){
+        if(slotCount == users.length){
+            users = Arrays.copyOf(users, users.length * 2);
+            names = Arrays.copyOf(names, users.length);
+            wordIds = Arrays.copyOf(wordIds, users.length);
+        }
+        int slot = slotCount++;
+        users[slot] = user;
+        names[slot] = UserNameIndex.normalize(user.getName());
+        slotOf.put(user, slot);
+        String[] userWords = wordsOf(user);
+        wordIds[slot] = new int[userWords.length];
+        for (int i = 0; i < userWords.length; i++) {
+            wordIds[slot][i] = dictionary.add(userWords[i], slot);
+        }
+    }
+
+    //Rebuilds everything from the live users, dropping the removed ones
+    private void rebuild(){
+        User[] live = new User[slotOf.size()];
+        int size = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if(users[slot] != null) live[size++] = users[slot];
+        }
+        dictionary.clear();
+        slotOf.clear();
+        users = new User[Math.max(16, size)];
+        names = new String[users.length];
+        wordIds = new int[users.length][];
+        slotCount = 0;
+        deadCount = 0;
+        for (int i = 0; i < size; i++) {
+            insert(live[i]);
+        }
+    }
+
+    //The trigrams of a word padded at the start, each one packed in a long (3 chars of 16 bits)
+    private static long[] trigrams(String word){
+        long[] grams = new long[word.length()];
+        for (int i = 0; i < grams.length; i++) {
+            long gram = 0;
+            for (int k = i; k < i + 3; k++) {
+                char c = k < 2 ? PAD : word.charAt(k - 2);
+                gram = (gram << 16) | c;
+            }
+            grams[i] = gram;
+        }
+        return grams;
+    }
+
+    /** Distinct words with their trigram index and the users holding each of them. */
+    private static class Dictionary {
+        /** Word to id, sorted so the words starting with a prefix are one range. */
+        final TreeMap<String, Integer> ids = new TreeMap<>();
+        final ArrayList<String> words = new ArrayList<>();
+        Postings[] users = new Postings[16];
+        /** Trigram to the ids of the words holding it. */
+        final HashMap<Long, Postings> grams = new HashMap<>();
+        /** Per thread counters of the words sharing trigrams with a query word, reset after each query. */
+        final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+        //Adds a user to a word, creating the word if it is new, and returns the word's id
+        int add(String word, int slot){
+            Integer id = ids.get(word);
+            if(id == null){
+                int newId = words.size();
+                ids.put(word, newId);
+                words.add(word);
+                if(newId == users.length) users = Arrays.copyOf(users, newId * 2);
+                users[newId] = new Postings();
+                long[] wordGrams = trigrams(word);
+                Arrays.sort(wordGrams);
+                for (int i = 0; i < wordGrams.length; i++) {
+                    //Sorted, so a trigram repeated in the word is only added once
+                    if(i == 0 || wordGrams[i] != wordGrams[i - 1]){
+                        grams.computeIfAbsent(wordGrams[i], key -> new Postings()).add(newId);
+                    }
+                }
+                id = newId;
+            }
+            users[id].add(slot);
+            return id;
+        }
+
+        void clear(){
+            ids.clear();
+            words.clear();
+            users = new Postings[16];
+            grams.clear();
+        }
+
+        //The words whose start is within maxDistance of the query word, closest first
+        TokenMatch match(String token, int maxDistance){
+            long[] tokenGrams = trigrams(token);
+            Postings[] lists = new Postings[tokenGrams.length];
+            int found = 0;
+            for(long gram : tokenGrams){
+                Postings list = grams.get(gram);
+                if(list != null) lists[found++] = list;
+            }
+            Arrays.sort(lists, 0, found, Comparator.comparingInt(list -> list.size));
+
+            Scratch counters = scratch.get();
+            try {
+                //One typo breaks at most 3 trigrams, a skipped trigram may be one a word shares
+                int needed = tokenGrams.length - 3 * maxDistance;
+                int budget = POSTING_BUDGET;
+                boolean complete = true;
+                int read = 0;
+                while (read < found && lists[read].size <= budget){
+                    budget -= lists[read++].size;
+                }
+                if(read < found){
+                    needed -= found - read;
+                    complete = false;
+                }
+                counters.count(lists, read, Math.max(1, needed));
+                int[] candidates = counters.best(Math.max(1, needed), MAX_CANDIDATES);
+                complete &= candidates.length < MAX_CANDIDATES;
+
+                ArrayList<WordMatch> matches = new ArrayList<>();
+                //Exact prefix matches come from the sorted range, they are found even when their trigrams were skipped
+                String lastExact = null;
+                for(Map.Entry<String, Integer> entry : ids.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()){
+                    if(matches.size() == MAX_PREFIX_WORDS){
+                        complete = false;
+                        break;
+                    }
+                    lastExact = entry.getKey();
+                    matches.add(new WordMatch(entry.getValue(), 0));
+                }
+                for(int id : candidates){
+                    String word = words.get(id);
+                    //An exact prefix match is in the range, it was listed unless the range was cut before it
+                    if(word.startsWith(token)){
+                        if(lastExact == null || word.compareTo(lastExact) > 0) matches.add(new WordMatch(id, 0));
+                        continue;
+                    }
+                    //A word shorter than the query minus the allowed typos can't be close enough, skip the distance
+                    if(word.length() + maxDistance < token.length()) continue;
+                    int distance = prefixDistance(word, 0, word.length(), token, maxDistance);
+                    if(distance <= maxDistance){
+                        matches.add(new WordMatch(id, distance));
+                    }
+                }
+                matches.sort(Comparator.comparingInt((WordMatch match) -> match.distance)
+                        .thenComparing(match -> words.get(match.word)));
+                return new TokenMatch(matches.toArray(new WordMatch[0]), complete);
+            } finally {
+                counters.reset();
+            }
+        }
+    }
+
+    /** A growable list of ints: user slots or word ids, ascending since new ones always get the next number. */
+    private static class Postings {
+        int[] slots = new int[2];
+        int size;
+
+        void add(int slot){
+            if(size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+
+    /**
+     * The words found in the posting lists of a query word with the number of lists holding them.
+     * The lists are sorted by word id, so they are counted by merging them: the lists are read in a row
+     * instead of adding 1 to a counter per entry somewhere in an array as big as the dictionary.
+     */
+    private static class Scratch {
+        int[] cursors = new int[16];
+        /** heads[i] is the word id list i is at, Integer.MAX_VALUE once it is read to the end. */
+        int[] heads = new int[16];
+        /** hits[i] is the number of lists holding the word ids[i]. */
+        int[] ids = new int[256];
+        int[] hits = new int[256];
+        int size;
+        int maxHits;
+
+        //Keeps the words found in at least needed of the first count lists
+        void count(Postings[] lists, int count, int needed){
+            if(cursors.length < count){
+                cursors = new int[count];
+                heads = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                cursors[i] = 0;
+                heads[i] = lists[i].size > 0 ? lists[i].slots[0] : Integer.MAX_VALUE;
+            }
+            while (true){
+                int smallest = Integer.MAX_VALUE;
+                int found = 0;
+                for (int i = 0; i < count; i++) {
+                    if(heads[i] < smallest){
+                        smallest = heads[i];
+                        found = 1;
+                    }
+                    else if(heads[i] == smallest){
+                        found++;
+                    }
+                }
+                if(smallest == Integer.MAX_VALUE) return;
+                for (int i = 0; i < count; i++) {
+                    if(heads[i] == smallest){
+                        int cursor = ++cursors[i];
+                        heads[i] = cursor < lists[i].size ? lists[i].slots[cursor] : Integer.MAX_VALUE;
+                    }
+                }
+                if(found < needed) continue;
+                if(size == ids.length){
+                    ids = Arrays.copyOf(ids, size * 2);
+                    hits = Arrays.copyOf(hits, size * 2);
+                }
+                ids[size] = smallest;
+                hits[size++] = found;
+                maxHits = Math.max(maxHits, found);
+            }
+        }
+
+        //The ids counted at least needed times, the highest counts first when there are more than max of them
+        int[] best(int needed, int max){
+            int maxCount = maxHits;
+            if(maxCount < needed) return new int[0];
+            int[] perCount = new int[maxCount + 1];
+            for (int i = 0; i < size; i++) {
+                perCount[hits[i]]++;
+            }
+            int cutoff = needed;
+            int cumulative = 0;
+            for (int count = maxCount; count > needed; count--) {
+                cumulative += perCount[count];
+                if(cumulative >= max){
+                    cutoff = count;
+                    break;
+                }
+            }
+            int[] best = new int[Math.min(max, size)];
+            int found = 0;
+            for (int i = 0; i < size && found < best.length; i++) {
+                if(hits[i] > cutoff) best[found++] = ids[i];
+            }
+            for (int i = 0; i < size && found < best.length; i++) {
+                if(hits[i] == cutoff) best[found++] = ids[i];
+            }
+            return Arrays.copyOf(best, found);
+        }
+
+        void reset(){
+            size = 0;
+            maxHits = 0;
+        }
+    }
+
+    /** The dictionary words matching a query word, complete is false if some may have been left out. */
+    private static class TokenMatch {
+        final WordMatch[] words;
+        final boolean complete;
+
+        TokenMatch(WordMatch[] words, boolean complete){
+            this.words = words;
+            this.complete = complete;
+        }
+    }
+
+    /** A dictionary word within the allowed distance of a query word. */
+    private static class WordMatch {
+        final int word;
+        final int distance;
+
+        WordMatch(int word, int distance){
+            this.word = word;
+            this.distance = distance;
+        }
+    }
+
+    /** A user that passed the distance check. */
+    private static class Match {
+        final User user;
+        final String name;
+        final int distance;
+
+        Match(User user, String name, int distance){
+            this.user = user;
+            this.name = name;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.educore.service;
+
+import com.educore.model.Student;
+
+import java.util.*;
+
+/**
+ * A live ranking of students by GPA, highest GPA first.
+ * Students with the same GPA are ordered by their userId so no student is ever dropped
+ * (the old {@link TreeSet} built from {@link Student#compareTo(Student)} kept only one of them).
+ * Key Features:
+ * The ranking is stored in a treap (a balanced binary search tree) where each node knows the size
+ * of its subtree, so updating a student, finding a student's rank and jumping to a page are all O(log n).
+ * Tracked students call {@link #update(Student)} themselves whenever their grades change
+ * (from {@link Student#modifyGrade}, {@link Student#addCourseEnrollment} and {@link Student#removeCourseEnrollment}),
+ * so the ranking never has to be rebuilt.
+ */
+
+public class GpaLeaderboard {
+    /** One entry of the ranking. Key: (gpa descending, userId ascending). */
+    private static class Node {
+        final double gpa;
+        final int userId;
+        final Student student;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(double gpa, int userId, Student student, int priority) {
+            this.gpa = gpa;
+            this.userId = userId;
+            this.student = student;
+            this.priority = priority;
+        }
+    }
+
+    /** Root of the treap. */
+    private Node root;
+    /**
+     * The GPA each tracked student is currently ranked with.
+     * Key: userId, Value: GPA used as the key of the student's node.
+     */
+    private final HashMap<Integer, Double> rankedGpa = new HashMap<>();
+    private final Random random = new Random();
+
+    /**
+     * Starts ranking a student and lets the student report its own grade changes to this leaderboard.
+     *
+     * @param student The student to rank.
+     */
+    public synchronized void track(Student student){
+        if(rankedGpa.containsKey(student.getUserId())){
+            untrack(student);
+        }
+        double gpa = student.calculateGPA();
+        root = insert(root, new Node(gpa, student.getUserId(), student, random.nextInt()));
+        rankedGpa.put(student.getUserId(), gpa);
+        student.setLeaderboard(this);
+    }
+
+    /**
+     * Stops ranking a student.
+     *
+     * @param student The student to remove.
+     * @return true if the student was ranked and removed.
+     */
+    public synchronized boolean untrack(Student student){
+        Double gpa = rankedGpa.remove(student.getUserId());
+        if(gpa == null) return false;
+        root = delete(root, gpa, student.getUserId());
+        if(student.getLeaderboard() == this){
+            student.setLeaderboard(null);
+        }
+        return true;
+    }
+
+    /**
+     * Moves a student to the position matching its current GPA in O(log n).
+     * Students that are not tracked are ignored.
+     *
+     * @param student The student whose grades changed.
+     */
+    public synchronized void update(Student student){
+        Double oldGpa = rankedGpa.get(student.getUserId());
+        if(oldGpa == null) return;
+
+        double newGpa = student.calculateGPA();
+        if(Double.compare(oldGpa, newGpa) == 0) return;
+
+        root = delete(root, oldGpa, student.getUserId());
+        root = insert(root, new Node(newGpa, student.getUserId(), student, random.nextInt()));
+        rankedGpa.put(student.getUserId(), newGpa);
+    }
+
+    /**
+     * Returns the rank of a student, 1 being the highest GPA.
+     *
+     * @param student The student to look up.
+     * @return The 1-based rank, or -1 if the student is not tracked.
+     */
+    public synchronized int rankOf(Student student){
+        Double gpa = rankedGpa.get(student.getUserId());
+        if(gpa == null) return -1;
+
+        int rank = 0;
+        Node node = root;
+        while (node != null){
+            int cmp = compare(gpa, student.getUserId(), node);
+            if(cmp < 0){
+                node = node.left;
+            }
+            else{
+                rank += size(node.left) + 1;
+                if(cmp == 0) break;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param k The number of students to return.
+     * @return The k students with the highest GPA, highest first.
+     */
+    public List<Student> topK(int k){ return page(0, k); }
+
+    /**
+     * Returns one page of the ranking in O(log n + limit).
+     *
+     * @param offset The number of students to skip (0 starts at rank 1).
+     * @param limit  The maximum number of students in the page.
+     * @return The students from rank (offset + 1) to rank (offset + limit), highest GPA first.
+     */
+    public synchronized List<Student> page(int offset, int limit){
+        ArrayList<Student> page = new ArrayList<>(Math.max(0, Math.min(limit, size(root) - offset)));
+        if(offset < 0 || limit <= 0) return page;
+        collect(root, offset, limit, page);
+        return page;
+    }
+
+    /** @return Every tracked student, highest GPA first. */
+    public synchronized List<Student> getAll(){ return page(0, size(root)); }
+
+    /** @return The number of tracked students. */
+    public synchronized int size(){ return size(root); }
+
+    //Compares a key with a node, highest GPA first then the lowest id first
+    private static int compare(double gpa, int userId, Node node){
+        int cmp = Double.compare(node.gpa, gpa);
+        if(cmp != 0) return cmp;
+        return Integer.compare(userId, node.userId);
+    }
+
+    private static int size(Node node){ return node == null ? 0 : node.size; }
+
+    private static void resize(Node node){ node.size = size(node.left) + size(node.right) + 1; }
+
+    private static Node rotateRight(Node node){
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        resize(node);
+        resize(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node){
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        resize(node);
+        resize(right);
+        return right;
+    }
+
+    private static Node insert(Node node, Node added){
+        if(node == null) return added;
+        if(compare(added.gpa, added.userId, node) < 0){
+            node.left = insert(node.left, added);
+            if(node.left.priority > node.priority) node = rotateRight(node);
+        }
+        else{
+            node.right = insert(node.right, added);
+            if(node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        resize(node);
+        return node;
+    }
+
+    private static Node delete(Node node, double gpa, int userId){
+        if(node == null) return null;
+        int cmp = compare(gpa, userId, node);
+        if(cmp < 0){
+            node.left = delete(node.left, gpa, userId);
+        }
+        else if(cmp > 0){
+            node.right = delete(node.right, gpa, userId);
+        }
+        else{
+            return merge(node.left, node.right);
+        }
+        resize(node);
+        return node;
+    }
+
+    //Joins two treaps where every key of the left one is smaller than every key of the right one
+    private static Node merge(Node left, Node right){
+        if(left == null) return right;
+        if(right == null) return left;
+        if(left.priority > right.priority){
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    //In order walk that skips whole subtrees before the offset, returns how many students are still wanted
+    private static int collect(Node node, int offset, int limit, List<Student> out){
+        if(node == null || limit <= 0) return limit;
+        int leftSize = size(node.left);
+        if(offset < leftSize){
+            limit = collect(node.left, offset, limit, out);
+            offset = 0;
+        }
+        else{
+            offset -= leftSize;
+        }
+        if(limit <= 0) return limit;
+        if(offset == 0){
+            out.add(node.student);
+            limit--;
+        }
+        else{
+            offset--;
+        }
+        return collect(node.right, offset, limit, out);
+    }
+}
@@ -0,0 +1,191 @@
+package com.educore.service;
+
+import com.educore.interfaces.MetricsMXBean;
+import com.educore.util.LatencyHistogram;
+
+import javax.management.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters and latency timers of the platform's operations, shared by the whole program ({@link #shared()}).
+ * The instrumented code looks its metrics up once (into static final fields), so recording an event is
+ * never a map lookup.
+ * Key Features:
+ * {@link Counter}: a striped {@link LongAdder}, threads counting at the same time touch different cells.
+ * {@link Timer}: a lock-free {@link LatencyHistogram} of nanoseconds, recording allocates nothing.
+ * Exposed through JMX ({@link #registerMBean()}) and as a text dump, on demand ({@link #dump()}) or written
+ * to a file every few seconds ({@link #startDump(Path, long)}).
+ * {@link #configure()} turns both on from the system properties {@code educore.metrics.jmx} (true/false, default true),
+ * {@code educore.metrics.dump} (seconds between dumps, default 0 = no dump) and {@code educore.metrics.file}
+ * (default {@code metrics.txt}).
+ */
+
+public class MetricsRegistry implements MetricsMXBean {
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+    private static final String OBJECT_NAME = "com.educore:type=Metrics";
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService dumper;
+
+    /** A number that only goes up, e.g. the enrollments rejected because the course was full. */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter(){}
+
+        /** Adds one. */
+        public void increment(){ value.increment(); }
+
+        /** @param amount The amount to add. */
+        public void add(long amount){ value.add(amount); }
+
+        /** @return The current count. */
+        public long get(){ return value.sum(); }
+    }
+
+    /** The latencies of one operation, in nanoseconds. */
+    public static final class Timer {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private Timer(){}
+
+        /**
+         * Records the time since a start read from {@link System#nanoTime()}.
+         * Usage: {@code long started = System.nanoTime(); ... timer.recordSince(started);}
+         *
+         * @param startedNanos The value of {@link System#nanoTime()} when the operation started.
+         */
+        public void recordSince(long startedNanos){ latencies.record(System.nanoTime() - startedNanos); }
+
+        /** @param nanos The duration of one operation. */
+        public void record(long nanos){ latencies.record(nanos); }
+
+        /** @return The recorded latencies. */
+        public LatencyHistogram getLatencies(){ return latencies; }
+    }
+
+    /** @return The registry shared by every instrumented class. */
+    public static MetricsRegistry shared(){ return SHARED; }
+
+    /**
+     * Gives the counter with a name, creating it on first use.
+     *
+     * @param name The name, dotted by convention (e.g. {@code course.enroll.full}).
+     * @return The counter, the same object for the same name.
+     */
+    public Counter counter(String name){
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Gives the timer with a name, creating it on first use.
+     *
+     * @param name The name, dotted by convention (e.g. {@code course.enroll}).
+     * @return The timer, the same object for the same name.
+     */
+    public Timer timer(String name){
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /** Registers with JMX and starts the periodic dump, as the {@code educore.metrics.*} system properties say. */
+    public void configure(){
+        if(Boolean.parseBoolean(System.getProperty("educore.metrics.jmx", "true"))){
+            registerMBean();
+        }
+        long seconds = Long.getLong("educore.metrics.dump", 0);
+        if(seconds > 0){
+            startDump(Path.of(System.getProperty("educore.metrics.file", "metrics.txt")), seconds);
+        }
+    }
+
+    /** Registers this registry with the platform MBean server, does nothing if it is already registered. */
+    public void registerMBean(){
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!server.isRegistered(name)){
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e){
+            System.out.println("CRITICAL: The metrics could not be registered with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends a dump of every metric to a file every few seconds, from a background thread.
+     * Calling it again replaces the previous schedule.
+     *
+     * @param file          The file to append to, created if it doesn't exist.
+     * @param periodSeconds The seconds between two dumps.
+     */
+    public synchronized void startDump(Path file, long periodSeconds){
+        stopDump();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                Files.writeString(file, dump() + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e){
+                System.out.println("CRITICAL: The metrics could not be written: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        dumper = executor;
+    }
+
+    /** Stops the periodic dump, if one is running. */
+    public synchronized void stopDump(){
+        if(dumper != null){
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters(){
+        TreeMap<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getTimerCounts(){
+        TreeMap<String, Long> values = new TreeMap<>();
+        timers.forEach((name, timer) -> values.put(name, timer.latencies.getCount()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getTimerP99Nanos(){
+        TreeMap<String, Long> values = new TreeMap<>();
+        timers.forEach((name, timer) -> values.put(name, timer.latencies.getValueAtPercentile(99)));
+        return values;
+    }
+
+    @Override
+    public String dump(){
+        StringBuilder text = new StringBuilder("# educore metrics ").append(LocalDateTime.now());
+        getCounters().forEach((name, value) -> text.append(System.lineSeparator())
+                .append("counter ").append(name).append(' ').append(value));
+        new TreeMap<>(timers).forEach((name, timer) -> text.append(System.lineSeparator())
+                .append("timer ").append(name).append(" ns ").append(timer.latencies));
+        return text.toString();
+    }
+
+    @Override
+    public void reset(){
+        counters.values().forEach(counter -> counter.value.reset());
+        timers.values().forEach(timer -> timer.latencies.reset());
+    }
+}
@@ -3,46 +3,160 @@ package com.educore.service;
 import com.educore.model.*;
 import com.educore.enums.UserRole;
 import com.educore.enums.CourseLevel;
+import com.educore.util.Page;
 import com.educore.util.SystemHelper;
 import com.educore.exception.UserNotFoundException;
+import com.educore.interfaces.LazyLoader;
+import com.educore.jfr.UserLookupEvent;
+import com.educore.persistence.PlatformStore;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The central hub of the E-Learning System.
  * This class acts as the main database and controller for the application.
  * It manages the global lists of {@link User}s and {@link Course}s.
  * Key Features:
- * Uses {@link Vector} for thread safe user management.
- * Uses {@link TreeSet} to provide sorted view of students by GPA and courses by difficulty.
+ * Keeps the users and courses as immutable versions ({@link PlatformSnapshot}): readers never lock or copy,
+ * writers publish the next version atomically.
+ * Uses a {@link UserRegistry} to find users by id or email in O(1) without scanning the user list.
+ * Uses a {@link UserNameIndex} to find users by the start of their name without scanning the user list.
+ * Uses a {@link FuzzyUserIndex} so a mistyped name or email still finds the user.
+ * Uses a {@link UserRoleIndex} to list the users of one role without scanning every user.
+ * Uses a {@link GpaLeaderboard} to keep students ranked by GPA as their grades change.
+ * Uses a {@link CourseCatalog} to find courses by id in O(1) and to list them by difficulty without sorting.
+ * Uses a {@link CourseSearchIndex} to search the courses by the words of their titles, modules and lessons.
  * Provides search functionality and data retrieval for the dashboard.
+ * Can save its state to disk with a {@link PlatformStore} (snapshot + write-ahead log) so it survives restarts.
+ * Saved users and courses can be built lazily by a {@link LazyLoader}: lookups build only what they need,
+ * the methods returning whole lists build everything first.
  */
 
 public class Platform {
-    /** A thread-safe collection storing all registered users (Students, Instructors, Admins). */
-    private static Vector<User> users = new Vector<>();
+    /**
+     * The latest version of the registered users (Students, Instructors, Admins) and the available courses.
+     * Readers take the version as it is, writers publish the next version while holding {@link #writeLock}.
+     */
+    private static final AtomicReference<PlatformSnapshot> state = new AtomicReference<>(PlatformSnapshot.EMPTY);
+
+    /**
+     * Makes the writers publish one version at a time, readers never take it.
+     * The indexes are updated under it too, before the version is published, so a user or course listed in a version
+     * is already found by id, email and name, and the indexes change in the same order as the versions.
+     * The change is reported to the {@link PlatformEvents} under it as well, so the {@link PlatformStore} logs the
+     * changes in that order, but the fsync of the log is waited for after it is released.
+     */
+    private static final Object writeLock = new Object();
+
+    /** The id and email indexes over the users, kept in sync by {@link #addUser} and {@link #removeUser}. */
+    private static final UserRegistry userRegistry = new UserRegistry();
+
+    /** The name index over the users, answers the search as you type name queries. */
+    private static final UserNameIndex userNameIndex = new UserNameIndex();
+
+    /** The typo-tolerant index over the names and emails of the users. */
+    private static final FuzzyUserIndex fuzzyUserIndex = new FuzzyUserIndex();
+
+    /** The users split by role, answers the per role listings without instanceof scans. */
+    private static final UserRoleIndex userRoleIndex = new UserRoleIndex();
+
+    /** The id index and difficulty buckets over the courses, kept in sync by {@link #addCourse} and {@link #removeCourse}. */
+    private static final CourseCatalog courseCatalog = new CourseCatalog();
+
+    /** The full-text index over the titles, modules and lessons of the courses. */
+    private static final CourseSearchIndex courseSearchIndex = new CourseSearchIndex();
+
+    static {
+        //Edits of a course's modules and lessons are reported as events, the index follows them
+        PlatformEvents.addListener(courseSearchIndex);
+        //A course whose level is changed is moved to the bucket of its new level
+        PlatformEvents.addListener(courseCatalog);
+    }
+
+    /** The live GPA ranking of every registered student. */
+    private static final GpaLeaderboard leaderboard = new GpaLeaderboard();
+
+    //Looked up once, recording is then a histogram update
+    private static final MetricsRegistry.Timer FIND_BY_ID_TIMER = MetricsRegistry.shared().timer("platform.findUserById");
+    private static final MetricsRegistry.Timer FIND_BY_EMAIL_TIMER = MetricsRegistry.shared().timer("platform.findUserByEmail");
+    private static final MetricsRegistry.Timer SORTED_BY_GPA_TIMER = MetricsRegistry.shared().timer("platform.studentsSortedByGPA");
+
+    /** Builds saved users and courses on first access, null once everything is built. */
+    private static volatile LazyLoader lazyLoader;
+
+    /** Saves every change to disk, null if this platform only lives in memory. */
+    private PlatformStore store;
+
+    /** Runs the commands of the dashboards and of any other client, created by {@link #getCommandService()} on first use. */
+    private volatile CommandService commandService;
 
-    /** A list storing all available courses in the platform. */
-    private static ArrayList<Course> courses = new ArrayList<>();
+    //The factories fill the platform once it is fully built, so no constructor hands out this
+    private Platform(){}
 
     /**
-     * Initializes the Platform with ready data.
+     * Creates the Platform with ready data.
      * Adds default students, instructors, admins, and courses to the system
      * for testing and demonstration purposes.
+     *
+     * @return The new platform.
      */
-    public Platform(){
-        users.add(new Student(1, "Mazen", "Mazen@GroupWork.com", UserRole.STUDENT));
-        users.add(new Student(2, "Meshal", "Meshal@GroupWork.com", UserRole.STUDENT));
+    public static Platform create(){
+        Platform platform = new Platform();
+        platform.seedDemoData();
+        return platform;
+    }
 
-        users.add(new Instructor(3, "Rayan", "Rayan@GroupWork.com", UserRole.INSTRUCTOR));
+    /**
+     * Opens the Platform from the data saved in a folder (the last snapshot plus the write-ahead log after it).
+     * If the folder holds no saved data, the platform starts with the same ready data as {@link #create()}.
+     * From then on every change is saved, call {@link #close()} before exiting to save a final snapshot.
+     * The system property {@code educore.store.checkpointInterval} sets the number of changes between two snapshots.
+     *
+     * @param dataDirectory The folder holding the saved data, created if it doesn't exist.
+     * @return The opened platform.
+     * @throws IOException if the saved data can't be read or the folder can't be written.
+     */
+    public static Platform open(Path dataDirectory) throws IOException {
+        Platform platform = new Platform();
+        platform.store = PlatformStore.open(dataDirectory, platform,
+                Integer.getInteger("educore.store.checkpointInterval", PlatformStore.DEFAULT_CHECKPOINT_INTERVAL), true);
+        if(platform.store.isFresh()){
+            platform.seedDemoData();
+        }
+        platform.store.start();
+        return platform;
+    }
+
+    /**
+     * Saves a final snapshot and stops saving changes, does nothing for an in-memory platform.
+     *
+     * @throws IOException if the snapshot can't be saved.
+     */
+    public void close() throws IOException {
+        if(store != null){
+            store.close();
+            store = null;
+        }
+    }
+
+    //Adds default students, instructors, admins, and courses to the system
+    private void seedDemoData(){
+        addUser(new Student(1, "Mazen", "Mazen@GroupWork.com", UserRole.STUDENT));
+        addUser(new Student(2, "Meshal", "Meshal@GroupWork.com", UserRole.STUDENT));
+
+        addUser(new Instructor(3, "Rayan", "Rayan@GroupWork.com", UserRole.INSTRUCTOR));
 
-        users.add(new Admin(4, "Osama", "Osama@GroupWork.com", UserRole.ADMIN, this));
+        addUser(new Admin(4, "Osama", "Osama@GroupWork.com", UserRole.ADMIN, this));
 
-        courses.add(new Course(1, 20, "Learn Java fundamentals in two weeks!",
+        addCourse(new Course(1, 20, "Learn Java fundamentals in two weeks!",
                 23.99, CourseLevel.BEGINNER));
-        courses.add(new Course(2, 30, "Java OOP from zero to hero in 30 days!",
+        addCourse(new Course(2, 30, "Java OOP from zero to hero in 30 days!",
                 43.99, CourseLevel.INTERMEDIATE));
-        courses.add(new Course(3, 10, "Take your java skills to the next level in just 20 days!",
+        addCourse(new Course(3, 10, "Take your java skills to the next level in just 20 days!",
                 67.99, CourseLevel.ADVANCED));
     }
 
@@ -50,14 +164,152 @@ public class Platform {
      * Registers a new user into the platform.
      * @param user The User object to be added (Student, Instructor, or Admin).
      */
-    public void addUser(User user){ users.add(user); }
+    public void addUser(User user){
+        if(user == null) return;
+        PlatformStore saving = deferSync();
+        try {
+            synchronized (writeLock){
+                indexUser(user);
+                state.set(state.get().withUser(user));
+                PlatformEvents.userAdded(user);
+            }
+        } finally {
+            awaitSync(saving);
+        }
+    }
 
     /**
-     * Removes a user from the platform.
+     * Registers a new user only if its id (and its email, unless it is "none") is not used yet.
+     * The check and the registration happen under the write lock, so two concurrent calls can't both claim the same id.
+     * @param user The User object to be added.
+     * @return true if the user was added, false if the id or email is already used.
+     */
+    public boolean addUserIfAbsent(User user){
+        if(user == null) return false;
+        //Saved users are built before taking the lock, inside it only the registry is asked
+        findUserById(user.getUserId());
+        boolean hasEmail = user.getEmail() != null && !user.getEmail().equalsIgnoreCase("none");
+        if(hasEmail) findUserByEmail(user.getEmail());
+        PlatformStore saving = deferSync();
+        try {
+            synchronized (writeLock){
+                if(userRegistry.findById(user.getUserId()) != null) return false;
+                if(hasEmail && userRegistry.findByEmail(user.getEmail()) != null) return false;
+                addUser(user);
+            }
+        } finally {
+            awaitSync(saving);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a user from the platform, the enrollments, grades and ratings are left as they are (see {@link #deleteUser}).
      * @param user The User object to be removed.
      * @return true if the user was found and removed successfully.
      */
-    public boolean removeUser(User user){ return users.remove(user); }
+    public boolean removeUser(User user){
+        if(user == null) return false;
+        PlatformStore saving = deferSync();
+        try {
+            synchronized (writeLock){
+                PlatformSnapshot current = state.get();
+                PlatformSnapshot next = current.withoutUser(user);
+                if(next == current) return false;
+                unindexUser(user);
+                state.set(next);
+                PlatformEvents.userRemoved(user);
+            }
+        } finally {
+            awaitSync(saving);
+        }
+        return true;
+    }
+
+    //Lets the store append the changes made under the write lock without waiting there for their fsync
+    private PlatformStore deferSync(){
+        PlatformStore saving = store;
+        if(saving != null) saving.deferSync();
+        return saving;
+    }
+
+    //Waits for the fsync of the changes appended since deferSync, called once the write lock is released
+    private static void awaitSync(PlatformStore saving){
+        if(saving != null) saving.awaitDeferred();
+    }
+
+    //Adds the user to every index, the caller holds the write lock and publishes the next version right after
+    private void indexUser(User user){
+        userRegistry.add(user);
+        userNameIndex.add(user);
+        fuzzyUserIndex.add(user);
+        userRoleIndex.add(user);
+        if(user instanceof Student){
+            leaderboard.track((Student) user);
+        }
+    }
+
+    //Takes the user out of every index, the caller holds the write lock and publishes the next version right after
+    private void unindexUser(User user){
+        userRegistry.remove(user);
+        userNameIndex.remove(user);
+        fuzzyUserIndex.remove(user);
+        userRoleIndex.remove(user);
+        if(user instanceof Student){
+            leaderboard.untrack((Student) user);
+        }
+    }
+
+    /**
+     * Removes a user together with everything that depends on it (cascade delete).
+     * A student is unenrolled from every course (freeing the seats), and their grades and ratings are removed,
+     * the ratings are taken back out of the course averages. An instructor's teaching assignments are removed,
+     * the courses stay on the platform.
+     * The whole delete runs under the write lock after checking the user is registered, and none of its steps
+     * can fail after that check, so it is all or nothing. The cost is linear in the user's enrollments and ratings.
+     * A student is also held for the whole delete, the same lock the {@link CommandService} commands hold while
+     * they change the student, taken in the same order (the student, then the write lock).
+     * @param user The User object to be removed.
+     * @return What was removed, {@link CascadeReport#isRemoved()} is false if the user was not registered.
+     */
+    public CascadeReport deleteUser(User user){
+        if(user == null) return CascadeReport.NOTHING;
+        //Build a lazily loaded user before taking the lock, the loader publishes it under the same lock
+        if(findUserById(user.getUserId()) != user) return CascadeReport.NOTHING;
+        PlatformStore saving = deferSync();
+        try {
+            if(user instanceof Student){
+                synchronized (user){
+                    return deleteRegisteredUser(user);
+                }
+            }
+            return deleteRegisteredUser(user);
+        } finally {
+            awaitSync(saving);
+        }
+    }
+
+    //The cascade of deleteUser, the caller holds the student (if it is one)
+    private CascadeReport deleteRegisteredUser(User user){
+        synchronized (writeLock){
+            if(userRegistry.findById(user.getUserId()) != user) return CascadeReport.NOTHING;
+            int enrollments = 0;
+            int grades = 0;
+            int ratings = 0;
+            int teachingCourses = 0;
+            if(user instanceof Student){
+                Student student = (Student) user;
+                enrollments = student.removeAllEnrollments().size();
+                grades = student.removeAllGrades();
+                ratings = student.removeAllRatings();
+            }
+            else if(user instanceof Instructor){
+                teachingCourses = ((Instructor) user).removeAllTeachingCourses();
+            }
+            removeUser(user);
+            return new CascadeReport(true, enrollments, grades, ratings, teachingCourses);
+        }
+    }
 
     /**
      * Initiates a search for a user using the SystemHelper prompt.
@@ -70,107 +322,446 @@ public class Platform {
                     "Error: You must enter a user's Name or Id.",
                     "Error: You must enter a valid positive Id.");
 
-            List<User> users = new ArrayList<>(getUsers());
+            List<User> users = getUsers();
             if(users.isEmpty()){
                 System.out.println("There are no users in the system.");
                 return null;
             }
 
-            return searcher.searchForUser(users);
+            return searcher.searchForUser(getSearchEngine(), null);
         } catch (UserNotFoundException e) {
             throw new UserNotFoundException();
         }
     }
 
+    /** @return The service running {@link com.educore.interfaces.Command commands} against this platform. */
+    public CommandService getCommandService(){
+        CommandService service = commandService;
+        if(service != null) return service;
+        synchronized (writeLock){
+            if(commandService == null){
+                commandService = new CommandService(this);
+            }
+            return commandService;
+        }
+    }
+
+    /**
+     * Gives the search engine over every user of the platform, answered by the name indexes and the id index.
+     * @return The engine, it reads the platform live, so it can be kept and reused.
+     */
+    public UserSearchEngine getSearchEngine(){
+        loadEverything();
+        return new UserSearchEngine(state.get().getUsers(), userNameIndex, fuzzyUserIndex, this::findUserById,
+                role -> role == null ? state.get().getUsers().size() : userRoleIndex.count(role));
+    }
+
+    /**
+     * Finds the users whose name starts with a prefix, using the {@link UserNameIndex}.
+     * @param prefix The start of the name, the case is ignored.
+     * @param limit  The max number of users returned.
+     * @return Up to limit users, sorted by name then id.
+     */
+    public List<User> findUsersByNamePrefix(String prefix, int limit){
+        loadEverything();
+        return userNameIndex.search(prefix, limit);
+    }
+
+    /**
+     * Finds the users whose name or email is close to a query, allowing for typos, using the {@link FuzzyUserIndex}.
+     * @param query The name or email typed by the user, the case is ignored.
+     * @param limit The max number of users returned.
+     * @return Up to limit users, the closest first.
+     */
+    public List<User> findUsersFuzzy(String query, int limit){
+        loadEverything();
+        return fuzzyUserIndex.search(query, limit);
+    }
+
     /**
      * helper method to find a user directly by their unique ID.
+     * Uses the {@link UserRegistry} id index, so the lookup is O(1).
+     * Timed by {@code platform.findUserById} and reported to the flight recorder as a {@link UserLookupEvent}.
      * @param id The unique integer ID of the user.
      * @return The User object if found, otherwise null.
      */
     public User findUserById(int id){
-        for(User user : users){
-            if(user.getUserId() == id){
-                return user;
-            }
+        long started = System.nanoTime();
+        UserLookupEvent event = new UserLookupEvent();
+        event.begin();
+        User user = userRegistry.findById(id);
+        boolean lazyLoaded = false;
+        LazyLoader loader = lazyLoader;
+        if(user == null && loader != null){
+            user = loader.loadUser(id);
+            lazyLoaded = user != null;
+        }
+        FIND_BY_ID_TIMER.recordSince(started);
+        if(event.shouldCommit()){
+            event.key = "ID";
+            event.userId = id;
+            event.found = user != null;
+            event.lazyLoaded = lazyLoaded;
+            event.commit();
         }
-        return null;
+        return user;
     }
 
     /**
      * Helper method to find a user directly by their email address.
+     * Uses the case-insensitive {@link UserRegistry} email index, so the lookup is O(1).
+     * Timed by {@code platform.findUserByEmail} and reported to the flight recorder as a {@link UserLookupEvent}.
      * @param email The email string of the user.
      * @return The User object if found, otherwise null.
      */
     public User findUserByEmail(String email){
-        for(User user : users){
-            if(user.getEmail().equalsIgnoreCase(email)){
-                return user;
-            }
+        long started = System.nanoTime();
+        UserLookupEvent event = new UserLookupEvent();
+        event.begin();
+        User user = userRegistry.findByEmail(email);
+        boolean lazyLoaded = false;
+        LazyLoader loader = lazyLoader;
+        if(user == null && loader != null){
+            user = loader.loadUserByEmail(email);
+            lazyLoaded = user != null;
+        }
+        FIND_BY_EMAIL_TIMER.recordSince(started);
+        if(event.shouldCommit()){
+            event.key = "EMAIL";
+            event.userId = user == null ? -1 : user.getUserId();
+            event.found = user != null;
+            event.lazyLoaded = lazyLoaded;
+            event.commit();
         }
-        return null;
+        return user;
     }
 
     /**
      * Adds a new course to the courses ArrayList.
      * @param course The Course object to be added.
      */
-    public void addCourse(Course course){ courses.add(course); }
+    public void addCourse(Course course){
+        if(course == null) return;
+        PlatformStore saving = deferSync();
+        try {
+            synchronized (writeLock){
+                courseCatalog.add(course);
+                courseSearchIndex.add(course);
+                state.set(state.get().withCourse(course));
+                PlatformEvents.courseAdded(course);
+            }
+        } finally {
+            awaitSync(saving);
+        }
+    }
+
+    /**
+     * Adds a new course only if its id is not used yet, the check and the add happen under the write lock.
+     * @param course The Course object to be added.
+     * @return true if the course was added, false if the id is already used.
+     */
+    public boolean addCourseIfAbsent(Course course){
+        if(course == null) return false;
+        findCourseById(course.getCourseID());
+        PlatformStore saving = deferSync();
+        try {
+            synchronized (writeLock){
+                if(courseCatalog.findById(course.getCourseID()) != null) return false;
+                addCourse(course);
+            }
+        } finally {
+            awaitSync(saving);
+        }
+        return true;
+    }
 
     /**
-     * Removes a course from the courses ArrayList.
+     * Removes a course from the courses list, the enrollments are left as they are (see {@link #deleteCourse}).
      * @param course The Course object to be removed.
      * @return true if the course was found and removed.
      */
-    public boolean removeCourse(Course course){ return courses.remove(course); }
+    public boolean removeCourse(Course course){
+        if(course == null) return false;
+        PlatformStore saving = deferSync();
+        try {
+            synchronized (writeLock){
+                PlatformSnapshot current = state.get();
+                PlatformSnapshot next = current.withoutCourse(course);
+                if(next == current) return false;
+                courseCatalog.remove(course);
+                courseSearchIndex.remove(course);
+                state.set(next);
+                PlatformEvents.courseRemoved(course);
+            }
+        } finally {
+            awaitSync(saving);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a course together with everything that depends on it (cascade delete).
+     * Every enrolled student is unlinked in one bulk pass over the {@link EnrollmentGraph}, and loses the grade and
+     * the rating of the course. Every instructor teaching the course stops teaching it.
+     * The course is unregistered and unlinked under the write lock after checking it is registered, and none of
+     * the steps can fail after that check. The course's {@link Course#getDeleteLock() delete lock} is held meanwhile,
+     * so an enroll command (which holds its read lock) is either done before or sees the course gone.
+     * The grades and ratings are then removed one student at a time while holding that student, like the
+     * {@link CommandService} commands do, so a command working on the same student takes turns with the delete.
+     * The locks are always taken in the same order: the student, then the course, then the write lock.
+     * If the store can't save the removal, the delete is still finished in memory before the
+     * {@link UncheckedIOException} is passed on.
+     * The cost is linear in the enrolled students plus the instructors.
+     * @param course The Course object to be removed.
+     * @return What was removed, {@link CascadeReport#isRemoved()} is false if the course was not registered.
+     */
+    public CascadeReport deleteCourse(Course course){
+        if(course == null) return CascadeReport.NOTHING;
+        //The students and instructors must be built before taking the lock, the loader publishes them under it
+        Collection<User> instructors = usersByRole(UserRole.INSTRUCTOR);
+        List<Student> students;
+        int teachingCourses = 0;
+        //Kept until the students are unlinked too, a delete that could not be saved is still finished in memory
+        UncheckedIOException notSaved = null;
+        PlatformStore saving = deferSync();
+        try {
+            course.getDeleteLock().writeLock().lock();
+            try {
+                synchronized (writeLock){
+                    if(courseCatalog.findById(course.getCourseID()) != course) return CascadeReport.NOTHING;
+                    students = course.removeAllEnrollments();
+                    for(User user : instructors){
+                        if(user instanceof Instructor && ((Instructor) user).removeTeachingCourse(course)){
+                            teachingCourses++;
+                        }
+                    }
+                    try {
+                        removeCourse(course);
+                    } catch (UncheckedIOException e){
+                        notSaved = e;
+                    }
+                }
+            } finally {
+                course.getDeleteLock().writeLock().unlock();
+            }
+        } finally {
+            //Waits for the fsync of the removal, once no lock is held
+            try {
+                awaitSync(saving);
+            } catch (UncheckedIOException e){
+                if(notSaved == null) notSaved = e;
+            }
+        }
+        int grades = 0;
+        int ratings = 0;
+        for(Student student : students){
+            synchronized (student){
+                if(student.removeCourseEnrollment(course)) grades++;
+                if(student.forgetRating(course)) ratings++;
+            }
+        }
+        if(notSaved != null) throw notSaved;
+        return new CascadeReport(true, students.size(), grades, ratings, teachingCourses);
+    }
+
+    /**
+     * Searches the courses by the words of their title, module titles and lesson titles, using the {@link CourseSearchIndex}.
+     * @param query  The words to look for, an empty query lists every course the filter accepts.
+     * @param filter The level, price range and min rating the courses must have, {@link CourseSearchIndex.Filter#ANY} for none.
+     * @param limit  The max number of courses returned.
+     * @return Up to limit results, the best match first.
+     */
+    public List<CourseSearchIndex.Result> searchCourses(String query, CourseSearchIndex.Filter filter, int limit){
+        loadEverything();
+        return courseSearchIndex.search(query, filter, limit);
+    }
 
     /**
      * Helper method to find a course directly by its unique ID.
+     * Uses the {@link CourseCatalog} id index, so the lookup is O(1).
      * @param id The unique integer ID of the course.
      * @return The Course object if found, otherwise null.
      */
     public Course findCourseById(int id){
-        for(Course course : courses){
-            if(course.getCourseID() == id){
-                return course;
-            }
+        Course course = courseCatalog.findById(id);
+        LazyLoader loader = lazyLoader;
+        if(course == null && loader != null){
+            course = loader.loadCourse(id);
         }
-        return null;
+        return course;
     }
 
-    /** @return An unmodifiable view of the user list containing all users. */
-    public List<User> getUsers() { return Collections.unmodifiableList(users);}
+    /**
+     * Lets a loader build saved users and courses on first access instead of all at startup.
+     *
+     * @param loader The loader, or null to stop asking it.
+     */
+    public void setLazyLoader(LazyLoader loader){ lazyLoader = loader; }
+
+    /**
+     * Looks a user up among the users the platform holds, without asking the {@link LazyLoader} (used by the loader).
+     * @param id The unique integer ID of the user.
+     * @return The User object if it is registered, otherwise null.
+     */
+    public User findLoadedUser(int id){ return userRegistry.findById(id); }
+
+    /**
+     * Looks a user up by email among the users the platform holds, without asking the {@link LazyLoader}.
+     * @param email The email string of the user.
+     * @return The User object if it is registered, otherwise null.
+     */
+    public User findLoadedUserByEmail(String email){ return userRegistry.findByEmail(email); }
+
+    /**
+     * Looks a course up among the courses the platform holds, without asking the {@link LazyLoader}.
+     * @param id The unique integer ID of the course.
+     * @return The Course object if it is registered, otherwise null.
+     */
+    public Course findLoadedCourse(int id){ return courseCatalog.findById(id); }
 
-    /** @return An unmodifiable view of the course list containing all courses. */
-    public List<Course> getCourses() { return Collections.unmodifiableList(courses);}
+    /**
+     * Adds a user built by the {@link LazyLoader}. Unlike {@link #addUser(User)} it is not reported as a change,
+     * the user was already saved.
+     *
+     * @param user The loaded user.
+     */
+    public void addLoadedUser(User user){
+        synchronized (writeLock){
+            indexUser(user);
+            state.set(state.get().withUser(user));
+        }
+    }
 
     /**
-     * Returns a sorted set of students ordered by their GPA.
-     * This method filters the global user list for Students, sorts them
-     * using the {@link Comparable} interface (by GPA), and returns them in a {@link TreeSet}.
+     * Adds a course built by the {@link LazyLoader}, without reporting it as a change.
      *
-     * @return A TreeSet containing students sorted by GPA.
+     * @param course The loaded course.
      */
-    public TreeSet<Student> getStudentsSortedByGPA(){
-        ArrayList<Student> tempStudentList = new ArrayList<>();
-        for(User user : users){
-            if(user instanceof Student){
-                tempStudentList.add((Student) user);
-            }
+    public void addLoadedCourse(Course course){
+        synchronized (writeLock){
+            courseCatalog.add(course);
+            courseSearchIndex.add(course);
+            state.set(state.get().withCourse(course));
         }
-        Collections.sort(tempStudentList);
-        return new TreeSet<>(tempStudentList);
     }
 
     /**
-     * Returns a sorted set of courses ordered by their difficulty level.
-     * This method sorts the courses using the {@link Comparable} interface (by CourseLevel)
-     * and returns them in a {@link TreeSet}.
+     * Gives the current version of the users and courses together, see {@link PlatformSnapshot}.
+     * Reading it takes no lock and copies nothing, and it does not change while it is read.
+     * @return The latest published version.
+     */
+    public PlatformSnapshot snapshot(){
+        loadEverything();
+        return state.get();
+    }
+
+    /** @return The users of the current version, an immutable list that takes no lock to read. */
+    public List<User> getUsers() {
+        return snapshot().getUsers();
+    }
+
+    /**
+     * Gives the users of one role, backed by the {@link UserRoleIndex} instead of a filter over every user.
+     * @param role The role to list.
+     * @return A read only live view in id order, its size is O(1).
+     */
+    public Collection<User> usersByRole(UserRole role){
+        loadEverything();
+        return userRoleIndex.users(role);
+    }
+
+    /**
+     * Reads one page of every user in id order (keyset paging), from the {@link UserRoleIndex} without copying the users.
+     * @param afterId The {@link Page#getNextCursor()} of the previous page, null for the first page.
+     * @param limit   The max number of users on the page.
+     * @return The page.
+     */
+    public Page<User> pageUsers(Integer afterId, int limit){
+        loadEverything();
+        return userRoleIndex.page(afterId, limit);
+    }
+
+    /**
+     * Reads one page of every course in id order (keyset paging), from the {@link CourseCatalog} without copying the courses.
+     * @param afterId The {@link Page#getNextCursor()} of the previous page, null for the first page.
+     * @param limit   The max number of courses on the page.
+     * @return The page.
+     */
+    public Page<Course> pageCourses(Integer afterId, int limit){
+        loadEverything();
+        return courseCatalog.page(afterId, limit);
+    }
+
+    /**
+     * Reads one page of the students enrolled in a course, in id order, picked from the {@link EnrollmentGraph}
+     * without copying or sorting the other students.
+     * @param course  The course.
+     * @param afterId The {@link Page#getNextCursor()} of the previous page, null for the first page.
+     * @param limit   The max number of students on the page.
+     * @return The page.
+     */
+    public Page<Student> pageEnrolledStudents(Course course, Integer afterId, int limit){
+        return course.pageEnrolledStudents(afterId, limit);
+    }
+
+    /**
+     * Reads one page of the courses a student is enrolled in, in course id order, picked from the {@link EnrollmentGraph}
+     * without copying or sorting the other courses.
+     * @param student The student.
+     * @param afterId The {@link Page#getNextCursor()} of the previous page, null for the first page.
+     * @param limit   The max number of courses on the page.
+     * @return The page.
+     */
+    public Page<Course> pageEnrolledCourses(Student student, Integer afterId, int limit){
+        return student.pageEnrolledCourses(afterId, limit);
+    }
+
+    /** @return The courses of the current version, an immutable list that takes no lock to read. */
+    public List<Course> getCourses() {
+        return snapshot().getCourses();
+    }
+
+    /**
+     * Returns the students ordered by their GPA, highest GPA first.
+     * The {@link GpaLeaderboard} is updated by the students themselves whenever their grades change,
+     * so this is a walk over the ranking instead of a filter and sort of every user.
+     * Students with the same GPA are ordered by their id.
      *
-     * @return A TreeSet containing courses sorted from BEGINNER to ADVANCED.
+     * @return A list containing every student sorted by GPA.
      */
-    public TreeSet<Course> getCoursesSortedByDifficulty(){
-        ArrayList<Course> tempCourseList = new ArrayList<>(courses);
-        Collections.sort(tempCourseList);
-        return new TreeSet<>(tempCourseList);
+    public List<Student> getStudentsSortedByGPA(){
+        long started = System.nanoTime();
+        loadEverything();
+        List<Student> students = leaderboard.getAll();
+        SORTED_BY_GPA_TIMER.recordSince(started);
+        return students;
+    }
+
+    /** @return The live GPA ranking, for top-k, rank and paging queries. */
+    public GpaLeaderboard getLeaderboard(){
+        loadEverything();
+        return leaderboard;
+    }
+
+    /**
+     * Returns a list of courses ordered by their difficulty level.
+     * The {@link CourseCatalog} already keeps one bucket per {@link CourseLevel},
+     * so the buckets are concatenated from BEGINNER to ADVANCED without sorting.
+     * Courses that share a level are all kept (a {@link TreeSet} used to drop them).
+     *
+     * @return A list containing courses sorted from BEGINNER to ADVANCED.
+     */
+    public List<Course> getCoursesSortedByDifficulty(){
+        loadEverything();
+        return courseCatalog.getSortedByDifficulty();
+    }
+
+    //Whole lists must be complete, so the lazy loader builds whatever is left and is dropped
+    private void loadEverything(){
+        LazyLoader loader = lazyLoader;
+        if(loader != null){
+            loader.loadAll();
+            lazyLoader = null;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.educore.service;
+
+import com.educore.interfaces.MutationListener;
+import com.educore.model.*;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The place where the model classes report their changes, and where {@link MutationListener}s sign up for them.
+ * Like the user and course lists in {@link Platform}, the listeners are shared by the whole program (static).
+ * The list of listeners is a {@link CopyOnWriteArrayList}, reporting a change never takes a lock
+ * and costs nothing more than an empty loop when no one is listening.
+ */
+
+public final class PlatformEvents {
+    private static final CopyOnWriteArrayList<MutationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private PlatformEvents(){}
+
+    /** @param listener The listener to call on every change. */
+    public static void addListener(MutationListener listener){ listeners.addIfAbsent(listener); }
+
+    /**
+     * @param listener The listener to stop calling.
+     * @return true if the listener was registered.
+     */
+    public static boolean removeListener(MutationListener listener){ return listeners.remove(listener); }
+
+    public static void userAdded(User user){
+        for(MutationListener listener : listeners) listener.userAdded(user);
+    }
+
+    public static void userRemoved(User user){
+        for(MutationListener listener : listeners) listener.userRemoved(user);
+    }
+
+    public static void courseAdded(Course course){
+        for(MutationListener listener : listeners) listener.courseAdded(course);
+    }
+
+    public static void courseRemoved(Course course){
+        for(MutationListener listener : listeners) listener.courseRemoved(course);
+    }
+
+    public static void courseContentChanged(Course course){
+        for(MutationListener listener : listeners) listener.courseContentChanged(course);
+    }
+
+    public static void courseLevelChanged(Course course){
+        for(MutationListener listener : listeners) listener.courseLevelChanged(course);
+    }
+
+    public static void teachingCourseAdded(Instructor instructor, Course course){
+        for(MutationListener listener : listeners) listener.teachingCourseAdded(instructor, course);
+    }
+
+    public static void enrolled(Course course, Student student){
+        for(MutationListener listener : listeners) listener.enrolled(course, student);
+    }
+
+    public static void dropped(Course course, Student student){
+        for(MutationListener listener : listeners) listener.dropped(course, student);
+    }
+
+    public static void gradeChanged(Student student, Course course, double grade){
+        for(MutationListener listener : listeners) listener.gradeChanged(student, course, grade);
+    }
+
+    public static void rated(Course course, Student rater, double rating, long sequence){
+        for(MutationListener listener : listeners) listener.rated(course, rater, rating, sequence);
+    }
+}
@@ -0,0 +1,61 @@
+package com.educore.service;
+
+import com.educore.model.Course;
+import com.educore.model.User;
+import com.educore.util.SnapshotList;
+
+import java.util.*;
+
+/**
+ * One version of the users and courses of the {@link Platform}, taken at a single point in time.
+ * The {@link Platform} publishes a new version after every add or remove, a reader holding an older version
+ * keeps seeing exactly the users and courses of that version.
+ * Key Features:
+ * Immutable: the lists are {@link SnapshotList}s, reading them never takes a lock and never copies.
+ * The users and the courses come from the same version, so they are always consistent with each other.
+ * The version number grows by one with every change, two reads with the same version saw the same data.
+ */
+
+public final class PlatformSnapshot {
+    /** The version of a platform with no users and no courses. */
+    static final PlatformSnapshot EMPTY = new PlatformSnapshot(0, SnapshotList.empty(), SnapshotList.empty());
+
+    private final long version;
+    private final SnapshotList<User> users;
+    private final SnapshotList<Course> courses;
+
+    private PlatformSnapshot(long version, SnapshotList<User> users, SnapshotList<Course> courses){
+        this.version = version;
+        this.users = users;
+        this.courses = courses;
+    }
+
+    /** @return The version number, greater for every later change. */
+    public long getVersion(){ return version; }
+
+    /** @return The users of this version, in the order they were added. */
+    public List<User> getUsers(){ return users; }
+
+    /** @return The courses of this version, in the order they were added. */
+    public List<Course> getCourses(){ return courses; }
+
+    //The next versions, made by the Platform while it holds its write lock
+
+    PlatformSnapshot withUser(User user){
+        return new PlatformSnapshot(version + 1, users.plus(user), courses);
+    }
+
+    PlatformSnapshot withoutUser(User user){
+        SnapshotList<User> next = users.minus(user);
+        return next == users ? this : new PlatformSnapshot(version + 1, next, courses);
+    }
+
+    PlatformSnapshot withCourse(Course course){
+        return new PlatformSnapshot(version + 1, users, courses.plus(course));
+    }
+
+    PlatformSnapshot withoutCourse(Course course){
+        SnapshotList<Course> next = courses.minus(course);
+        return next == courses ? this : new PlatformSnapshot(version + 1, users, next);
+    }
+}
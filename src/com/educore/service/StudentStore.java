@@ -0,0 +1,686 @@
+package com.educore.service;
+
+import com.educore.enums.UserRole;
+import com.educore.interfaces.LazyLoader;
+import com.educore.model.Course;
+import com.educore.model.Student;
+import com.educore.model.User;
+import com.educore.util.IntDoubleMap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * An optional off-heap home for the data of very many students (a million and more).
+ * A {@link Student} object carries its own maps, arrays and object headers, here every student is a fixed width
+ * row in direct memory, outside the Java heap, so the data costs only its own bytes and the garbage collector
+ * never has to walk it. The students are read and changed through a {@link View}, one reusable flyweight
+ * instead of one object per student, and a {@link Student} object is only built ({@link View#toStudent()})
+ * for the few students a session works with, like the lazy loading of the saved snapshot.
+ * Key Features:
+ * Records: one 40 byte row per student (id, name and email offsets and lengths, grade count, first grade row, grade total),
+ * the grade total and count are kept up to date so the GPA is O(1), like {@link Student#calculateGPA()}.
+ * Grades: 16 byte rows (courseID, next row, grade) chained per student, removed rows are reused.
+ * Names and emails: UTF-8 bytes appended to a text area, the bytes of removed students are reclaimed by compacting
+ * the area once they are half of it.
+ * Index: userId to row in an open addressing table, also off-heap, so finding a student is O(1) without boxing.
+ * A second table maps the email hash (case ignored) to the userId, so a student is found by email in O(1) too.
+ * Loader: {@link #loaderFor(Platform)} makes the store the platform's {@link LazyLoader}, a student is built into an
+ * object on the first lookup and then leaves the store.
+ * Every area is a direct {@link ByteBuffer} that doubles when it is full.
+ * All methods are synchronized so the store can be shared between threads, a {@link View} belongs to one thread.
+ */
+
+public class StudentStore {
+    private static final int RECORD_BYTES = 40;
+    private static final int ID = 0;
+    private static final int NAME_OFFSET = 4;
+    private static final int NAME_LENGTH = 8;
+    private static final int EMAIL_OFFSET = 12;
+    private static final int EMAIL_LENGTH = 16;
+    private static final int GRADE_COUNT = 20;
+    private static final int FIRST_GRADE = 24;
+    private static final int GRADE_TOTAL = 32;
+
+    private static final int GRADE_BYTES = 16;
+    private static final int GRADE_COURSE = 0;
+    private static final int GRADE_NEXT = 4;
+    private static final int GRADE_VALUE = 8;
+
+    private static final int EMAIL_SLOT_BYTES = 12;
+
+    /** Marks the end of a grade chain and an empty free list. */
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int TEXT_BYTES_PER_STUDENT = 32;
+    private static final int GRADES_PER_STUDENT = 4;
+    /** The text area is not compacted while it is this small. */
+    private static final int MIN_COMPACT_BYTES = 4096;
+
+    private ByteBuffer records;
+    private int size;
+
+    private ByteBuffer gradeRows;
+    private int gradeRowsUsed;
+    /** The first reusable grade row, chained through {@link #GRADE_NEXT}. */
+    private int freeGradeRow = NONE;
+
+    private ByteBuffer text;
+    private int textUsed;
+    /** The bytes of the text area no row points to any more. */
+    private int textGarbage;
+
+    /** Two ints per slot: the userId and the row + 1, a slot with row + 1 == 0 is empty. */
+    private ByteBuffer index;
+    private int indexSlots;
+
+    /** Three ints per slot: the hash of the lower-case email, the userId and 1 if the slot is used. */
+    private ByteBuffer emailIndex;
+    private int emailSlots;
+
+    public StudentStore(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedStudents The number of students the store should hold before any area has to grow.
+     */
+    public StudentStore(int expectedStudents){
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedStudents);
+        records = allocate(capacity * RECORD_BYTES);
+        gradeRows = allocate(capacity * GRADES_PER_STUDENT * GRADE_BYTES);
+        text = allocate(capacity * TEXT_BYTES_PER_STUDENT);
+        indexSlots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        index = allocate(indexSlots * 8);
+        emailSlots = indexSlots;
+        emailIndex = allocate(emailSlots * EMAIL_SLOT_BYTES);
+    }
+
+    /** @return The number of students stored. */
+    public synchronized int size(){ return size; }
+
+    /** @return The bytes of direct memory the store holds, used or not. */
+    public synchronized long offHeapBytes(){
+        return (long) records.capacity() + gradeRows.capacity() + text.capacity() + index.capacity()
+                + emailIndex.capacity();
+    }
+
+    /**
+     * @param userId The id of the student.
+     * @return true if the student is stored, O(1).
+     */
+    public synchronized boolean contains(int userId){ return rowOf(userId) >= 0; }
+
+    /**
+     * @param email The email address, case ignored.
+     * @return The id of the stored student with this email, or -1 if there is none, O(1).
+     */
+    public synchronized int findByEmail(String email){
+        if(email == null) return NONE;
+        int slot = emailSlotOf(email);
+        return slot < 0 ? NONE : emailIndex.getInt(slot * EMAIL_SLOT_BYTES + 4);
+    }
+
+    /**
+     * Stores a new student without grades.
+     *
+     * @param userId The unique id.
+     * @param name   The student's name.
+     * @param email  The student's email address.
+     * @return false if a student with the id is already stored, nothing is changed then.
+     */
+    public synchronized boolean add(int userId, String name, String email){
+        if(rowOf(userId) >= 0) return false;
+        if((size + 1) * RECORD_BYTES > records.capacity()){
+            records = grow(records, size * RECORD_BYTES, (size + 1) * RECORD_BYTES);
+        }
+        int row = size++;
+        int base = row * RECORD_BYTES;
+        records.putInt(base + ID, userId);
+        writeText(base + NAME_OFFSET, name);
+        writeText(base + EMAIL_OFFSET, email);
+        records.putInt(base + GRADE_COUNT, 0);
+        records.putInt(base + FIRST_GRADE, NONE);
+        records.putDouble(base + GRADE_TOTAL, 0.0);
+        putIndex(userId, row);
+        putEmailIndex(email, userId);
+        return true;
+    }
+
+    /**
+     * Copies a student and their grades into the store (the enrollments and ratings stay with the object).
+     *
+     * @param student The student to copy.
+     * @return false if a student with the same id is already stored, nothing is changed then.
+     */
+    public synchronized boolean add(Student student){
+        if(!add(student.getUserId(), student.getName(), student.getEmail())) return false;
+        int row = size - 1;
+        student.forEachGrade((courseId, grade) -> putGrade(row, courseId, grade));
+        return true;
+    }
+
+    /**
+     * Removes a student and their grades. The last row moves into the gap, so the rows stay dense.
+     *
+     * @param userId The id of the student.
+     * @return true if the student was stored and removed.
+     */
+    public synchronized boolean remove(int userId){
+        int row = rowOf(userId);
+        if(row < 0) return false;
+        int base = row * RECORD_BYTES;
+        int grade = records.getInt(base + FIRST_GRADE);
+        while (grade != NONE){
+            int next = gradeRows.getInt(grade * GRADE_BYTES + GRADE_NEXT);
+            freeGradeRow(grade);
+            grade = next;
+        }
+        removeIndex(userId);
+        removeEmailIndex(readText(base + EMAIL_OFFSET), userId);
+        textGarbage += records.getInt(base + NAME_LENGTH) + records.getInt(base + EMAIL_LENGTH);
+        int last = --size;
+        if(row != last){
+            int lastBase = last * RECORD_BYTES;
+            for (int i = 0; i < RECORD_BYTES; i += 8) {
+                records.putLong(base + i, records.getLong(lastBase + i));
+            }
+            putIndex(records.getInt(base + ID), row);
+        }
+        if(textGarbage > MIN_COMPACT_BYTES && textGarbage * 2 > textUsed){
+            compactText();
+        }
+        return true;
+    }
+
+    /**
+     * Makes the store a {@link LazyLoader} of the platform, e.g. {@code platform.setLazyLoader(store.loaderFor(platform))}:
+     * a lookup that misses the platform builds the stored student ({@link View#toStudent()}), adds it to the platform
+     * and removes it from the store, so each student is built at most once and only the students a session works
+     * with live on the heap. The store holds no courses.
+     *
+     * @param platform The platform the built students are added to.
+     * @return The loader.
+     */
+    public LazyLoader loaderFor(Platform platform){
+        return new LazyLoader() {
+            @Override
+            public User loadUser(int id){
+                synchronized (StudentStore.this){
+                    int row = rowOf(id);
+                    //Built by another thread since the platform's lookup missed
+                    if(row < 0) return platform.findLoadedUser(id);
+                    return build(platform, row);
+                }
+            }
+
+            @Override
+            public User loadUserByEmail(String email){
+                synchronized (StudentStore.this){
+                    int id = findByEmail(email);
+                    if(id == NONE) return platform.findLoadedUserByEmail(email);
+                    return build(platform, rowOf(id));
+                }
+            }
+
+            @Override
+            public Course loadCourse(int id){ return platform.findLoadedCourse(id); }
+
+            @Override
+            public void loadAll(){
+                synchronized (StudentStore.this){
+                    while (size > 0){
+                        build(platform, size - 1);
+                    }
+                }
+            }
+        };
+    }
+
+    //Turns a row into a platform user and drops it from the store, the caller holds the lock
+    private Student build(Platform platform, int row){
+        View view = new View();
+        view.row = row;
+        Student student = view.toStudent();
+        platform.addLoadedUser(student);
+        remove(student.getUserId());
+        return student;
+    }
+
+    /** @return A new view, not on any student yet, see {@link View#moveTo(int)}. */
+    public View newView(){ return new View(); }
+
+    /**
+     * Calls the action once for every student, in row order, with one view moved from row to row.
+     * The view is only valid inside the call, copy what must be kept.
+     *
+     * @param action The callback.
+     */
+    public synchronized void forEach(Consumer<View> action){
+        View view = new View();
+        for (int row = 0; row < size; row++) {
+            view.row = row;
+            action.accept(view);
+        }
+    }
+
+    /**
+     * A flyweight over one stored student: the same object is moved from student to student,
+     * every getter reads the row in direct memory.
+     */
+    public class View {
+        private int row = NONE;
+
+        private View(){}
+
+        /**
+         * Points the view at a student.
+         *
+         * @param userId The id of the student.
+         * @return false if the student is not stored, the view is then on no student.
+         */
+        public boolean moveTo(int userId){
+            synchronized (StudentStore.this){
+                row = rowOf(userId);
+                return row >= 0;
+            }
+        }
+
+        /** @return The id of the student. */
+        public int getUserId(){
+            synchronized (StudentStore.this){
+                return records.getInt(base() + ID);
+            }
+        }
+
+        /** @return The name of the student. */
+        public String getName(){
+            synchronized (StudentStore.this){
+                return readText(base() + NAME_OFFSET);
+            }
+        }
+
+        /** @return The email address of the student. */
+        public String getEmail(){
+            synchronized (StudentStore.this){
+                return readText(base() + EMAIL_OFFSET);
+            }
+        }
+
+        /** @return The number of grade records. */
+        public int getGradeCount(){
+            synchronized (StudentStore.this){
+                return records.getInt(base() + GRADE_COUNT);
+            }
+        }
+
+        /**
+         * @param courseId    The id of the course.
+         * @param defaultValue The value returned if there is no grade for the course.
+         * @return The grade, or the default value.
+         */
+        public double getGrade(int courseId, double defaultValue){
+            synchronized (StudentStore.this){
+                int grade = findGrade(base(), courseId);
+                return grade == NONE ? defaultValue : gradeRows.getDouble(grade * GRADE_BYTES + GRADE_VALUE);
+            }
+        }
+
+        /** @return The mean of all grades in O(1), or 0.0 if the student has no grades. */
+        public double calculateGPA(){
+            synchronized (StudentStore.this){
+                int base = base();
+                int count = records.getInt(base + GRADE_COUNT);
+                return count == 0 ? 0.0 : records.getDouble(base + GRADE_TOTAL) / count;
+            }
+        }
+
+        /**
+         * Sets the grade of a course, the running total moves by the difference.
+         *
+         * @param courseId The id of the course.
+         * @param grade    The grade value.
+         */
+        public void putGrade(int courseId, double grade){
+            synchronized (StudentStore.this){
+                StudentStore.this.putGrade(checkedRow(), courseId, grade);
+            }
+        }
+
+        /**
+         * Removes the grade of a course.
+         *
+         * @param courseId The id of the course.
+         * @return true if there was a grade for the course.
+         */
+        public boolean removeGrade(int courseId){
+            synchronized (StudentStore.this){
+                return StudentStore.this.removeGrade(checkedRow(), courseId);
+            }
+        }
+
+        /**
+         * Calls the visitor once for every grade record, newest first.
+         *
+         * @param visitor The callback receiving (courseID, grade).
+         */
+        public void forEachGrade(IntDoubleMap.Visitor visitor){
+            synchronized (StudentStore.this){
+                int grade = records.getInt(base() + FIRST_GRADE);
+                while (grade != NONE){
+                    int at = grade * GRADE_BYTES;
+                    visitor.visit(gradeRows.getInt(at + GRADE_COURSE), gradeRows.getDouble(at + GRADE_VALUE));
+                    grade = gradeRows.getInt(at + GRADE_NEXT);
+                }
+            }
+        }
+
+        /** @return A new {@link Student} object with the id, name, email and grades of the stored student. */
+        public Student toStudent(){
+            synchronized (StudentStore.this){
+                int base = base();
+                Student student = new Student(records.getInt(base + ID), readText(base + NAME_OFFSET),
+                        readText(base + EMAIL_OFFSET), UserRole.STUDENT);
+                forEachGrade(student::restoreGrade);
+                return student;
+            }
+        }
+
+        private int base(){ return checkedRow() * RECORD_BYTES; }
+
+        //The row can be gone if another thread removed students since the view was moved
+        private int checkedRow(){
+            if(row < 0 || row >= size){
+                throw new IllegalStateException("The view is not on a stored student.");
+            }
+            return row;
+        }
+    }
+
+    //Grades
+
+    private void putGrade(int row, int courseId, double grade){
+        int base = row * RECORD_BYTES;
+        int existing = findGrade(base, courseId);
+        if(existing != NONE){
+            int at = existing * GRADE_BYTES + GRADE_VALUE;
+            records.putDouble(base + GRADE_TOTAL, records.getDouble(base + GRADE_TOTAL) + grade - gradeRows.getDouble(at));
+            gradeRows.putDouble(at, grade);
+            return;
+        }
+        int added = takeGradeRow();
+        int at = added * GRADE_BYTES;
+        gradeRows.putInt(at + GRADE_COURSE, courseId);
+        gradeRows.putInt(at + GRADE_NEXT, records.getInt(base + FIRST_GRADE));
+        gradeRows.putDouble(at + GRADE_VALUE, grade);
+        records.putInt(base + FIRST_GRADE, added);
+        records.putInt(base + GRADE_COUNT, records.getInt(base + GRADE_COUNT) + 1);
+        records.putDouble(base + GRADE_TOTAL, records.getDouble(base + GRADE_TOTAL) + grade);
+    }
+
+    private boolean removeGrade(int row, int courseId){
+        int base = row * RECORD_BYTES;
+        int previous = NONE;
+        int grade = records.getInt(base + FIRST_GRADE);
+        while (grade != NONE && gradeRows.getInt(grade * GRADE_BYTES + GRADE_COURSE) != courseId){
+            previous = grade;
+            grade = gradeRows.getInt(grade * GRADE_BYTES + GRADE_NEXT);
+        }
+        if(grade == NONE) return false;
+        int next = gradeRows.getInt(grade * GRADE_BYTES + GRADE_NEXT);
+        if(previous == NONE){
+            records.putInt(base + FIRST_GRADE, next);
+        }
+        else{
+            gradeRows.putInt(previous * GRADE_BYTES + GRADE_NEXT, next);
+        }
+        int count = records.getInt(base + GRADE_COUNT) - 1;
+        records.putInt(base + GRADE_COUNT, count);
+        //No grades left, drop any rounding error the running total collected
+        double total = count == 0 ? 0.0 : records.getDouble(base + GRADE_TOTAL) - gradeRows.getDouble(grade * GRADE_BYTES + GRADE_VALUE);
+        records.putDouble(base + GRADE_TOTAL, total);
+        freeGradeRow(grade);
+        return true;
+    }
+
+    private int findGrade(int base, int courseId){
+        int grade = records.getInt(base + FIRST_GRADE);
+        while (grade != NONE && gradeRows.getInt(grade * GRADE_BYTES + GRADE_COURSE) != courseId){
+            grade = gradeRows.getInt(grade * GRADE_BYTES + GRADE_NEXT);
+        }
+        return grade;
+    }
+
+    private int takeGradeRow(){
+        if(freeGradeRow != NONE){
+            int row = freeGradeRow;
+            freeGradeRow = gradeRows.getInt(row * GRADE_BYTES + GRADE_NEXT);
+            return row;
+        }
+        if((gradeRowsUsed + 1) * GRADE_BYTES > gradeRows.capacity()){
+            gradeRows = grow(gradeRows, gradeRowsUsed * GRADE_BYTES, (gradeRowsUsed + 1) * GRADE_BYTES);
+        }
+        return gradeRowsUsed++;
+    }
+
+    private void freeGradeRow(int row){
+        gradeRows.putInt(row * GRADE_BYTES + GRADE_NEXT, freeGradeRow);
+        freeGradeRow = row;
+    }
+
+    //Names and emails
+
+    private void writeText(int at, String value){
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if(textUsed + bytes.length > text.capacity()){
+            text = grow(text, textUsed, textUsed + bytes.length);
+        }
+        text.put(textUsed, bytes);
+        records.putInt(at, textUsed);
+        records.putInt(at + 4, bytes.length);
+        textUsed += bytes.length;
+    }
+
+    private String readText(int at){
+        byte[] bytes = new byte[records.getInt(at + 4)];
+        text.get(records.getInt(at), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //Copies the text of the live rows into a new area and points the rows at it, the old area is freed with its buffer
+    private void compactText(){
+        int live = textUsed - textGarbage;
+        ByteBuffer compacted = allocate(Math.max(DEFAULT_CAPACITY * TEXT_BYTES_PER_STUDENT, live * 2));
+        int used = 0;
+        for (int row = 0; row < size; row++) {
+            int base = row * RECORD_BYTES;
+            used = moveText(compacted, used, base + NAME_OFFSET);
+            used = moveText(compacted, used, base + EMAIL_OFFSET);
+        }
+        text = compacted;
+        textUsed = used;
+        textGarbage = 0;
+    }
+
+    private int moveText(ByteBuffer target, int used, int at){
+        int length = records.getInt(at + 4);
+        target.put(used, text, records.getInt(at), length);
+        records.putInt(at, used);
+        return used + length;
+    }
+
+    //Index, linear probing over (userId, row + 1) pairs
+
+    private int rowOf(int userId){
+        int mask = indexSlots - 1;
+        int slot = mix(userId) & mask;
+        while (true){
+            int rowPlusOne = index.getInt(slot * 8 + 4);
+            if(rowPlusOne == 0) return NONE;
+            if(index.getInt(slot * 8) == userId) return rowPlusOne - 1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void putIndex(int userId, int row){
+        if(size * 4 > indexSlots * 3){
+            rehash(indexSlots * 2);
+        }
+        int mask = indexSlots - 1;
+        int slot = mix(userId) & mask;
+        while (index.getInt(slot * 8 + 4) != 0 && index.getInt(slot * 8) != userId){
+            slot = (slot + 1) & mask;
+        }
+        index.putInt(slot * 8, userId);
+        index.putInt(slot * 8 + 4, row + 1);
+    }
+
+    //Clears the slot and closes the gap so the probe chains stay unbroken, like IntHashSet
+    private void removeIndex(int userId){
+        int mask = indexSlots - 1;
+        int gap = mix(userId) & mask;
+        while (index.getInt(gap * 8) != userId || index.getInt(gap * 8 + 4) == 0){
+            gap = (gap + 1) & mask;
+        }
+        int slot = gap;
+        while (true){
+            slot = (slot + 1) & mask;
+            int rowPlusOne = index.getInt(slot * 8 + 4);
+            if(rowPlusOne == 0) break;
+            int home = mix(index.getInt(slot * 8)) & mask;
+            if(((slot - home) & mask) >= ((slot - gap) & mask)){
+                index.putInt(gap * 8, index.getInt(slot * 8));
+                index.putInt(gap * 8 + 4, rowPlusOne);
+                gap = slot;
+            }
+        }
+        index.putInt(gap * 8, 0);
+        index.putInt(gap * 8 + 4, 0);
+    }
+
+    private void rehash(int slots){
+        ByteBuffer old = index;
+        int oldSlots = indexSlots;
+        index = allocate(slots * 8);
+        indexSlots = slots;
+        int mask = slots - 1;
+        for (int i = 0; i < oldSlots; i++) {
+            int rowPlusOne = old.getInt(i * 8 + 4);
+            if(rowPlusOne == 0) continue;
+            int userId = old.getInt(i * 8);
+            int slot = mix(userId) & mask;
+            while (index.getInt(slot * 8 + 4) != 0){
+                slot = (slot + 1) & mask;
+            }
+            index.putInt(slot * 8, userId);
+            index.putInt(slot * 8 + 4, rowPlusOne);
+        }
+    }
+
+    //Email index, linear probing over (hash, userId, used) slots, the email itself is read from the row
+
+    private int emailSlotOf(String email){
+        int hash = emailHash(email);
+        int mask = emailSlots - 1;
+        int slot = mix(hash) & mask;
+        while (emailIndex.getInt(slot * EMAIL_SLOT_BYTES + 8) != 0){
+            int at = slot * EMAIL_SLOT_BYTES;
+            if(emailIndex.getInt(at) == hash){
+                int row = rowOf(emailIndex.getInt(at + 4));
+                if(row >= 0 && readText(row * RECORD_BYTES + EMAIL_OFFSET).equalsIgnoreCase(email)) return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private void putEmailIndex(String email, int userId){
+        if(email == null) return;
+        if(size * 4 > emailSlots * 3){
+            rehashEmails(emailSlots * 2);
+        }
+        int mask = emailSlots - 1;
+        int slot = mix(emailHash(email)) & mask;
+        while (emailIndex.getInt(slot * EMAIL_SLOT_BYTES + 8) != 0){
+            slot = (slot + 1) & mask;
+        }
+        writeEmailSlot(emailIndex, slot, emailHash(email), userId);
+    }
+
+    //Same gap closing as removeIndex, the home slot comes from the stored hash
+    private void removeEmailIndex(String email, int userId){
+        int hash = emailHash(email);
+        int mask = emailSlots - 1;
+        int gap = mix(hash) & mask;
+        while (true){
+            int at = gap * EMAIL_SLOT_BYTES;
+            if(emailIndex.getInt(at + 8) == 0) return;
+            if(emailIndex.getInt(at) == hash && emailIndex.getInt(at + 4) == userId) break;
+            gap = (gap + 1) & mask;
+        }
+        int slot = gap;
+        while (true){
+            slot = (slot + 1) & mask;
+            int at = slot * EMAIL_SLOT_BYTES;
+            if(emailIndex.getInt(at + 8) == 0) break;
+            int home = mix(emailIndex.getInt(at)) & mask;
+            if(((slot - home) & mask) >= ((slot - gap) & mask)){
+                writeEmailSlot(emailIndex, gap, emailIndex.getInt(at), emailIndex.getInt(at + 4));
+                gap = slot;
+            }
+        }
+        int at = gap * EMAIL_SLOT_BYTES;
+        emailIndex.putInt(at, 0);
+        emailIndex.putInt(at + 4, 0);
+        emailIndex.putInt(at + 8, 0);
+    }
+
+    private void rehashEmails(int slots){
+        ByteBuffer old = emailIndex;
+        int oldSlots = emailSlots;
+        emailIndex = allocate(slots * EMAIL_SLOT_BYTES);
+        emailSlots = slots;
+        int mask = slots - 1;
+        for (int i = 0; i < oldSlots; i++) {
+            int at = i * EMAIL_SLOT_BYTES;
+            if(old.getInt(at + 8) == 0) continue;
+            int slot = mix(old.getInt(at)) & mask;
+            while (emailIndex.getInt(slot * EMAIL_SLOT_BYTES + 8) != 0){
+                slot = (slot + 1) & mask;
+            }
+            writeEmailSlot(emailIndex, slot, old.getInt(at), old.getInt(at + 4));
+        }
+    }
+
+    private static void writeEmailSlot(ByteBuffer table, int slot, int hash, int userId){
+        int at = slot * EMAIL_SLOT_BYTES;
+        table.putInt(at, hash);
+        table.putInt(at + 4, userId);
+        table.putInt(at + 8, 1);
+    }
+
+    private static int emailHash(String email){ return email.toLowerCase().hashCode(); }
+
+    //Spreads sequential ids over the table
+    private static int mix(int value){
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static ByteBuffer allocate(int bytes){
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    //Moves the used bytes into a buffer at least twice as big, the old direct memory is freed with the old buffer
+    private static ByteBuffer grow(ByteBuffer buffer, int used, int needed){
+        long capacity = Math.max((long) buffer.capacity() * 2, needed);
+        if(capacity > Integer.MAX_VALUE){
+            throw new IllegalStateException("The student store is full.");
+        }
+        ByteBuffer bigger = allocate((int) capacity);
+        bigger.put(0, buffer, 0, used);
+        return bigger;
+    }
+}
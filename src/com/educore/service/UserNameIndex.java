@@ -0,0 +1,98 @@
+package com.educore.service;
+
+import com.educore.model.User;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * A sorted index of the users' names for prefix (search as you type) lookups.
+ * It is kept in sync by {@link Platform#addUser(User)} and {@link Platform#removeUser(User)}.
+ * Key Features:
+ * Each name is normalized once when the user is added (lower case, trimmed), a query never lower cases a user's name.
+ * The keys are sorted, so the users starting with a prefix are one contiguous range found in O(log n),
+ * and reading the first k of them costs O(k).
+ * Users with the same name are ordered by their id.
+ * The index is a {@link ConcurrentSkipListMap}, searches never block adds and removes.
+ */
+
+public class UserNameIndex {
+    /** Separates the name from the id in a key, sorts before every character a name can hold. */
+    private static final char SEPARATOR = '\0';
+
+    /** Key: normalized name + separator + zero padded id, Value: User. */
+    private final ConcurrentSkipListMap<String, User> usersByName = new ConcurrentSkipListMap<>();
+
+    /**
+     * Adds a user under its current name.
+     *
+     * @param user The user to index.
+     */
+    public void add(User user){
+        usersByName.put(key(user), user);
+    }
+
+    /**
+     * Removes a user, the entry is only removed if it still points to this user.
+     *
+     * @param user The user to remove.
+     * @return true if the user was found and removed.
+     */
+    public boolean remove(User user){
+        return usersByName.remove(key(user), user);
+    }
+
+    /**
+     * Finds the users whose name starts with a prefix, the case is ignored.
+     *
+     * @param prefix The start of the name.
+     * @param limit  The max number of users returned.
+     * @return Up to limit users, sorted by name then id.
+     */
+    public List<User> search(String prefix, int limit){
+        return search(prefix, limit, null);
+    }
+
+    /**
+     * Finds the users whose name starts with a prefix and who pass a filter, the case is ignored.
+     *
+     * @param prefix The start of the name.
+     * @param limit  The max number of users returned.
+     * @param filter Only the users it accepts are returned, null to accept every user.
+     * @return Up to limit users, sorted by name then id.
+     */
+    public List<User> search(String prefix, int limit, Predicate<? super User> filter){
+        String from = normalize(prefix);
+        if(from == null || limit <= 0) return Collections.emptyList();
+
+        ArrayList<User> results = new ArrayList<>(Math.min(limit, 16));
+        //Every key starting with the prefix sorts between the prefix and the prefix followed by the highest character
+        for(User user : usersByName.subMap(from, true, from + Character.MAX_VALUE, false).values()){
+            if(filter != null && !filter.test(user)) continue;
+            results.add(user);
+            if(results.size() == limit) break;
+        }
+        return results;
+    }
+
+    /** @return The number of indexed users. */
+    public int size(){ return usersByName.size(); }
+
+    /**
+     * Normalizes a name the way the index stores it.
+     *
+     * @param name The name to normalize.
+     * @return The lower case, trimmed name, or null for null.
+     */
+    public static String normalize(String name){
+        if(name == null) return null;
+        return name.toLowerCase(Locale.ROOT).trim();
+    }
+
+    //The id keeps users with the same name apart, zero padding keeps them in id order
+    private static String key(User user){
+        String name = normalize(user.getName());
+        return (name == null ? "" : name) + SEPARATOR + String.format("%011d", (long) user.getUserId() - Integer.MIN_VALUE);
+    }
+}
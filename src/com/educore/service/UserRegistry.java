@@ -0,0 +1,78 @@
+package com.educore.service;
+
+import com.educore.model.User;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of all the users registered in the {@link Platform}.
+ * It is kept in sync by {@link Platform#addUser(User)} and {@link Platform#removeUser(User)}
+ * and replaces the linear scans over the user list with two hash indexes:
+ * A primary key index from the user's id to the user.
+ * A case-insensitive index from the user's email to the user.
+ * Both indexes are {@link ConcurrentHashMap}s so lookups are O(1) and never take a global lock.
+ */
+
+public class UserRegistry {
+    /** Primary key index. Key: userId, Value: User. */
+    private final ConcurrentHashMap<Integer, User> usersById = new ConcurrentHashMap<>();
+    /** Email index. Key: lower case email, Value: User. */
+    private final ConcurrentHashMap<String, User> usersByEmail = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a user to both indexes.
+     * If another user already has the same id or email, the index now points to the new user.
+     *
+     * @param user The user to index.
+     */
+    public void add(User user){
+        usersById.put(user.getUserId(), user);
+        String emailKey = emailKey(user.getEmail());
+        if(emailKey != null){
+            usersByEmail.put(emailKey, user);
+        }
+    }
+
+    /**
+     * Removes a user from both indexes.
+     * An index entry is only removed if it still points to this user,
+     * so removing a stale user never hides the user that replaced it.
+     *
+     * @param user The user to remove.
+     * @return true if the user was found in the id index and removed.
+     */
+    public boolean remove(User user){
+        boolean removed = usersById.remove(user.getUserId(), user);
+        String emailKey = emailKey(user.getEmail());
+        if(emailKey != null){
+            usersByEmail.remove(emailKey, user);
+        }
+        return removed;
+    }
+
+    /**
+     * @param id The unique integer ID of the user.
+     * @return The User object if found, otherwise null.
+     */
+    public User findById(int id){ return usersById.get(id); }
+
+    /**
+     * @param email The email of the user, the case is ignored.
+     * @return The User object if found, otherwise null.
+     */
+    public User findByEmail(String email){
+        String emailKey = emailKey(email);
+        if(emailKey == null) return null;
+        return usersByEmail.get(emailKey);
+    }
+
+    /** @return The number of users in the id index. */
+    public int size(){ return usersById.size(); }
+
+    //Normalizes an email so "Mazen@GroupWork.com" and "mazen@groupwork.com" share the same key
+    private static String emailKey(String email){
+        if(email == null) return null;
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,173 @@
+package com.educore.service;
+
+import com.educore.enums.UserRole;
+import com.educore.model.User;
+import com.educore.util.Page;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The users of the {@link Platform} split by their {@link UserRole}.
+ * It is kept in sync by {@link Platform#addUser(User)} and {@link Platform#removeUser(User)},
+ * so listing the users of one role walks only that role instead of every user with {@code instanceof}.
+ * Key Features:
+ * One partition per role in an {@link EnumMap}, each a {@link ConcurrentSkipListMap} keyed by the user's id,
+ * so a role is listed in id order and adds and removes never take a global lock.
+ * Each partition keeps its own counter, so the size of a role is O(1).
+ * The role is read when the user is added, users without a role get a partition of their own.
+ * Every user in id order (for keyset paging) is a merge of the partitions, no index over all users is needed.
+ */
+
+public class UserRoleIndex {
+    private final EnumMap<UserRole, Partition> partitions = new EnumMap<>(UserRole.class);
+    /** The users without a role. */
+    private final Partition noRole = new Partition();
+
+    //The users of one role and their number (the size of a skip list map is a full walk)
+    private static class Partition extends AbstractCollection<User> {
+        private final ConcurrentSkipListMap<Integer, User> usersById = new ConcurrentSkipListMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        @Override
+        public Iterator<User> iterator(){
+            Iterator<User> iterator = usersById.values().iterator();
+            //Read only view, removing goes through the platform
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext(){ return iterator.hasNext(); }
+                @Override
+                public User next(){ return iterator.next(); }
+            };
+        }
+
+        @Override
+        public int size(){ return size.get(); }
+
+        @Override
+        public boolean contains(Object o){
+            return o instanceof User && usersById.get(((User) o).getUserId()) == o;
+        }
+    }
+
+    public UserRoleIndex(){
+        for(UserRole role : UserRole.values()){
+            partitions.put(role, new Partition());
+        }
+    }
+
+    /**
+     * Adds a user to the partition of its role.
+     * If another user of the role already has the same id, the partition now points to the new user.
+     *
+     * @param user The user to index.
+     */
+    public void add(User user){
+        Partition partition = partitionOf(user.getUserRole());
+        if(partition.usersById.put(user.getUserId(), user) == null){
+            partition.size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes a user, the entry is only removed if it still points to this user.
+     * Every partition is checked, so a user whose role changed after it was added is still removed.
+     *
+     * @param user The user to remove.
+     * @return true if the user was found and removed.
+     */
+    public boolean remove(User user){
+        for(Partition partition : partitions.values()){
+            if(partition.usersById.remove(user.getUserId(), user)){
+                partition.size.decrementAndGet();
+                return true;
+            }
+        }
+        if(noRole.usersById.remove(user.getUserId(), user)){
+            noRole.size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives the live users of a role.
+     *
+     * @param role The role to list.
+     * @return A read only view in id order, its size is O(1) and it follows adds and removes.
+     */
+    public Collection<User> users(UserRole role){
+        return partitionOf(role);
+    }
+
+    /**
+     * Counts the users of a role.
+     *
+     * @param role The role to count.
+     * @return The number of users with the role.
+     */
+    public int count(UserRole role){
+        return partitionOf(role).size();
+    }
+
+    /**
+     * Reads one page of every user in id order, the role partitions are merged as they are read.
+     *
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of users on the page.
+     * @return The page.
+     */
+    public Page<User> page(Integer afterId, int limit){
+        ArrayList<Iterator<User>> sources = new ArrayList<>();
+        for(Partition partition : partitions.values()){
+            sources.add(tail(partition, afterId));
+        }
+        sources.add(tail(noRole, afterId));
+        return Page.of(new MergingIterator(sources), User::getUserId, limit);
+    }
+
+    private Partition partitionOf(UserRole role){
+        return role == null ? noRole : partitions.get(role);
+    }
+
+    private static Iterator<User> tail(Partition partition, Integer afterId){
+        return (afterId == null ? partition.usersById : partition.usersById.tailMap(afterId, false)).values().iterator();
+    }
+
+    //Merges iterators that are each in id order into one iterator in id order
+    private static class MergingIterator implements Iterator<User> {
+        private final List<Iterator<User>> sources;
+        private final User[] heads;
+
+        MergingIterator(List<Iterator<User>> sources){
+            this.sources = sources;
+            this.heads = new User[sources.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            for(User head : heads){
+                if(head != null) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public User next(){
+            int smallest = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if(heads[i] != null && (smallest < 0 || heads[i].getUserId() < heads[smallest].getUserId())){
+                    smallest = i;
+                }
+            }
+            if(smallest < 0) throw new NoSuchElementException();
+            User user = heads[smallest];
+            heads[smallest] = sources.get(smallest).hasNext() ? sources.get(smallest).next() : null;
+            return user;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.educore.service;
+
+import com.educore.enums.MatchType;
+import com.educore.enums.UserRole;
+import com.educore.jfr.UserSearchEvent;
+import com.educore.model.User;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Answers user searches without any console input or output, so a search can be called from code,
+ * benchmarked or run from several threads at once. The console prompts live in {@link com.educore.util.SystemHelper.Search}.
+ * Key Features:
+ * A query made of digits is an id lookup, any other query is a name or email query.
+ * A name query returns the users whose name starts with it (sorted by name then id),
+ * then the users whose name or email is close to it (the closest first) when there are not enough of them.
+ * Results can be filtered by role and paged with a limit and an offset.
+ * Over the whole platform the {@link UserNameIndex} and {@link FuzzyUserIndex} answer the query,
+ * over a plain list (like the students of a course) the list is scanned.
+ */
+
+public class UserSearchEngine {
+    private static final MetricsRegistry.Timer SEARCH_TIMER = MetricsRegistry.shared().timer("search.users");
+
+    /** The users of the engine, only scanned when there is no index. */
+    private final Collection<? extends User> users;
+    private final UserNameIndex nameIndex;
+    private final FuzzyUserIndex fuzzyIndex;
+    private final IntFunction<User> idLookup;
+    private final ToIntFunction<UserRole> counter;
+
+    /**
+     * One user found by a search and how it matched the query.
+     */
+    public static class Result {
+        private final User user;
+        private final MatchType matchType;
+
+        public Result(User user, MatchType matchType){
+            this.user = user;
+            this.matchType = matchType;
+        }
+
+        /** @return The user found. */
+        public User getUser(){ return user; }
+        /** @return How the user matched the query. */
+        public MatchType getMatchType(){ return matchType; }
+
+        @Override
+        public String toString(){
+            return user.toString();
+        }
+    }
+
+    /**
+     * Creates an engine over indexes.
+     *
+     * @param users      The indexed users, only scanned if an index is null.
+     * @param nameIndex  The name index of the users, null to scan the users.
+     * @param fuzzyIndex The typo-tolerant index of the users, null to rank the users.
+     * @param idLookup   Finds a user by id, null to scan the users.
+     * @param counter    Counts the users of a role (all users for null), null to scan the users.
+     */
+    public UserSearchEngine(Collection<? extends User> users, UserNameIndex nameIndex, FuzzyUserIndex fuzzyIndex,
+                            IntFunction<User> idLookup, ToIntFunction<UserRole> counter){
+        this.users = users;
+        this.nameIndex = nameIndex;
+        this.fuzzyIndex = fuzzyIndex;
+        this.idLookup = idLookup;
+        this.counter = counter;
+    }
+
+    /**
+     * Creates an engine that scans a list of users, for short lists that have no index.
+     *
+     * @param users The users to search.
+     * @return The new engine.
+     */
+    public static UserSearchEngine of(Collection<? extends User> users){
+        return new UserSearchEngine(users, null, null, null, null);
+    }
+
+    /**
+     * Searches for users.
+     * The time taken is recorded by the {@code search.users} timer
+     * (this is the part of {@link com.educore.util.SystemHelper.Search#searchForUser} that isn't the user typing),
+     * and a {@link UserSearchEvent} is given to the flight recorder if it wants one.
+     *
+     * @param query  A user's id, or the start of (or something close to) a user's name or email.
+     * @param role   Only users with this role are returned, null for every role.
+     * @param limit  The max number of results returned.
+     * @param offset The number of leading results skipped, to read the next page.
+     * @return Up to limit results, the exact matches first, an empty list if nothing matched.
+     */
+    public List<Result> search(String query, UserRole role, int limit, int offset){
+        long started = System.nanoTime();
+        UserSearchEvent event = new UserSearchEvent();
+        event.begin();
+        List<Result> results = find(query, role, limit, offset);
+        SEARCH_TIMER.recordSince(started);
+        if(event.shouldCommit()){
+            event.queryLength = query == null ? 0 : query.length();
+            event.role = role == null ? null : role.name();
+            event.limit = limit;
+            event.offset = offset;
+            event.results = results.size();
+            event.commit();
+        }
+        return results;
+    }
+
+    //The search itself, timed by search()
+    private List<Result> find(String query, UserRole role, int limit, int offset){
+        if(query == null || limit <= 0 || offset < 0) return Collections.emptyList();
+        String trimmed = query.trim();
+        if(trimmed.isEmpty()) return Collections.emptyList();
+
+        Predicate<User> filter = role == null ? null : user -> user.getUserRole() == role;
+        int wanted = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        ArrayList<Result> results = new ArrayList<>(Math.min(wanted, 16));
+
+        if(isId(trimmed)){
+            User user = findById(Integer.parseInt(trimmed));
+            if(user != null && (filter == null || filter.test(user))){
+                results.add(new Result(user, MatchType.ID));
+            }
+            return page(results, offset, wanted);
+        }
+
+        HashSet<User> found = new HashSet<>();
+        for(User user : prefixMatches(trimmed, wanted, filter)){
+            found.add(user);
+            results.add(new Result(user, MatchType.PREFIX));
+        }
+        if(results.size() < wanted){
+            List<User> closest = fuzzyIndex != null ? fuzzyIndex.search(trimmed, wanted, filter)
+                    : FuzzyUserIndex.rank(users, trimmed, wanted, filter);
+            for(User user : closest){
+                if(results.size() == wanted) break;
+                if(found.add(user)) results.add(new Result(user, MatchType.FUZZY));
+            }
+        }
+        return page(results, offset, wanted);
+    }
+
+    /**
+     * Searches for users and returns only the users, for callers that don't need the match type.
+     *
+     * @return Up to limit users, see {@link #search(String, UserRole, int, int)}.
+     */
+    public List<User> searchUsers(String query, UserRole role, int limit, int offset){
+        List<Result> results = search(query, role, limit, offset);
+        ArrayList<User> found = new ArrayList<>(results.size());
+        for(Result result : results){
+            found.add(result.getUser());
+        }
+        return found;
+    }
+
+    /**
+     * Counts the users the engine searches.
+     *
+     * @param role The role to count, null for every user.
+     * @return The number of users with the role.
+     */
+    public int count(UserRole role){
+        if(counter != null) return counter.applyAsInt(role);
+        if(role == null) return users.size();
+        int count = 0;
+        for(User user : users){
+            if(user.getUserRole() == role) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a query is an id lookup rather than a name query.
+     *
+     * @param query The trimmed query.
+     * @return true if the query is a non-negative whole number that fits in an int.
+     */
+    public static boolean isId(String query){
+        if(query.isEmpty() || query.length() > 10) return false;
+        for (int i = 0; i < query.length(); i++) {
+            if(query.charAt(i) < '0' || query.charAt(i) > '9') return false;
+        }
+        return Long.parseLong(query) <= Integer.MAX_VALUE;
+    }
+
+    private User findById(int id){
+        if(idLookup != null) return idLookup.apply(id);
+        for(User user : users){
+            if(user.getUserId() == id) return user;
+        }
+        return null;
+    }
+
+    private List<User> prefixMatches(String prefix, int limit, Predicate<User> filter){
+        if(nameIndex != null) return nameIndex.search(prefix, limit, filter);
+        String normalized = UserNameIndex.normalize(prefix);
+        //The index returns the first matches by name then id, so the scan keeps the smallest limit matches of the
+        //whole list, not the first ones it meets: a max-heap whose head is the largest match kept so far
+        Comparator<PrefixMatch> order = Comparator.comparing((PrefixMatch match) -> match.name)
+                .thenComparingInt(match -> match.user.getUserId());
+        PriorityQueue<PrefixMatch> kept = new PriorityQueue<>(Math.min(limit, 64), order.reversed());
+        for(User user : users){
+            if(!nameStartsWith(user.getName(), normalized) || (filter != null && !filter.test(user))) continue;
+            PrefixMatch match = new PrefixMatch(UserNameIndex.normalize(user.getName()), user);
+            if(kept.size() < limit){
+                kept.add(match);
+            }
+            else if(order.compare(match, kept.peek()) < 0){
+                kept.poll();
+                kept.add(match);
+            }
+        }
+        PrefixMatch[] sorted = kept.toArray(new PrefixMatch[0]);
+        Arrays.sort(sorted, order);
+        ArrayList<User> matches = new ArrayList<>(sorted.length);
+        for(PrefixMatch match : sorted){
+            matches.add(match.user);
+        }
+        return matches;
+    }
+
+    //A scanned match with its normalized name, so the name is normalized once and not on every comparison
+    private static class PrefixMatch {
+        final String name;
+        final User user;
+
+        PrefixMatch(String name, User user){
+            this.name = name;
+            this.user = user;
+        }
+    }
+
+    //Case-insensitive startsWith that skips the leading spaces of the name without building a new string
+    private static boolean nameStartsWith(String name, String prefix){
+        if(name == null) return false;
+        int start = 0;
+        while (start < name.length() && name.charAt(start) <= ' '){
+            start++;
+        }
+        return name.regionMatches(true, start, prefix, 0, prefix.length());
+    }
+
+    private static List<Result> page(List<Result> results, int offset, int wanted){
+        if(offset >= results.size()) return Collections.emptyList();
+        return new ArrayList<>(results.subList(offset, Math.min(wanted, results.size())));
+    }
+}
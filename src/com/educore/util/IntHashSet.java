@@ -0,0 +1,237 @@
+package com.educore.util;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * A hash set of primitive {@code int} values, the set counterpart of {@link IntDoubleMap}.
+ * Unlike {@code HashSet<Integer>} it doesn't create a node and a boxed number per value,
+ * the values are stored in one array (open addressing with linear probing).
+ * Usage example: the ids of the students enrolled in a course.
+ * This class is not thread safe, the owner must guard it.
+ */
+
+public class IntHashSet {
+    private static final int DEFAULT_CAPACITY = 4;
+    /** 0 marks an empty slot in {@link #values}, so the value 0 is stored on the side. */
+    private static final int EMPTY = 0;
+
+    private int[] values;
+    private int size;
+    private boolean hasZero;
+
+    public IntHashSet(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of values the set should hold before it has to grow.
+     */
+    public IntHashSet(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1) << 1);
+        values = new int[capacity];
+    }
+
+    /** @return The number of values. */
+    public int size(){ return size; }
+
+    /** @return true if there are no values. */
+    public boolean isEmpty(){ return size == 0; }
+
+    /**
+     * @param value The value to look for.
+     * @return true if the value is in the set, O(1).
+     */
+    public boolean contains(int value){
+        if(value == EMPTY) return hasZero;
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value to add.
+     * @return true if the value was not in the set yet.
+     */
+    public boolean add(int value){
+        if(value == EMPTY){
+            if(hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int mask = values.length - 1;
+        int index = mix(value) & mask;
+        while (values[index] != EMPTY){
+            if(values[index] == value) return false;
+            index = (index + 1) & mask;
+        }
+        values[index] = value;
+        size++;
+        if(slotsUsed() * 4 > values.length * 3){
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param value The value to remove.
+     * @return true if the value was in the set and removed.
+     */
+    public boolean remove(int value){
+        if(value == EMPTY){
+            if(!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int index = indexOf(value);
+        if(index < 0) return false;
+        shiftBack(index);
+        size--;
+        return true;
+    }
+
+    /** Removes every value, the array keeps its size. */
+    public void clear(){
+        Arrays.fill(values, EMPTY);
+        hasZero = false;
+        size = 0;
+    }
+
+    /** @return A new array holding the values, in no particular order. */
+    public int[] toArray(){
+        int[] copy = new int[size];
+        int i = 0;
+        if(hasZero) copy[i++] = EMPTY;
+        for(int value : values){
+            if(value != EMPTY) copy[i++] = value;
+        }
+        return copy;
+    }
+
+    /**
+     * Calls the action once for every value, in no particular order.
+     *
+     * @param action The callback.
+     */
+    public void forEach(IntConsumer action){
+        if(hasZero){
+            action.accept(EMPTY);
+        }
+        for(int value : values){
+            if(value != EMPTY){
+                action.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Finds the smallest values above a floor without copying or sorting the set, e.g. one page of ids after a cursor.
+     * The set is read once, keeping the count smallest values seen so far in a max heap of ints (O(n log count)).
+     *
+     * @param floor Only values greater than it are kept, {@link Long#MIN_VALUE} keeps every value.
+     * @param count The max number of values returned.
+     * @return A new array of at most count values, in increasing order.
+     */
+    public int[] smallestAbove(long floor, int count){
+        int[] heap = new int[Math.max(0, Math.min(count, size))];
+        int kept = 0;
+        if(heap.length == 0) return heap;
+        if(hasZero && EMPTY > floor){
+            heap[kept++] = EMPTY;
+        }
+        for(int value : values){
+            if(value == EMPTY || value <= floor) continue;
+            if(kept < heap.length){
+                heap[kept] = value;
+                siftUp(heap, kept++);
+            }
+            else if(value < heap[0]){
+                heap[0] = value;
+                siftDown(heap, kept);
+            }
+        }
+        int[] smallest = Arrays.copyOf(heap, kept);
+        Arrays.sort(smallest);
+        return smallest;
+    }
+
+    //Max heap helpers for smallestAbove, the largest kept value is at index 0
+    private static void siftUp(int[] heap, int index){
+        int value = heap[index];
+        while (index > 0){
+            int parent = (index - 1) >>> 1;
+            if(heap[parent] >= value) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size){
+        int value = heap[0];
+        int index = 0;
+        while (true){
+            int child = 2 * index + 1;
+            if(child >= size) break;
+            if(child + 1 < size && heap[child + 1] > heap[child]) child++;
+            if(heap[child] <= value) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    private int slotsUsed(){ return hasZero ? size - 1 : size; }
+
+    private int indexOf(int value){
+        int mask = values.length - 1;
+        int index = mix(value) & mask;
+        while (values[index] != EMPTY){
+            if(values[index] == value) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    //Closes the gap left by a removed value so the probe chains stay unbroken (no tombstones needed)
+    private void shiftBack(int gap){
+        int mask = values.length - 1;
+        int index = gap;
+        while (true){
+            index = (index + 1) & mask;
+            int value = values[index];
+            if(value == EMPTY) break;
+            int home = mix(value) & mask;
+            //Move the value into the gap only if the gap lies on its probe path from home to index
+            if(((index - home) & mask) >= ((index - gap) & mask)){
+                values[gap] = value;
+                gap = index;
+            }
+        }
+        values[gap] = EMPTY;
+    }
+
+    private void grow(){
+        int[] old = values;
+        values = new int[old.length * 2];
+        int mask = values.length - 1;
+        for(int value : old){
+            if(value == EMPTY) continue;
+            int index = mix(value) & mask;
+            while (values[index] != EMPTY){
+                index = (index + 1) & mask;
+            }
+            values[index] = value;
+        }
+    }
+
+    //Spreads sequential ids over the table
+    private static int mix(int value){
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
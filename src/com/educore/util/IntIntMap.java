@@ -0,0 +1,213 @@
+package com.educore.util;
+
+import java.util.*;
+
+/**
+ * A hash map from primitive {@code int} keys to primitive {@code int} values, the int twin of {@link IntDoubleMap}.
+ * Unlike {@code HashMap<Integer, Integer>} it doesn't create an entry object and two boxed numbers
+ * per mapping, it stores keys and values in two parallel arrays (open addressing with linear probing).
+ * Usage example: the edit distances of the matched words of a fuzzy search, Key: word id, Value: distance.
+ * This class is not thread safe, the owner must guard it.
+ */
+
+public class IntIntMap {
+    /** Callback used by {@link #forEach(Visitor)} to go over the mappings without boxing them. */
+    public interface Visitor {
+        void visit(int key, int value);
+    }
+
+    private static final int DEFAULT_CAPACITY = 4;
+    /** 0 marks an empty slot in {@link #keys}, so the key 0 is stored on the side. */
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of mappings the map should hold before it has to grow.
+     */
+    public IntIntMap(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1) << 1);
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Creates a copy of another map.
+     *
+     * @param other The map to copy.
+     */
+    public IntIntMap(IntIntMap other){
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+        hasZeroKey = other.hasZeroKey;
+        zeroValue = other.zeroValue;
+    }
+
+    /** @return The number of mappings. */
+    public int size(){ return size; }
+
+    /** @return true if there are no mappings. */
+    public boolean isEmpty(){ return size == 0; }
+
+    /**
+     * @param key The key to look for.
+     * @return true if the key is mapped to a value.
+     */
+    public boolean containsKey(int key){
+        if(key == EMPTY) return hasZeroKey;
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @param key          The key to look for.
+     * @param defaultValue The value returned if the key is not mapped.
+     * @return The value mapped to the key, or the default value.
+     */
+    public int get(int key, int defaultValue){
+        if(key == EMPTY) return hasZeroKey ? zeroValue : defaultValue;
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /**
+     * Maps a key to a value, replacing the previous value if there was one.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public void put(int key, int value){
+        if(key == EMPTY){
+            if(!hasZeroKey){
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY){
+            if(keys[index] == key){
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if(slotsUsed() * 4 > keys.length * 3){
+            grow();
+        }
+    }
+
+    /**
+     * Removes the mapping of a key.
+     *
+     * @param key The key to remove.
+     * @return true if the key was mapped and removed.
+     */
+    public boolean remove(int key){
+        if(key == EMPTY){
+            if(!hasZeroKey) return false;
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            return true;
+        }
+        int index = indexOf(key);
+        if(index < 0) return false;
+        shiftBack(index);
+        size--;
+        return true;
+    }
+
+    /** Removes every mapping, the arrays keep their size. */
+    public void clear(){
+        Arrays.fill(keys, EMPTY);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Calls the visitor once for every mapping, in no particular order.
+     *
+     * @param visitor The callback.
+     */
+    public void forEach(Visitor visitor){
+        if(hasZeroKey){
+            visitor.visit(EMPTY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if(keys[i] != EMPTY){
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slotsUsed(){ return hasZeroKey ? size - 1 : size; }
+
+    private int indexOf(int key){
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY){
+            if(keys[index] == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    //Closes the gap left by a removed key so the probe chains stay unbroken (no tombstones needed)
+    private void shiftBack(int gap){
+        int mask = keys.length - 1;
+        int index = gap;
+        while (true){
+            index = (index + 1) & mask;
+            int key = keys[index];
+            if(key == EMPTY) break;
+            int home = mix(key) & mask;
+            //Move the key into the gap only if the gap lies on its probe path from home to index
+            if(((index - home) & mask) >= ((index - gap) & mask)){
+                keys[gap] = key;
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+    }
+
+    private void grow(){
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == EMPTY) continue;
+            int index = mix(oldKeys[i]) & mask;
+            while (keys[index] != EMPTY){
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+
+    //Spreads sequential ids over the table
+    private static int mix(int key){
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,120 @@
+package com.educore.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies (or any positive values) that many threads can record into at once,
+ * in the spirit of HdrHistogram but with no library: it backs the {@link com.educore.service.MetricsRegistry}
+ * timers of the running platform, which is built from plain sources with no dependencies, and the load generator
+ * uses the same one so its percentiles read like the live metrics.
+ * Key Features:
+ * Log-linear buckets: every power of two is split into 64 buckets, so any value from 1ns to hours is kept
+ * with less than 1/64 (1.6%) relative error, about 2 significant digits like an HdrHistogram of precision 2,
+ * in 3,712 counters (29 KB), the memory never grows with the number of values.
+ * Recording is lock-free and allocates nothing: one atomic increment on the bucket and one on the sum
+ * (the max is only written when it grows), the count is summed from the buckets when it is read.
+ * Percentiles are read from the buckets, the value reported is the highest value of the bucket
+ * (never below the real percentile).
+ */
+
+public class LatencyHistogram {
+    /** Each power of two is split into 2^SUB_BUCKET_BITS buckets. */
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value in O(1), negative values are counted as 0.
+     *
+     * @param value The value, e.g. a latency in nanoseconds.
+     */
+    public void record(long value){
+        if(value < 0) value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)){
+            seen = max.get();
+        }
+    }
+
+    /** @return The number of values recorded, O(number of buckets). */
+    public long getCount(){
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /** @return The largest value recorded, or 0 if there are none. */
+    public long getMax(){ return max.get(); }
+
+    /** @return The mean of the values recorded, or 0 if there are none. */
+    public double getMean(){
+        long n = getCount();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Reads a percentile from the buckets. Values recorded while it runs may or may not be counted.
+     *
+     * @param percentile The percentile, from 0 to 100 (e.g. 99.9).
+     * @return The highest value of the bucket holding the percentile (at most {@link #getMax()}), or 0 if empty.
+     */
+    public long getValueAtPercentile(double percentile){
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if(total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if(seen >= rank){
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Forgets every value recorded, values recorded at the same time may be kept. */
+    public void reset(){
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString(){
+        return String.format("count=%d mean=%.0f p50=%d p90=%d p99=%d p99.9=%d max=%d", getCount(), getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99),
+                getValueAtPercentile(99.9), getMax());
+    }
+
+    //Values below 64 get a bucket each, above that the 6 bits after the highest one pick the bucket
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long highestValueOf(int bucket){
+        if(bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
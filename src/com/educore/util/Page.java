@@ -0,0 +1,87 @@
+package com.educore.util;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * One page of a listing ordered by id (keyset paging).
+ * The cursor of the next page is the id of the last item on this page, so a page never skips or repeats
+ * an item when items are added or removed between two pages, and reading page 1000 costs the same as page 1.
+ * Key Features:
+ * {@link #of} reads a page from an iterator that is already in id order (a sorted index), reading at most limit + 1 items.
+ * {@link #select} reads a page from a collection in any order without copying or sorting it,
+ * keeping only the limit smallest ids after the cursor in a heap (O(n log limit)).
+ *
+ * @param <T> The type of the items.
+ */
+
+public class Page<T> {
+    private final List<T> items;
+    private final Integer nextCursor;
+
+    private Page(List<T> items, Integer nextCursor){
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    /** @return The items of this page, in id order. */
+    public List<T> getItems(){ return items; }
+
+    /** @return The cursor to pass for the next page, or null if this is the last page. */
+    public Integer getNextCursor(){ return nextCursor; }
+
+    /** @return true if there is a page after this one. */
+    public boolean hasNext(){ return nextCursor != null; }
+
+    /**
+     * Reads a page from items that come in increasing id order and start after the cursor.
+     *
+     * @param inIdOrder The items after the cursor, in id order.
+     * @param idOf      Gives the id of an item.
+     * @param limit     The max number of items on the page.
+     * @return The page.
+     */
+    public static <T> Page<T> of(Iterator<? extends T> inIdOrder, ToIntFunction<? super T> idOf, int limit){
+        ArrayList<T> items = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        while (items.size() < limit && inIdOrder.hasNext()){
+            items.add(inIdOrder.next());
+        }
+        boolean more = !items.isEmpty() && inIdOrder.hasNext();
+        return new Page<>(items, more ? idOf.applyAsInt(items.getLast()) : null);
+    }
+
+    /**
+     * Reads a page from items in any order, only the items with an id greater than the cursor are kept.
+     *
+     * @param items   The items, they are read once and not copied.
+     * @param idOf    Gives the id of an item.
+     * @param afterId The cursor from the previous page, null for the first page.
+     * @param limit   The max number of items on the page.
+     * @return The page.
+     */
+    public static <T> Page<T> select(Iterable<? extends T> items, ToIntFunction<? super T> idOf, Integer afterId, int limit){
+        if(limit <= 0) return new Page<>(new ArrayList<>(), null);
+        //A max heap of the limit + 1 smallest ids, the extra item tells if there is a next page
+        PriorityQueue<T> smallest = new PriorityQueue<>(limit + 2,
+                Comparator.comparingInt((T item) -> idOf.applyAsInt(item)).reversed());
+        for(T item : items){
+            int id = idOf.applyAsInt(item);
+            if(afterId != null && id <= afterId) continue;
+            if(smallest.size() <= limit){
+                smallest.add(item);
+            }
+            else if(id < idOf.applyAsInt(smallest.peek())){
+                smallest.poll();
+                smallest.add(item);
+            }
+        }
+        ArrayList<T> page = new ArrayList<>(smallest);
+        page.sort(Comparator.comparingInt(idOf));
+        return of(page.iterator(), idOf, limit);
+    }
+
+    @Override
+    public String toString(){
+        return items.size() + " items" + (hasNext() ? ", next after id " + nextCursor : ", last page");
+    }
+}
@@ -0,0 +1,221 @@
+package com.educore.util;
+
+import java.util.*;
+
+/**
+ * A streaming summary of the ratings given to a {@link com.educore.interfaces.Rateable} entity.
+ * Instead of keeping every rating in a list and re-summing it on every new rating,
+ * it keeps a few running values that are updated in O(1):
+ * The count, sum and sum of squares, giving the mean and the variance.
+ * A histogram of how many ratings fell on each star (1 to 5).
+ * An optional bounded reservoir sample of the raw values for auditing,
+ * where every rating ever submitted has the same chance of being in the sample.
+ * Ratings taken back out with {@link #remove(double)} stay in the sample: only the value of a rating is
+ * known, not which submission it was, so it can't be told apart from an equal rating that is still counted.
+ * After deletes the sample goes stale, it describes every rating submitted (the deleted ones included),
+ * while the count, mean, variance and histogram describe only the ratings still counted.
+ * All methods are synchronized so ratings can be added from several threads.
+ */
+
+public class RatingAggregate {
+    /** The lowest star a rating can be counted on in the histogram. */
+    public static final int MIN_STARS = 1;
+    /** The highest star a rating can be counted on in the histogram. */
+    public static final int MAX_STARS = 5;
+
+    private long count;
+    /** The number of ratings ever added, removing one doesn't lower it. Each rating is numbered by it. */
+    private long sequence;
+    private double sum;
+    private double sumOfSquares;
+    /** histogram[i] is the number of ratings that round to (i + 1) stars. */
+    private final long[] histogram = new long[MAX_STARS - MIN_STARS + 1];
+
+    /** The reservoir, holds at most {@link #sampleCapacity} ratings. */
+    private final double[] sample;
+    private int sampleSize;
+    private final int sampleCapacity;
+    private final Random random;
+
+    /** Creates an aggregate without a reservoir sample. */
+    public RatingAggregate(){
+        this(0);
+    }
+
+    /**
+     * @param sampleCapacity The max number of raw ratings kept for auditing, 0 keeps none.
+     */
+    public RatingAggregate(int sampleCapacity){
+        if(sampleCapacity < 0){
+            throw new IllegalArgumentException("The sample capacity must not be negative.");
+        }
+        this.sampleCapacity = sampleCapacity;
+        this.sample = new double[sampleCapacity];
+        this.random = new Random();
+    }
+
+    /**
+     * Creates a copy of another aggregate, including its sample.
+     *
+     * @param other The aggregate to copy.
+     */
+    public RatingAggregate(RatingAggregate other){
+        synchronized (other){
+            this.count = other.count;
+            this.sequence = other.sequence;
+            this.sum = other.sum;
+            this.sumOfSquares = other.sumOfSquares;
+            System.arraycopy(other.histogram, 0, this.histogram, 0, histogram.length);
+            this.sampleCapacity = other.sampleCapacity;
+            this.sample = other.sample.clone();
+            this.sampleSize = other.sampleSize;
+            this.random = new Random();
+        }
+    }
+
+    /**
+     * Adds one rating in O(1).
+     *
+     * @param rating The rating value (e.g., from 1.0 to 5.0).
+     * @return The sequence number of the rating, the first rating ever added is 1.
+     */
+    public synchronized long add(double rating){
+        count++;
+        sequence++;
+        sum += rating;
+        sumOfSquares += rating * rating;
+        histogram[starIndex(rating)]++;
+
+        if(sampleCapacity == 0) return sequence;
+        if(sampleSize < sampleCapacity){
+            sample[sampleSize++] = rating;
+        }
+        else{
+            //Reservoir sampling: the new rating replaces a random slot with probability capacity/sequence,
+            //the sample is drawn from every rating submitted, so removed ratings still count here
+            long slot = (long) (random.nextDouble() * sequence);
+            if(slot < sampleCapacity){
+                sample[(int) slot] = rating;
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Adds a rating again from saved data under the sequence number it was given the first time.
+     * Later ratings are numbered after it.
+     *
+     * @param rating   The rating value.
+     * @param sequence The sequence number {@link #add(double)} returned for it.
+     */
+    public synchronized void replay(double rating, long sequence){
+        add(rating);
+        this.sequence = Math.max(this.sequence - 1, sequence);
+    }
+
+    /**
+     * Takes one rating back out in O(1), e.g. when the student who gave it is deleted.
+     * The reservoir sample is left as it is, see the class comment.
+     *
+     * @param rating The rating value that was added before.
+     * @return false if there are no ratings on the star of the value, nothing is changed then.
+     */
+    public synchronized boolean remove(double rating){
+        int star = starIndex(rating);
+        if(histogram[star] == 0) return false;
+        histogram[star]--;
+        count--;
+        sum -= rating;
+        sumOfSquares -= rating * rating;
+        if(count == 0){
+            //No ratings left, drop any rounding error the running values collected
+            sum = 0;
+            sumOfSquares = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the running values with saved ones (used when loading saved data).
+     * The reservoir sample is emptied, it fills again with the next ratings.
+     *
+     * @param count        The number of ratings.
+     * @param sum          The sum of the ratings.
+     * @param sumOfSquares The sum of the squared ratings.
+     * @param distribution The number of ratings per star, index 0 is 1 star.
+     */
+    public synchronized void restore(long count, double sum, double sumOfSquares, long[] distribution){
+        restore(count, sum, sumOfSquares, distribution, count);
+    }
+
+    /**
+     * @param sequence The number of ratings ever added, see {@link #getSequence()}.
+     * @see #restore(long, double, double, long[])
+     */
+    public synchronized void restore(long count, double sum, double sumOfSquares, long[] distribution, long sequence){
+        this.count = count;
+        this.sequence = sequence;
+        this.sum = sum;
+        this.sumOfSquares = sumOfSquares;
+        System.arraycopy(distribution, 0, histogram, 0, histogram.length);
+        this.sampleSize = 0;
+    }
+
+    /** @return The sum of the squared ratings. */
+    public synchronized double getSumOfSquares(){ return sumOfSquares; }
+
+    /** @return The number of ratings added. */
+    public synchronized long getCount(){ return count; }
+
+    /** @return The sequence number of the last rating added, ratings taken back out still count. */
+    public synchronized long getSequence(){ return sequence; }
+
+    /** @return The sum of all the ratings. */
+    public synchronized double getSum(){ return sum; }
+
+    /** @return The average rating, or 0 if there are no ratings. */
+    public synchronized double getMean(){
+        if(count == 0) return 0;
+        return sum / count;
+    }
+
+    /** @return The population variance of the ratings, or 0 if there are no ratings. */
+    public synchronized double getVariance(){
+        if(count == 0) return 0;
+        double mean = sum / count;
+        //Rounding can push the result a tiny bit below zero when every rating is the same
+        return Math.max(0, sumOfSquares / count - mean * mean);
+    }
+
+    /**
+     * Returns how the ratings are distributed over the stars.
+     *
+     * @return A new array where index 0 is the number of 1 star ratings and index 4 the number of 5 star ratings.
+     */
+    public synchronized long[] getDistribution(){ return histogram.clone(); }
+
+    /** @return A copy of the reservoir sample of every rating submitted (removed ones included), empty if sampling is turned off. */
+    public synchronized List<Double> getSample(){
+        ArrayList<Double> copy = new ArrayList<>(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+            copy.add(sample[i]);
+        }
+        return copy;
+    }
+
+    /** @return The max number of ratings the reservoir sample holds. */
+    public int getSampleCapacity(){ return sampleCapacity; }
+
+    @Override
+    public synchronized String toString(){
+        return String.format("%.2f average from %d ratings %s", getMean(), count, Arrays.toString(histogram));
+    }
+
+    //Rounds a rating to the nearest star and keeps it inside the histogram
+    private static int starIndex(double rating){
+        long stars = Math.round(rating);
+        if(stars < MIN_STARS) stars = MIN_STARS;
+        if(stars > MAX_STARS) stars = MAX_STARS;
+        return (int) stars - MIN_STARS;
+    }
+}
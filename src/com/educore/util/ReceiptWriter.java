@@ -0,0 +1,244 @@
+package com.educore.util;
+
+import com.educore.enums.OverflowPolicy;
+import com.educore.model.Course;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes enrollment receipts in the background so enrolling never waits for the console or a file.
+ * {@link Course#enroll} only puts the receipt in a bounded queue, a daemon writer thread takes the
+ * receipts out in batches, formats them and prints a whole batch with a single write and flush.
+ * Key Features:
+ * The queue size, the batch size and what happens when the queue is full ({@link OverflowPolicy}) are configurable.
+ * Dropped receipts are counted so they are never lost silently, also the ones submitted while or after the writer closes.
+ * The default writer prints to {@code System.out} and is drained by a shutdown hook when the program exits.
+ * Its settings can be changed with the system properties {@code educore.receipts.capacity},
+ * {@code educore.receipts.batch} and {@code educore.receipts.policy}, or replaced with {@link #setDefault}.
+ */
+
+public class ReceiptWriter implements AutoCloseable {
+    private static volatile ReceiptWriter defaultWriter;
+
+    private final PrintStream out;
+    private final ArrayBlockingQueue<Course.Enrollment> queue;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final Thread writerThread;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    /** The submits that started and did not return yet, the writer only stops when it is 0. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Creates a writer and starts its background thread.
+     *
+     * @param out       Where the receipts are printed.
+     * @param capacity  The max number of receipts waiting in the queue.
+     * @param batchSize The max number of receipts printed with one write.
+     * @param policy    What to do when the queue is full.
+     */
+    public ReceiptWriter(PrintStream out, int capacity, int batchSize, OverflowPolicy policy){
+        if(capacity <= 0 || batchSize <= 0){
+            throw new IllegalArgumentException("The capacity and the batch size must be positive.");
+        }
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.writerThread = new Thread(this::writeLoop, "receipt-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Returns the shared writer used by {@link Course#enroll}, creating it on first use.
+     *
+     * @return The default writer.
+     */
+    public static ReceiptWriter getDefault(){
+        ReceiptWriter writer = defaultWriter;
+        if(writer != null) return writer;
+        synchronized (ReceiptWriter.class){
+            if(defaultWriter == null){
+                ReceiptWriter created = new ReceiptWriter(System.out,
+                        Integer.getInteger("educore.receipts.capacity", 1024),
+                        Integer.getInteger("educore.receipts.batch", 64),
+                        OverflowPolicy.valueOf(System.getProperty("educore.receipts.policy", "BLOCK")));
+                Runtime.getRuntime().addShutdownHook(new Thread(created::close, "receipt-writer-shutdown"));
+                defaultWriter = created;
+            }
+            return defaultWriter;
+        }
+    }
+
+    /**
+     * Replaces the shared writer, the previous one is drained and closed.
+     *
+     * @param writer The new default writer.
+     */
+    public static void setDefault(ReceiptWriter writer){
+        ReceiptWriter previous;
+        synchronized (ReceiptWriter.class){
+            previous = defaultWriter;
+            defaultWriter = writer;
+        }
+        if(previous != null && previous != writer){
+            previous.close();
+        }
+    }
+
+    /**
+     * Queues a receipt to be printed, following the overflow policy if the queue is full.
+     *
+     * @param receipt The receipt to print.
+     * @return true if the receipt was queued, false if it was dropped.
+     */
+    public boolean submit(Course.Enrollment receipt){
+        //Counted in flight before the closed check, so close() either rejects it or waits for it
+        inFlight.incrementAndGet();
+        try {
+            submitted.incrementAndGet();
+            if(closed.get()){
+                countDropped();
+                return false;
+            }
+            return enqueue(receipt);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    //Puts the receipt in the queue following the overflow policy
+    private boolean enqueue(Course.Enrollment receipt){
+        switch (policy){
+            case BLOCK:
+                try {
+                    queue.put(receipt);
+                    return true;
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    countDropped();
+                    return false;
+                }
+            case DROP_NEWEST:
+                if(queue.offer(receipt)) return true;
+                countDropped();
+                return false;
+            case DROP_OLDEST:
+                while (!queue.offer(receipt)){
+                    if(queue.poll() != null){
+                        countDropped();
+                    }
+                }
+                return true;
+            default:
+                countDropped();
+                return false;
+        }
+    }
+
+    /**
+     * Waits until every receipt queued so far has been printed or dropped.
+     *
+     * @param timeoutMillis The max time to wait.
+     * @return true if everything was flushed in time.
+     */
+    public boolean flush(long timeoutMillis){
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (this){
+            while (written.get() + dropped.get() < submitted.get()){
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if(left <= 0 || !writerThread.isAlive()) return false;
+                try {
+                    wait(left);
+                } catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting receipts (later ones are counted as dropped), lets the writer print the ones already queued
+     * or being submitted and stops the writer thread. If that takes more than 5 seconds, the receipts still
+     * queued are counted as dropped.
+     */
+    @Override
+    public void close(){
+        if(!closed.compareAndSet(false, true)) return;
+        writerThread.interrupt();
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        ArrayList<Course.Enrollment> left = new ArrayList<>();
+        queue.drainTo(left);
+        if(!left.isEmpty()){
+            dropped.addAndGet(left.size());
+            synchronized (this){
+                notifyAll();
+            }
+        }
+    }
+
+    /** @return The number of receipts printed. */
+    public long getWrittenCount(){ return written.get(); }
+
+    /** @return The number of receipts thrown away because of the overflow policy or because the writer was closed. */
+    public long getDroppedCount(){ return dropped.get(); }
+
+    /** @return The number of receipts waiting to be printed. */
+    public int getQueuedCount(){ return queue.size(); }
+
+    private void countDropped(){
+        dropped.incrementAndGet();
+        synchronized (this){
+            notifyAll();
+        }
+    }
+
+    //Takes a batch out of the queue and prints it with one write, until the writer is closed and nothing is left
+    private void writeLoop(){
+        ArrayList<Course.Enrollment> batch = new ArrayList<>(batchSize);
+        StringBuilder text = new StringBuilder();
+        while (!closed.get() || inFlight.get() > 0 || !queue.isEmpty()){
+            try {
+                Course.Enrollment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                for(Course.Enrollment receipt : batch){
+                    receipt.formatReceipt(text);
+                }
+                out.print(text);
+                out.flush();
+                written.addAndGet(batch.size());
+            } catch (InterruptedException e){
+                //Woken up by close(), the loop checks what is left
+            } catch (RuntimeException e){
+                //A broken receipt must not stop the writer, count the batch as dropped and keep going
+                dropped.addAndGet(batch.size());
+            } finally {
+                batch.clear();
+                text.setLength(0);
+                synchronized (this){
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
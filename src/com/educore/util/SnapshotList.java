@@ -0,0 +1,85 @@
+package com.educore.util;
+
+import java.util.*;
+
+/**
+ * An immutable list that is one version of a growing list (an epoch-swapped array).
+ * Reading it never takes a lock and never copies, and it never changes after it is handed out.
+ * Key Features:
+ * A new version is made with {@link #plus(Object)} or {@link #minus(Object)}, the old versions stay valid.
+ * {@link #plus(Object)} writes the new item into the free space at the end of the shared array, so adding is O(1)
+ * (amortized, the array doubles when it is full). The older versions don't see the item, they stop at their own size.
+ * {@link #minus(Object)} copies the array without the item (O(n)), the older versions keep reading the old array.
+ * The versions of one list must be made one at a time, each from the latest version (the owner holds a write lock),
+ * so the free space of an array is only ever written once.
+ *
+ * @param <T> The type of the items.
+ */
+
+public final class SnapshotList<T> extends AbstractList<T> implements RandomAccess {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final SnapshotList<?> EMPTY = new SnapshotList<>(new Object[0], 0);
+
+    private final Object[] items;
+    private final int size;
+
+    private SnapshotList(Object[] items, int size){
+        this.items = items;
+        this.size = size;
+    }
+
+    /** @return The empty list, the first version of every list. */
+    @SuppressWarnings("unchecked")
+    public static <T> SnapshotList<T> empty(){ return (SnapshotList<T>) EMPTY; }
+
+    /**
+     * Makes the next version with one more item at the end.
+     *
+     * @param item The item to add.
+     * @return The new version, this version is unchanged.
+     */
+    public SnapshotList<T> plus(T item){
+        Object[] array = items;
+        if(size == array.length){
+            array = Arrays.copyOf(array, Math.max(DEFAULT_CAPACITY, size * 2));
+        }
+        array[size] = item;
+        return new SnapshotList<>(array, size + 1);
+    }
+
+    /**
+     * Makes the next version without the first item equal to the given one.
+     *
+     * @param item The item to remove.
+     * @return The new version, or this version if the item is not in the list.
+     */
+    public SnapshotList<T> minus(Object item){
+        int index = indexOf(item);
+        if(index < 0) return this;
+        Object[] array = new Object[Math.max(DEFAULT_CAPACITY, items.length)];
+        System.arraycopy(items, 0, array, 0, index);
+        System.arraycopy(items, index + 1, array, index, size - index - 1);
+        return new SnapshotList<>(array, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index){
+        Objects.checkIndex(index, size);
+        return (T) items[index];
+    }
+
+    @Override
+    public int size(){ return size; }
+
+    @Override
+    public int indexOf(Object o){
+        for (int i = 0; i < size; i++) {
+            if(Objects.equals(o, items[i])) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o){ return indexOf(o) >= 0; }
+}
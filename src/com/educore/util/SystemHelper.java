@@ -3,6 +3,7 @@ package com.educore.util;
 import com.educore.model.User;
 import com.educore.enums.UserRole;
 import com.educore.exception.UserNotFoundException;
+import com.educore.service.UserSearchEngine;
 
 import java.util.*;
 
@@ -98,8 +99,13 @@ public class SystemHelper {
     /**
      * An inner class designed to handle searching for users within a list.
      * Supports searching by exact ID or by name matching.
+     * Names starting with the query come first, then the closest names and emails, so a mistyped name still
+     * finds the user.
      */
     public static class Search{
+        /** The max number of users listed for a name query. */
+        private static final int MAX_RESULTS = 10;
+
         String prompt;
         String emptyError;
         String negativeError;
@@ -134,212 +140,119 @@ public class SystemHelper {
          * @throws UserNotFoundException if no user matches the criteria.
          */
         public User searchForUser(List<User> passedUserList, UserRole userRole) throws UserNotFoundException{
-            ArrayList<User> users = new ArrayList<>(passedUserList);
-
-            if(users.isEmpty()) return null;
+            if(passedUserList.isEmpty()) return null;
+            return searchForUser(UserSearchEngine.of(passedUserList), userRole);
+        }
 
-            String role;
-            switch (userRole){
-                case STUDENT:
-                    role = "student";
-                    break;
-                case INSTRUCTOR:
-                    role = "instructor";
-                    break;
-                case ADMIN:
-                    role = "admin";
-                    break;
-                case null:
-                    role = "user";
-                    break;
-            }
+        /**
+         * Searches for a user within a list without role filtering.
+         *
+         * @param passedUserList The list of users to search through.
+         * @return The found User object.
+         * @throws UserNotFoundException if no user is found.
+         */
+        public User searchForUser(List<User> passedUserList) throws UserNotFoundException{
+            if(passedUserList.isEmpty()) return null;
+            return searchForUser(UserSearchEngine.of(passedUserList), null);
+        }
 
+        /**
+         * Prompts for a user's id or name and lets the user pick one of the results,
+         * the search itself is done by the engine.
+         *
+         * @param engine   The engine answering the queries.
+         * @param userRole The specific role to filter by, null for every user.
+         * @return The found User object, or null if cancelled.
+         * @throws UserNotFoundException if no user has the id entered.
+         */
+        public User searchForUser(UserSearchEngine engine, UserRole userRole) throws UserNotFoundException{
+            String role = roleName(userRole);
             Scanner sc = new Scanner(System.in);
-            String userInput = "";
 
             while (true){
-                System.out.println(users.size() + " " + role + "s.");
+                System.out.println(engine.count(userRole) + " " + role + "s.");
                 System.out.print(prompt);
 
+                String userInput = sc.nextLine().toLowerCase().trim();
+                if(userInput.isEmpty()){
+                    System.out.println(emptyError);
+                    continue;
+                }
                 try {
-                    userInput = sc.nextLine().toLowerCase().trim();
-
-                    if(userInput.isEmpty()){
-                        System.out.println(emptyError);
-                        continue;
-                    }
                     int id = Integer.parseInt(userInput);
                     if(id == 0){
-                        break;
+                        return null;
                     }
                     else if(id < 0){
                         System.out.println(negativeError);
                         continue;
                     }
 
-                    for(User user : users){
-                        if(user.getUserId() == id){
-                            return user;
-                        }
+                    List<UserSearchEngine.Result> found = engine.search(userInput, userRole, 1, 0);
+                    if(found.isEmpty()){
+                        throw new UserNotFoundException("The " + role + " with the id of: " + userInput + " was not found.");
                     }
-                    throw new UserNotFoundException("The " + role + " with the id of: " + userInput + " was not found.");
+                    return found.getFirst().getUser();
                 } catch (NumberFormatException numberE){
-                    while (true){
-                        ArrayList<User> nameResults = new ArrayList<>();
-                        for(User user : users){
-                            if(user.getName().toLowerCase().trim().startsWith(userInput)){
-                                nameResults.add(user);
-                            }
-                        }
-
-                        System.out.println("Search results for 10 " + role + "s: ");
-                        int resultsCount = 0;
-                        for (int i = 0; i < 10; i++) {
-                            try{
-                                System.out.println((i+1) + ". " + nameResults.get(i));
-                                resultsCount++;
-                                if(nameResults.get(i) == nameResults.getLast())
-                                    break;
-                            } catch (IndexOutOfBoundsException indexE){
-                                System.out.println("CRITICAL: An unexpected error occurred while looping through the " +
-                                        "name results.");
-                                break;
-                            }
-                        }
-                        if(nameResults.isEmpty()){
-                            System.out.println("No " + role + "s was found.");
-                        }
-
-                        int choice;
-                        while (true){
-                            System.out.print("Choose a user or enter another user's name to search again" +
-                                    " (Enter 0 to go back): ");
-                            try {
-                                userInput = sc.nextLine().toLowerCase().trim();
-                                if(userInput.isEmpty()){
-                                    System.out.println("Error: You must choose a user.");
-                                    continue;
-                                }
-                                choice = Integer.parseInt(userInput);
-                                if(choice == 0){
-                                    return null;
-                                }
-                                else if(choice < 0){
-                                    System.out.println("Error: You must enter a positive number.");
-                                    continue;
-                                }
-                                else if(choice > resultsCount){
-                                    System.out.println("Error: You must enter a valid user choice.");
-                                    continue;
-                                }
-                                return nameResults.get(choice - 1);
-                            } catch (NumberFormatException e){
-                                break;
-                            }
-                        }
-                    }
+                    return chooseByName(engine, userRole, role, userInput, sc);
                 }
             }
-            return null;
         }
 
-        /**
-         * Searches for a user within a list without role filtering.
-         *
-         * @param passedUserList The list of users to search through.
-         * @return The found User object.
-         * @throws UserNotFoundException if no user is found.
-         */
-        public User searchForUser(List<User> passedUserList) throws UserNotFoundException{
-            ArrayList<User> users = new ArrayList<>(passedUserList);
-            if(users.isEmpty()) return null;
-
-            String role = "user";
-            Scanner sc = new Scanner(System.in);
-
-            String userInput = "";
+        //Lists the results of a name query and reads the choice, a new name runs a new query
+        private User chooseByName(UserSearchEngine engine, UserRole userRole, String role, String userInput, Scanner sc){
             while (true){
-                System.out.println(users.size() + " " + role + "s.");
-                System.out.print(prompt);
+                List<UserSearchEngine.Result> nameResults = engine.search(userInput, userRole, MAX_RESULTS, 0);
 
-                try {
-                    userInput = sc.nextLine().toLowerCase().trim();
+                System.out.println(userRole == null ? "Search results: " : "Search results for 10 " + role + "s: ");
+                for (int i = 0; i < nameResults.size(); i++) {
+                    System.out.println((i+1) + ". " + nameResults.get(i).getUser());
+                }
+                if(nameResults.isEmpty()){
+                    System.out.println("No " + role + "s was found.");
+                }
 
+                while (true){
+                    System.out.print("Choose a user or enter another user's name to search again" +
+                            " (Enter 0 to go back): ");
+                    userInput = sc.nextLine().toLowerCase().trim();
                     if(userInput.isEmpty()){
-                        System.out.println(emptyError);
+                        System.out.println("Error: You must choose a user.");
                         continue;
                     }
-                    int id = Integer.parseInt(userInput);
-                    if(id == 0){
-                        break;
-                    }
-                    else if(id < 0){
-                        System.out.println(negativeError);
-                    }
-
-                    for(User user : users){
-                        if(user.getUserId() == id){
-                            return user;
-                        }
-                    }
-                    throw new UserNotFoundException("The " + role + " with the id of: " + userInput + " was not found.");
-                } catch (NumberFormatException numberE){
-                    while (true){
-                        ArrayList<User> nameResults = new ArrayList<>();
-                        for(User user : users){
-                            if(user.getName().toLowerCase().trim().startsWith(userInput)){
-                                nameResults.add(user);
-                            }
-                        }
-
-                        System.out.println("Search results: ");
-                        int resultsCount = 0;
-                        for (int i = 0; i < 10; i++) {
-                            try{
-                                System.out.println((i+1) + ". " + nameResults.get(i));
-                                resultsCount++;
-                                if(nameResults.get(i) == nameResults.getLast())
-                                    break;
-                            } catch (IndexOutOfBoundsException indexE){
-                                break;
-                            }
+                    try {
+                        int choice = Integer.parseInt(userInput);
+                        if(choice == 0){
+                            return null;
                         }
-
-                        if(nameResults.isEmpty()){
-                            System.out.println("No " + role + "s was found.");
+                        else if(choice < 0){
+                            System.out.println("Error: You must enter a positive number.");
+                            continue;
                         }
-
-                        int choice;
-                        while (true){
-                            System.out.print("Choose a user or enter another user's name to search again" +
-                                    " (Enter 0 to go back): ");
-                            try {
-                                userInput = sc.nextLine().toLowerCase().trim();
-                                if(userInput.isEmpty()){
-                                    System.out.println("Error: You must choose a user.");
-                                    continue;
-                                }
-                                choice = Integer.parseInt(userInput);
-                                if(choice == 0){
-                                    return null;
-                                }
-                                else if(choice < 0){
-                                    System.out.println("Error: You must enter a positive number.");
-                                    continue;
-                                }
-                                else if(choice > resultsCount){
-                                    System.out.println("Error: You must enter a valid user choice.");
-                                    continue;
-                                }
-                                return nameResults.get(choice - 1);
-                            } catch (NumberFormatException e){
-                                break;
-                            }
+                        else if(choice > nameResults.size()){
+                            System.out.println("Error: You must enter a valid user choice.");
+                            continue;
                         }
+                        return nameResults.get(choice - 1).getUser();
+                    } catch (NumberFormatException e){
+                        break;
                     }
                 }
             }
-            return null;
+        }
+
+        private static String roleName(UserRole userRole){
+            if(userRole == null) return "user";
+            switch (userRole){
+                case STUDENT:
+                    return "student";
+                case INSTRUCTOR:
+                    return "instructor";
+                case ADMIN:
+                    return "admin";
+                default:
+                    return "user";
+            }
         }
     }
-}
\ No newline at end of file
+}
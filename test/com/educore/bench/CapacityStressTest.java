@@ -0,0 +1,25 @@
+package com.educore.bench;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link CapacityStressHarness} on every build: many threads enroll and drop the same students at once,
+ * and no course may ever hold more students than its capacity, lose a seat or give a student two seats.
+ * The load is smaller than the harness defaults so the build stays quick, run the harness itself for a long soak.
+ */
+
+class CapacityStressTest {
+    private static final int ROUNDS = 10;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5_000;
+
+    @Test
+    void seatsAreNeverOversoldLostOrGivenTwice() throws InterruptedException {
+        List<String> failures = CapacityStressHarness.run(ROUNDS, THREADS, OPERATIONS);
+        assertTrue(failures.isEmpty(), () -> failures.size() + " broken rules, first: " + failures.getFirst());
+    }
+}
@@ -0,0 +1,26 @@
+package com.educore.bench;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link CrashRecoveryHarness} on every build: a writer JVM is killed in the middle of writing and every
+ * change it acknowledged must be there when the data folder is reopened.
+ * Four rounds cover both endings of the verifier (with and without a checkpoint), run the harness itself for more crashes.
+ */
+
+class CrashRecoveryTest {
+    private static final int ROUNDS = 4;
+    private static final int THREADS = 2;
+
+    @Test
+    void acknowledgedChangesSurviveACrash(@TempDir Path folder) throws Exception {
+        List<String> failures = CrashRecoveryHarness.run(ROUNDS, THREADS, folder);
+        assertTrue(failures.isEmpty(), () -> String.join("\n", failures));
+    }
+}
@@ -0,0 +1,45 @@
+package com.educore.service;
+
+import com.educore.enums.CourseLevel;
+import com.educore.model.Course;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a course changed with {@link Course#setCourseLevel(CourseLevel)} is listed under its new level only.
+ */
+
+class CourseCatalogTest {
+
+    @Test
+    void levelChangeMovesTheCourseToItsNewBucket(){
+        CourseCatalog catalog = new CourseCatalog();
+        Course basics = new Course(1, 30, "Basics", 10, CourseLevel.BEGINNER);
+        Course compilers = new Course(2, 30, "Compilers", 10, CourseLevel.ADVANCED);
+        catalog.add(basics);
+        catalog.add(compilers);
+        PlatformEvents.addListener(catalog);
+        try {
+            basics.setCourseLevel(CourseLevel.ADVANCED);
+        } finally {
+            PlatformEvents.removeListener(catalog);
+        }
+        assertTrue(catalog.getByLevel(CourseLevel.BEGINNER).isEmpty());
+        assertEquals(List.of(compilers, basics), catalog.getByLevel(CourseLevel.ADVANCED));
+        assertEquals(List.of(compilers, basics), catalog.getSortedByDifficulty());
+    }
+
+    @Test
+    void courseOutsideTheCatalogIsNotFiled(){
+        CourseCatalog catalog = new CourseCatalog();
+        Course course = new Course(1, 30, "Basics", 10, CourseLevel.BEGINNER);
+        catalog.add(course);
+        catalog.remove(course);
+        course.setCourseLevel(CourseLevel.INTERMEDIATE);
+        catalog.courseLevelChanged(course);
+        assertTrue(catalog.getSortedByDifficulty().isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.educore.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the precision promised by {@link LatencyHistogram}: a percentile is never below the exact one
+ * (read from the sorted values) and less than 1/64 above it.
+ */
+
+class LatencyHistogramTest {
+    private static final double[] PERCENTILES = {0, 1, 50, 90, 99, 99.9, 99.99, 100};
+
+    @Test
+    void percentilesAreWithinOneBucketOfTheExactValues(){
+        Random random = new Random(42);
+        long[] values = new long[200_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            //Log-normal around 20 us with a long tail, like the latencies of the platform
+            values[i] = (long) Math.exp(Math.log(20_000) + random.nextGaussian() * 1.5);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for(double percentile : PERCENTILES){
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * values.length));
+            long exact = values[(int) rank - 1];
+            long read = histogram.getValueAtPercentile(percentile);
+            assertTrue(read >= exact, "p" + percentile + ": " + read + " is below " + exact);
+            assertTrue(read - exact <= exact / 64, "p" + percentile + ": " + read + " is too far above " + exact);
+        }
+    }
+
+    @Test
+    void smallValuesAreExact(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+        assertEquals(31, histogram.getValueAtPercentile(50));
+        assertEquals(63, histogram.getValueAtPercentile(100));
+    }
+}
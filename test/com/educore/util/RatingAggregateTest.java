@@ -0,0 +1,44 @@
+package com.educore.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the reservoir sample of {@link RatingAggregate} stays uniform over every rating submitted
+ * when ratings are taken back out in between, while the running values follow the removals.
+ */
+
+class RatingAggregateTest {
+    private static final int CAPACITY = 10;
+    private static final int BEFORE = 100;
+    private static final int REMOVED = 50;
+    private static final int AFTER = 50;
+    private static final int TRIALS = 20_000;
+
+    @Test
+    void sampleStaysUniformAcrossRemovals(){
+        int total = BEFORE + AFTER;
+        long[] picked = new long[total];
+        for (int trial = 0; trial < TRIALS; trial++) {
+            RatingAggregate aggregate = new RatingAggregate(CAPACITY);
+            for (int i = 0; i < BEFORE; i++) aggregate.add(valueOf(i));
+            for (int i = 0; i < REMOVED; i++) assertTrue(aggregate.remove(valueOf(i)));
+            for (int i = BEFORE; i < total; i++) aggregate.add(valueOf(i));
+            assertEquals(total - REMOVED, aggregate.getCount());
+            assertEquals(total, aggregate.getSequence());
+            for (double value : aggregate.getSample()) {
+                picked[indexOf(value)]++;
+            }
+        }
+        double expected = (double) TRIALS * CAPACITY / total;
+        for (int i = 0; i < total; i++) {
+            assertEquals(expected, picked[i], expected * 0.15, "rating " + i);
+        }
+    }
+
+    //Every rating gets its own value, so the sample tells which submission it holds
+    private static double valueOf(int i){ return 1 + i / 1000.0; }
+
+    private static int indexOf(double value){ return (int) Math.round((value - 1) * 1000); }
+}